@@ -59,6 +59,18 @@ public class RevisionBOW implements Writable {
 	
 	// the bag-of-words stored in a map
 	private HMapSIW bow;
+
+	// the diff ran out of budget, the bag is the difference of the two bags
+	// of words instead of the words of the changed regions
+	private boolean coarse;
+
+	public boolean isCoarse() {
+		return coarse;
+	}
+
+	public void setCoarse(boolean coarse) {
+		this.coarse = coarse;
+	}
 	
 	public Iterator<Entry<String>> getWords() {
 		return bow.entrySet().iterator();
@@ -130,6 +142,7 @@ public class RevisionBOW implements Writable {
 		// Second read the last revision's id and timestamp
 		lastRevisionId = in.readLong();
 		lastTimestamp = in.readLong();
+		coarse = in.readBoolean();
 		
 		// Finally read the Bag of words
 		bow = HMapSIW.create(in);
@@ -139,13 +152,14 @@ public class RevisionBOW implements Writable {
 	@Override
 	public void write(DataOutput out) throws IOException {
 		// writing order: revision header, last revision id and timestamp,
-		// map of BoW
+		// coarse flag, map of BoW
 		out.writeLong(pageId);
 		out.writeLong(revisionId);
 		out.writeLong(timestamp);
 		out.writeInt(namespace);
 		out.writeLong(lastRevisionId);
 		out.writeLong(lastTimestamp);
+		out.writeBoolean(coarse);
 		bow.write(out);
 	}
 	
@@ -154,6 +168,7 @@ public class RevisionBOW implements Writable {
 		this.namespace = 0;
 		this.lastTimestamp = -1;
 		this.lastRevisionId = -1;
+		this.coarse = false;
 		if (bow != null) {
 			bow.clear();
 		}
@@ -0,0 +1,81 @@
+package org.hedera.io.etl;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.hedera.io.RevisionBOW;
+
+/** The bags of words of RevisionBOWInputFormat, to be run in
+ * MultiRevisionETLInputFormat. The unit interval is read from SCALE_OPT.
+ * There, check() decides, and revisions of the same interval as the last
+ * extracted one count as unchanged */
+public class NamedBOWExtractor extends RevisionBOWInputFormat.RevisionBOWExtractor
+		implements NamedETLExtractor<LongWritable, RevisionBOW>, Configurable {
+
+	private final RevisionBOWInputFormat format;
+	private final long[] prevRev;
+
+	private Configuration conf;
+
+	public NamedBOWExtractor() {
+		this(new RevisionBOWInputFormat(), new long[3]);
+	}
+
+	private NamedBOWExtractor(RevisionBOWInputFormat format, long[] prevRev) {
+		format.super(prevRev);
+		this.format = format;
+		this.prevRev = prevRev;
+	}
+
+	@Override
+	public void setConf(Configuration conf) {
+		this.conf = conf;
+		format.setBucket(RevisionBOWInputFormat.getBucket(conf));
+		setDiffBudget(conf.getLong(RevisionBOWInputFormat.DIFF_BUDGET, 0), null);
+	}
+
+	@Override
+	public Configuration getConf() {
+		return conf;
+	}
+
+	@Override
+	public String getName() {
+		return "bow";
+	}
+
+	@Override
+	public Class<LongWritable> getKeyClass() {
+		return LongWritable.class;
+	}
+
+	@Override
+	public Class<RevisionBOW> getValueClass() {
+		return RevisionBOW.class;
+	}
+
+	@Override
+	public LongWritable initializeKey() {
+		return new LongWritable();
+	}
+
+	@Override
+	public void freeKey(LongWritable key) {
+		key.set(0);
+	}
+
+	@Override
+	public RevisionBOW initializeValue() {
+		return new RevisionBOW();
+	}
+
+	@Override
+	public void freeValue(RevisionBOW value) {
+		value.clear();
+	}
+
+	@Override
+	public void newPage() {
+		prevRev[0] = prevRev[1] = prevRev[2] = 0l;
+	}
+}
@@ -1,31 +1,39 @@
 package org.hedera.io.etl;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.hedera.diff.TermDiff;
 import org.hedera.io.RevisionBOW;
 import org.hedera.io.RevisionHeader;
 import org.hedera.io.input.WikiRevisionInputFormat;
 import org.hedera.util.MediaWikiProcessor;
 
-import difflib.Delta;
-import difflib.DiffUtils;
-import difflib.Patch;
-
 /** Input format that transforms a set of revisions within one unit interval
  *  into a bag of words that appear during the interval */
 public class RevisionBOWInputFormat extends
 WikiRevisionInputFormat<LongWritable, RevisionBOW> {
 
-	private long unitInterval = 1000 * 60 * 60;
+	private TimeBucket bucket = TimeBucket.HOUR;
+
+	/** The unit interval set in BUCKET_OPT or SCALE_OPT, hourly by default */
+	static TimeBucket getBucket(Configuration conf) {
+		return TimeBucket.parse(conf.get(IntervalRevisionETLReader.BUCKET_OPT,
+				conf.get(IntervalRevisionETLReader.SCALE_OPT,
+						IntervalRevisionETLReader.HOUR_SCALE_OPT)));
+	}
+
+	/** Used by NamedBOWExtractor, which has no reader to configure it */
+	void setBucket(TimeBucket bucket) {
+		this.bucket = bucket;
+	}
 
 	@Override
 	public RecordReader<LongWritable, RevisionBOW> createRecordReader(
@@ -37,45 +45,31 @@ WikiRevisionInputFormat<LongWritable, RevisionBOW> {
 	public class RevisionBOWReader extends 
 	IntervalRevisionETLReader<LongWritable, RevisionBOW> {
 
-		// maintain the word sequence of last visited revision
-		private List<String> prevRevWords = new LinkedList<>();
-
 		// id, timestamp, length
 		private long[] prevRev = new long[3];
 
+		// one bag of words per page and unit interval: the words added
+		// since the last revision of the previous interval
 		@Override
-		public void initialize(InputSplit input, TaskAttemptContext tac)
-				throws IOException, InterruptedException {
-			super.initialize(input, tac);
-			Configuration conf = tac.getConfiguration();
-			String scale = conf.get(SCALE_OPT);
-			if (scale != null) {
-				if (HOUR_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60;
-				}
-				else if (DAY_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60 * 24;
-				}
-				else if (WEEK_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60 * 24 * 7;
-				}
-				else if (MONTH_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60 * 24 * 30;
-				}
-			}
+		protected TimeBucket bucket(Configuration conf) {
+			setBucket(getBucket(conf));
+			return bucket;
 		}
-		
+
 		@Override
 		protected void clearRevisions() {
 			super.clearRevisions();
-			prevRevWords.clear();
 			prevRev[0] = prevRev[1] = prevRev[2] = 0l;
 		}
 
 		@Override
 		protected ETLExtractor<LongWritable, RevisionBOW, 
 		RevisionHeader> initializeExtractor() {
-			return new RevisionBOWExtractor(prevRevWords, prevRev);
+			TaskAttemptContext tac = getTaskAttemptContext();
+			RevisionBOWExtractor res = new RevisionBOWExtractor(prevRev);
+			res.setDiffBudget(tac.getConfiguration().getLong(DIFF_BUDGET, 0),
+					tac.getCounter(DiffCounters.COARSE_DIFFS));
+			return res;
 		}
 
 		@Override
@@ -102,22 +96,31 @@ WikiRevisionInputFormat<LongWritable, RevisionBOW> {
 	public class RevisionBOWExtractor implements 
 			ETLExtractor<LongWritable, RevisionBOW, RevisionHeader> {
 
-		private List<String> prevRevWords;
 		private long[] prevRev;
 		
 		private MediaWikiProcessor processor;
 
+		// the words inserted by each revision of the page
+		private final TermDiff diff = new TermDiff();
+		private Counter coarseDiffs;
+
 		public RevisionBOWExtractor() {
 			super();
 			processor = new MediaWikiProcessor();
 		}
 
-		public RevisionBOWExtractor(List<String> prevRevWords, long[] prevRev) {
+		public RevisionBOWExtractor(long[] prevRev) {
 			this();
-			this.prevRevWords = prevRevWords;
 			this.prevRev = prevRev;
 		}
 
+		/** Bound the cost of the diff, see DIFF_BUDGET. The counter can be 
+		 * null */
+		public void setDiffBudget(long budget, Counter coarseDiffs) {
+			diff.setBudget(budget);
+			this.coarseDiffs = coarseDiffs;
+		}
+
 		@Override
 		public float check(RevisionHeader metaNow, RevisionHeader metaBefore) {
 			if (metaBefore == null || metaBefore.getLength() == 0) return 1f;
@@ -131,7 +134,7 @@ WikiRevisionInputFormat<LongWritable, RevisionBOW> {
 						/ (float)metaBefore.getLength();
 			}
 
-			if (tsNow - prevRev[1] <= unitInterval) {
+			if (bucket.of(tsNow) == bucket.of(prevRev[1])) {
 				return 0.0005f;
 			}
 			return Math.abs(metaNow.getLength() - prevRev[2]) 	
@@ -162,25 +165,27 @@ WikiRevisionInputFormat<LongWritable, RevisionBOW> {
 			// remove mark-ups			
 			String rawText = new String(content.getData(), 0, content.getLength()
 					- END_TEXT.length);
-			String plainText = processor.getContent(rawText);
-			List<String> thisRevWords = Arrays.asList(plainText.split("\\s+"));
-			
-			// apply diff algorithm here get the differences
-			if (prevRevWords.isEmpty()) {
-				value.buildBOW(thisRevWords);
+			byte[] plainText = processor.getContent(rawText)
+					.getBytes(StandardCharsets.UTF_8);
+
+			// the words of the changed paragraphs only, or all words of the
+			// first revision of the page
+			if (prevRev[0] == 0) {
+				diff.newPage();
 			}
-			else {
-				Patch patch = DiffUtils.diff(prevRevWords, thisRevWords);
-				for (Delta d : patch.getDeltas()) {
-					for (Object s : d.getRevised().getLines()) {
-						value.updateBOW((String) s);
-					}
-				} 
+			diff.next(plainText, 0, plainText.length);
+			int[] added = diff.getAdded();
+			for (int i = 0; i < diff.getAddedCount(); i++) {
+				value.updateBOW(diff.term(added[i]));
+			}
+			if (diff.isCoarse()) {
+				value.setCoarse(true);
+				if (coarseDiffs != null) {
+					coarseDiffs.increment(1);
+				}
 			}
 
 			// shift revision to the new one
-			prevRevWords.clear();
-			prevRevWords.addAll(thisRevWords);
 			prevRev[0] = meta.getRevisionId();
 			prevRev[1] = meta.getTimestamp();
 			prevRev[2] = meta.getLength();	
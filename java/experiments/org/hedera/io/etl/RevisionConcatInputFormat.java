@@ -22,9 +22,6 @@ import difflib.Patch;
 public class RevisionConcatInputFormat extends
 		WikiRevisionInputFormat<LongWritable, RevisionConcatText> {
 	
-	// default: 1 hour
-	private long unitInterval = 1000 * 60 * 60;
-	
 	@Override
 	public RecordReader<LongWritable, RevisionConcatText> createRecordReader(
 			InputSplit input, TaskAttemptContext context) throws IOException,
@@ -36,10 +33,9 @@ public class RevisionConcatInputFormat extends
 	 * An ETL Reader that reads all revisions of a page within one specific interval,
 	 * and generates a single Writable object that represents the concatenated bag
 	 * of words of the page during the entire interval. To avoid calculating too many
-	 * differentials between revisions, the interval unit is used (hour, day, week, etc.),
-	 * and only the first and last revisions in one time unit interval is compared. 
-	 * The comparison is also skipped if the length in bytes between two revisions is
-	 * negligible.
+	 * differentials between revisions, the interval unit is used (hour, day, week or
+	 * calendar month, see BucketLane), and only the last revision of each unit 
+	 * interval is extracted.
 	 *  
 	 * @author tuan
 	 * */
@@ -47,25 +43,9 @@ public class RevisionConcatInputFormat extends
 			IntervalRevisionETLReader<LongWritable, RevisionConcatText> {
 						
 		@Override
-		public void initialize(InputSplit input, TaskAttemptContext tac)
-				throws IOException, InterruptedException {
-			super.initialize(input, tac);
-			Configuration conf = tac.getConfiguration();
-			String scale = conf.get(SCALE_OPT);
-			if (scale != null) {
-				if (HOUR_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60;
-				}
-				else if (DAY_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60 * 24;
-				}
-				else if (WEEK_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60 * 24 * 7;
-				}
-				else if (MONTH_SCALE_OPT.equals(scale)) {
-					unitInterval = 1000 * 60 * 60 * 24 * 30;
-				}
-			}
+		protected TimeBucket bucket(Configuration conf) {
+			return TimeBucket.parse(conf.get(BUCKET_OPT,
+					conf.get(SCALE_OPT, HOUR_SCALE_OPT)));
 		}
 
 		@Override
@@ -103,7 +83,8 @@ public class RevisionConcatInputFormat extends
 	
 	/**
 	 * This extractor compares the last revision with the current one, and updates
-	 * the patch of the BOW object accordingly
+	 * the patch of the BOW object accordingly. The reader extracts by unit interval,
+	 * so check() only looks at the change of length
 	 * 
 	 * @author tuan
 	 *
@@ -116,14 +97,6 @@ public class RevisionConcatInputFormat extends
 				RevisionHeader metaBefore) {
 			
 			if (metaBefore == null || metaBefore.getLength() == 0) return 1f;
-			long tsNow = metaNow.getTimestamp();
-			long tsBefore = metaBefore.getTimestamp();
-			
-			// TODO: Wrong !! should use a global timestamp, tsBefore is
-			// always updated 
-			if (tsNow - tsBefore <= unitInterval) {
-				return 0.0005f;
-			}
 			if (metaNow.isMinor()) return 0.0005f;
 			return Math.abs(metaNow.getLength() - metaBefore.getLength()) 	
 					/ (float)metaBefore.getLength();	
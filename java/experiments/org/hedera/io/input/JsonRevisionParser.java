@@ -0,0 +1,305 @@
+package org.hedera.io.input;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+
+/**
+ * A byte-level parser of the one-line JSON revisions of Hedera. One pass
+ * over the line only locates the values of the known fields; nothing is
+ * decoded until asked for. A value that is not needed, such as the text
+ * in the header reader, costs one tight loop to its closing quote, and a
+ * wanted text is unescaped straight from the line bytes.
+ * @author tuan
+ */
+public class JsonRevisionParser {
+
+	public static final int PAGE_NAMESPACE = 0;
+	public static final int PAGE_ID = 1;
+	public static final int PAGE_TITLE = 2;
+	public static final int REV_ID = 3;
+	public static final int PARENT_ID = 4;
+	public static final int TIMESTAMP = 5;
+	public static final int USER = 6;
+	public static final int USER_ID = 7;
+	public static final int COMMENT = 8;
+	public static final int TEXT = 9;
+
+	private static final byte[][] KEYS = {
+		bytes("page_namespace"), bytes("page_id"), bytes("page_title"),
+		bytes("rev_id"), bytes("parent_id"), bytes("timestamp"),
+		bytes("user"), bytes("user_id"), bytes("comment"), bytes("text")
+	};
+
+	private static final byte[] NULL = bytes("null");
+
+	private byte[] data;
+
+	// span of the value of each field in the line, strings without quotes
+	private final int[] start = new int[KEYS.length];
+	private final int[] end = new int[KEYS.length];
+	private final boolean[] string = new boolean[KEYS.length];
+	private final boolean[] escaped = new boolean[KEYS.length];
+
+	private final DataOutputBuffer scratch = new DataOutputBuffer();
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/** Locate the fields of one JSON object. Return false if the line is
+	 * not a well-formed object */
+	public boolean parse(byte[] b, int offset, int len) {
+		data = b;
+		for (int k = 0; k < KEYS.length; k++) {
+			start[k] = end[k] = -1;
+		}
+		int limit = offset + len;
+		int i = skipSpace(b, offset, limit);
+		if (i >= limit || b[i] != '{') return false;
+		i = skipSpace(b, i + 1, limit);
+		if (i < limit && b[i] == '}') return true;
+		while (i < limit) {
+			if (b[i] != '"') return false;
+			int ks = i + 1;
+			i = skipString(b, ks, limit);
+			if (i >= limit) return false;
+			int field = field(b, ks, i);
+			i = skipSpace(b, i + 1, limit);
+			if (i >= limit || b[i] != ':') return false;
+			i = skipSpace(b, i + 1, limit);
+			if (i >= limit) return false;
+
+			int vs = i;
+			int ve;
+			boolean str = false;
+			boolean esc = false;
+			if (b[i] == '"') {
+				str = true;
+				vs = i + 1;
+				for (i = vs; i < limit && b[i] != '"'; i++) {
+					if (b[i] == '\\') {
+						esc = true;
+						i++;
+					}
+				}
+				if (i >= limit) return false;
+				ve = i++;
+			} else if (b[i] == '{' || b[i] == '[') {
+				i = skipNested(b, i, limit);
+				if (i < 0) return false;
+				ve = ++i;
+			} else {
+				while (i < limit && b[i] != ',' && b[i] != '}' 
+						&& !isSpace(b[i])) i++;
+				ve = i;
+				if (ve == vs) return false;
+			}
+			if (field >= 0) {
+				start[field] = vs;
+				end[field] = ve;
+				string[field] = str;
+				escaped[field] = esc;
+			}
+			i = skipSpace(b, i, limit);
+			if (i >= limit) return false;
+			if (b[i] == '}') return true;
+			if (b[i] != ',') return false;
+			i = skipSpace(b, i + 1, limit);
+		}
+		return false;
+	}
+
+	private static boolean isSpace(byte c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static int skipSpace(byte[] b, int i, int limit) {
+		while (i < limit && isSpace(b[i])) i++;
+		return i;
+	}
+
+	// position of the closing quote of a string starting at i
+	private static int skipString(byte[] b, int i, int limit) {
+		while (i < limit && b[i] != '"') {
+			if (b[i] == '\\') i++;
+			i++;
+		}
+		return i;
+	}
+
+	// position of the closing bracket of the object or array at i, or -1
+	private static int skipNested(byte[] b, int i, int limit) {
+		int depth = 0;
+		for (; i < limit; i++) {
+			byte c = b[i];
+			if (c == '"') {
+				i = skipString(b, i + 1, limit);
+			} else if (c == '{' || c == '[') {
+				depth++;
+			} else if (c == '}' || c == ']') {
+				if (--depth == 0) return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int field(byte[] b, int from, int to) {
+		int len = to - from;
+		for (int k = 0; k < KEYS.length; k++) {
+			byte[] key = KEYS[k];
+			if (key.length != len) continue;
+			int j = 0;
+			while (j < len && key[j] == b[from + j]) j++;
+			if (j == len) return k;
+		}
+		return -1;
+	}
+
+	/** Whether the field is present and not null */
+	public boolean has(int field) {
+		if (start[field] < 0) return false;
+		if (string[field]) return true;
+		return !isNull(field);
+	}
+
+	private boolean isNull(int field) {
+		int len = end[field] - start[field];
+		if (len != NULL.length) return false;
+		for (int j = 0; j < len; j++) {
+			if (data[start[field] + j] != NULL[j]) return false;
+		}
+		return true;
+	}
+
+	public long getLong(int field) {
+		if (!has(field)) {
+			throw new NumberFormatException("No value for " 
+					+ new String(KEYS[field], StandardCharsets.UTF_8));
+		}
+		int i = start[field];
+		int e = end[field];
+		boolean neg = false;
+		if (i < e && data[i] == '-') {
+			neg = true;
+			i++;
+		}
+		if (i >= e) {
+			throw new NumberFormatException("Empty number");
+		}
+		long res = 0;
+		for (; i < e; i++) {
+			byte c = data[i];
+			if (c < '0' || c > '9') {
+				throw new NumberFormatException("Not a number: " + new String(
+						data, start[field], end[field] - start[field],
+						StandardCharsets.UTF_8));
+			}
+			res = res * 10 + (c - '0');
+		}
+		return neg ? -res : res;
+	}
+
+	/** The decoded string, or null if the field is absent or null */
+	public String getString(int field) throws IOException {
+		if (!has(field)) {
+			return null;
+		}
+		if (!escaped[field]) {
+			return new String(data, start[field], end[field] - start[field],
+					StandardCharsets.UTF_8);
+		}
+		scratch.reset();
+		unescape(field, scratch);
+		return new String(scratch.getData(), 0, scratch.getLength(),
+				StandardCharsets.UTF_8);
+	}
+
+	/** Append the UTF-8 bytes of a string field to the buffer */
+	public void unescape(int field, DataOutputBuffer out) throws IOException {
+		if (!has(field)) {
+			return;
+		}
+		int i = start[field];
+		int e = end[field];
+		if (!escaped[field]) {
+			out.write(data, i, e - i);
+			return;
+		}
+		while (i < e) {
+			// copy the run up to the next escape in bulk
+			int from = i;
+			while (i < e && data[i] != '\\') i++;
+			if (i > from) {
+				out.write(data, from, i - from);
+			}
+			if (i + 1 >= e) {
+				break;
+			}
+			byte c = data[i + 1];
+			i += 2;
+			switch (c) {
+			case 'n': out.write('\n'); break;
+			case 't': out.write('\t'); break;
+			case 'r': out.write('\r'); break;
+			case 'b': out.write('\b'); break;
+			case 'f': out.write('\f'); break;
+			case 'u': {
+				int cp = hex(i, e);
+				i += 4;
+				// a surrogate pair is one code point, a lone surrogate has
+				// no UTF-8 form and becomes the replacement character
+				if (cp >= 0xd800 && cp <= 0xdfff) {
+					int low = (cp <= 0xdbff && i + 5 < e && data[i] == '\\'
+							&& data[i + 1] == 'u') ? hex(i + 2, e) : -1;
+					if (low >= 0xdc00 && low <= 0xdfff) {
+						cp = 0x10000 + ((cp - 0xd800) << 10) + (low - 0xdc00);
+						i += 6;
+					} else {
+						cp = 0xfffd;
+					}
+				}
+				writeUtf8(cp, out);
+				break;
+			}
+			// \" \\ \/
+			default: out.write(c);
+			}
+		}
+	}
+
+	private int hex(int i, int e) {
+		if (i + 4 > e) {
+			throw new IllegalArgumentException("Truncated \\u escape");
+		}
+		int cp = 0;
+		for (int k = i; k < i + 4; k++) {
+			int d = Character.digit(data[k], 16);
+			if (d < 0) {
+				throw new IllegalArgumentException("Bad \\u escape");
+			}
+			cp = (cp << 4) | d;
+		}
+		return cp;
+	}
+
+	private static void writeUtf8(int cp, DataOutputBuffer out) 
+			throws IOException {
+		if (cp < 0x80) {
+			out.write(cp);
+		} else if (cp < 0x800) {
+			out.write(0xc0 | (cp >> 6));
+			out.write(0x80 | (cp & 0x3f));
+		} else if (cp < 0x10000) {
+			out.write(0xe0 | (cp >> 12));
+			out.write(0x80 | ((cp >> 6) & 0x3f));
+			out.write(0x80 | (cp & 0x3f));
+		} else {
+			out.write(0xf0 | (cp >> 18));
+			out.write(0x80 | ((cp >> 12) & 0x3f));
+			out.write(0x80 | ((cp >> 6) & 0x3f));
+			out.write(0x80 | (cp & 0x3f));
+		}
+	}
+}
@@ -8,10 +8,10 @@ import static org.hedera.io.input.WikiRevisionInputFormat.REVISION_END_TIME;
 import static org.hedera.io.input.WikiRevisionInputFormat.SKIP_NON_ARTICLES;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -27,9 +27,6 @@ import org.hedera.io.FullRevision;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-
 /**
  * Provide a converter of Json revisions to FullRevision object
  * 
@@ -88,7 +85,10 @@ public class WikiFullRevisionJsonInputFormat
 		private LineRecordReader reader = new LineRecordReader();
 
 		private final FullRevision value = new FullRevision();
-		private final JsonParser parser = new JsonParser();
+		private final JsonRevisionParser parser = new JsonRevisionParser();
+
+		// the unescaped text, re-used for every line
+		private final DataOutputBuffer textBuf = new DataOutputBuffer();
 
 		@Override
 		public void initialize(InputSplit split,
@@ -139,46 +139,36 @@ public class WikiFullRevisionJsonInputFormat
 			return false;
 		}
 
-		public boolean decodeLineToJson(JsonParser parser, Text line,
+		public boolean decodeLineToJson(JsonRevisionParser parser, Text line,
 				FullRevision value) {
 			// LOG.info("Got string '{}'", line);
 			try {
-				JsonObject obj =
-						(JsonObject) parser.parse(line.toString());
-				
-				int namespace = obj.get("page_namespace").getAsInt();
+				if (!parser.parse(line.getBytes(), 0, line.getLength())) {
+					LOG.warn("Could not json-decode string: " + line);
+					return false;
+				}
+
+				// decide on the namespace before decoding anything else
+				int namespace = (int) parser.getLong(
+						JsonRevisionParser.PAGE_NAMESPACE);
 				if (namespace != 0 && skipNonArticles) {
 					return false;
 				}
 				value.setNamespace(namespace);
-
-				long pageId = obj.get("page_id").getAsLong();
-				value.setPageId(pageId);
-				
-				String title = obj.get("page_title").getAsString();
-				value.setPageTitle(title);
-				
-				long revId = obj.get("rev_id").getAsLong();
-				value.setRevisionId(revId);
-				
-				long parentId = obj.get("parent_id").getAsLong();
-				value.setParentId(parentId);
-				
-				long timestamp = obj.get("timestamp").getAsLong();
-				value.setTimestamp(timestamp);
-				
-				String user = obj.get("user").getAsString();
-				value.setUser(user);
-				
-				long userId = obj.get("user_id").getAsLong();
-				value.setUserId(userId);
-				
-				String comment = obj.get("comment").getAsString();
-				value.setComment(comment);
-				
-				byte[] text = obj.get("text").getAsString()
-						.getBytes(StandardCharsets.UTF_8);
-				value.loadText(text, 0, text.length);
+				value.setPageId(parser.getLong(JsonRevisionParser.PAGE_ID));
+				value.setPageTitle(parser.getString(
+						JsonRevisionParser.PAGE_TITLE));
+				value.setRevisionId(parser.getLong(JsonRevisionParser.REV_ID));
+				value.setParentId(parser.getLong(JsonRevisionParser.PARENT_ID));
+				value.setTimestamp(parser.getLong(JsonRevisionParser.TIMESTAMP));
+				value.setUser(parser.getString(JsonRevisionParser.USER));
+				value.setUserId(parser.getLong(JsonRevisionParser.USER_ID));
+				value.setComment(parser.getString(JsonRevisionParser.COMMENT));
+
+				// unescape the text from the line bytes, without a String
+				textBuf.reset();
+				parser.unescape(JsonRevisionParser.TEXT, textBuf);
+				value.loadText(textBuf.getData(), 0, textBuf.getLength());
 										
 				return true;
 			} catch (Exception e) {
@@ -20,9 +20,6 @@ import org.hedera.io.RevisionHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-
 /** 
  * A variant of WikiRevisionHeaderInputFormat that 
  * works with the Json dumps 
@@ -75,7 +72,7 @@ public class WikiRevisionHeaderJsonInputFormat
 		private LineRecordReader reader = new LineRecordReader();
 
 		private final RevisionHeader value = new RevisionHeader();
-		private final JsonParser parser = new JsonParser();
+		private final JsonRevisionParser parser = new JsonRevisionParser();
 
 		@Override
 		public void initialize(InputSplit split,
@@ -123,33 +120,28 @@ public class WikiRevisionHeaderJsonInputFormat
 			return false;
 		}
 
-		public boolean decodeLineToJson(JsonParser parser, Text line,
+		// the text is located but never decoded
+		public boolean decodeLineToJson(JsonRevisionParser parser, Text line,
 				RevisionHeader value) {
 			
 			try {
-				JsonObject obj =
-						(JsonObject) parser.parse(line.toString());
+				if (!parser.parse(line.getBytes(), 0, line.getLength())) {
+					LOG.warn("Could not json-decode string: " + line);
+					return false;
+				}
 				
-				int namespace = obj.get("page_namespace").getAsInt();
+				int namespace = (int) parser.getLong(
+						JsonRevisionParser.PAGE_NAMESPACE);
 				if (namespace != 0 && skipNonArticles) {
 					return false;
 				}
 				value.setNamespace(namespace);
-
-				long pageId = obj.get("page_id").getAsLong();
-				value.setPageId(pageId);
-				
-				String title = obj.get("page_title").getAsString();
-				value.setPageTitle(title);
-				
-				long revId = obj.get("rev_id").getAsLong();
-				value.setRevisionId(revId);
-				
-				long parentId = obj.get("parent_id").getAsLong();
-				value.setParentId(parentId);
-				
-				long timestamp = obj.get("timestamp").getAsLong();
-				value.setTimestamp(timestamp);
+				value.setPageId(parser.getLong(JsonRevisionParser.PAGE_ID));
+				value.setPageTitle(parser.getString(
+						JsonRevisionParser.PAGE_TITLE));
+				value.setRevisionId(parser.getLong(JsonRevisionParser.REV_ID));
+				value.setParentId(parser.getLong(JsonRevisionParser.PARENT_ID));
+				value.setTimestamp(parser.getLong(JsonRevisionParser.TIMESTAMP));
 													
 				return true;
 			} catch (Exception e) {
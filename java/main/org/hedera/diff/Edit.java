@@ -0,0 +1,88 @@
+package org.hedera.diff;
+
+/**
+ * One difference between two sequences: the region [beginA, endA) of the
+ * old one is replaced by the region [beginB, endB) of the new one. A move
+ * says that both regions are equal: the content only changed position
+ * (see MoveDetector)
+ * @author tuan
+ */
+public class Edit {
+
+	public static enum Type {
+		INSERT,
+		DELETE,
+		CHANGE,
+		MOVE
+	}
+
+	int beginA;
+	int endA;
+	int beginB;
+	int endB;
+	boolean move;
+
+	public Edit(int beginA, int endA, int beginB, int endB) {
+		this.beginA = beginA;
+		this.endA = endA;
+		this.beginB = beginB;
+		this.endB = endB;
+	}
+
+	/** The region [beginA, endA) moved to beginB */
+	public static Edit move(int beginA, int endA, int beginB) {
+		Edit e = new Edit(beginA, endA, beginB, beginB + endA - beginA);
+		e.move = true;
+		return e;
+	}
+
+	public Type getType() {
+		if (move) return Type.MOVE;
+		else if (beginA == endA) return Type.INSERT;
+		else if (beginB == endB) return Type.DELETE;
+		else return Type.CHANGE;
+	}
+
+	public int getBeginA() {
+		return beginA;
+	}
+
+	public int getEndA() {
+		return endA;
+	}
+
+	public int getBeginB() {
+		return beginB;
+	}
+
+	public int getEndB() {
+		return endB;
+	}
+
+	public int getLengthA() {
+		return endA - beginA;
+	}
+
+	public int getLengthB() {
+		return endB - beginB;
+	}
+
+	@Override
+	public String toString() {
+		return getType() + "(" + beginA + "-" + endA + ", " + beginB + "-" 
+				+ endB + ")";
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Edit)) return false;
+		Edit e = (Edit) obj;
+		return beginA == e.beginA && endA == e.endA && beginB == e.beginB
+				&& endB == e.endB && move == e.move;
+	}
+
+	@Override
+	public int hashCode() {
+		return beginA ^ (endA << 8) ^ (beginB << 16) ^ (endB << 24);
+	}
+}
@@ -0,0 +1,217 @@
+package org.hedera.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Histogram diff over int sequences, as in JGit: the common prefix and
+ * suffix are cut off, then the region is split around the longest common
+ * run of its rarest element, and both sides are diffed the same way.
+ * Elements are dense ids (see ParagraphHasher), so the histogram is a
+ * plain array, and the work arrays are re-used from one call to the next.
+ * Regions without any usable common element become one edit.
+ * <p>
+ * With a budget, the element comparisons of one diff are bounded: once the
+ * budget is spent, every region left is replaced as a whole (after cutting
+ * its common prefix and suffix), and {@link #isCoarse()} tells so. The
+ * edits are then still correct, only not minimal.
+ * @author tuan
+ */
+public class HistogramDiff {
+
+	/** Elements occurring more often than this in a region are not used
+	 * to split it */
+	public static final int MAX_CHAIN_LENGTH = 64;
+
+	private static final Comparator<Edit> ORDER = new Comparator<Edit>() {
+		@Override
+		public int compare(Edit e1, Edit e2) {
+			return (e1.beginA != e2.beginA) ? Integer.compare(e1.beginA, 
+					e2.beginA) : Integer.compare(e1.beginB, e2.beginB);
+		}
+	};
+
+	// per element: first occurrence in the region of A, and count
+	private int[] head = new int[0];
+	private int[] count = new int[0];
+
+	// per position of A: the next occurrence of the same element
+	private int[] next = new int[0];
+
+	// regions left to diff, four ints each
+	private int[] stack = new int[64];
+	private int top;
+
+	// element comparisons allowed per diff, 0 for no limit
+	private long budget;
+	private long steps;
+	private boolean coarse;
+
+	/** Bound the element comparisons of each diff, 0 for no bound */
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	/** Whether the last diff ran out of budget and replaced some regions
+	 * as a whole */
+	public boolean isCoarse() {
+		return coarse;
+	}
+
+	/**
+	 * The edits that turn a[0, aLen) into b[0, bLen), ordered by position.
+	 * All elements must be in [0, maxId]
+	 */
+	public List<Edit> diff(int[] a, int aLen, int[] b, int bLen, int maxId) {
+		if (head.length <= maxId) {
+			int n = Math.max(maxId + 1, head.length * 2);
+			head = new int[n];
+			count = new int[n];
+			Arrays.fill(head, -1);
+		}
+		if (next.length < aLen) {
+			next = new int[Math.max(aLen, next.length * 2)];
+		}
+		List<Edit> edits = new ArrayList<>();
+		top = 0;
+		steps = 0;
+		coarse = false;
+		push(0, aLen, 0, bLen);
+		while (top > 0) {
+			top -= 4;
+			diffRegion(a, stack[top], stack[top + 1], b, stack[top + 2], 
+					stack[top + 3], edits);
+		}
+		if (edits.size() > 1) {
+			Collections.sort(edits, ORDER);
+		}
+		return merge(edits);
+	}
+
+	private void push(int as, int ae, int bs, int be) {
+		if (top + 4 > stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[top++] = as;
+		stack[top++] = ae;
+		stack[top++] = bs;
+		stack[top++] = be;
+	}
+
+	private void diffRegion(int[] a, int as, int ae, int[] b, int bs, int be,
+			List<Edit> edits) {
+
+		// common prefix and suffix
+		while (as < ae && bs < be && a[as] == b[bs]) {
+			as++;
+			bs++;
+		}
+		while (as < ae && bs < be && a[ae - 1] == b[be - 1]) {
+			ae--;
+			be--;
+		}
+		if (as == ae && bs == be) {
+			return;
+		}
+		if (as == ae || bs == be || coarse) {
+			edits.add(new Edit(as, ae, bs, be));
+			return;
+		}
+
+		// histogram of the region of A
+		for (int i = ae - 1; i >= as; i--) {
+			int id = a[i];
+			next[i] = head[id];
+			head[id] = i;
+			count[id]++;
+		}
+		steps += ae - as;
+
+		int bestAs = -1, bestAe = -1, bestBs = -1, bestBe = -1;
+		int bestCnt = MAX_CHAIN_LENGTH + 1;
+		int bi = bs;
+		while (bi < be && !spent()) {
+			int id = b[bi];
+			int nextBi = bi + 1;
+			if (id < count.length && count[id] > 0 
+					&& count[id] <= bestCnt) {
+				for (int ai = head[id]; ai >= 0; ai = next[ai]) {
+					int sa = ai, sb = bi, ea = ai + 1, eb = bi + 1;
+					int cnt = count[id];
+					while (sa > as && sb > bs && a[sa - 1] == b[sb - 1]) {
+						sa--;
+						sb--;
+						cnt = Math.min(cnt, count[a[sa]]);
+					}
+					while (ea < ae && eb < be && a[ea] == b[eb]) {
+						cnt = Math.min(cnt, count[a[ea]]);
+						ea++;
+						eb++;
+					}
+					steps += ea - sa;
+					if (cnt < bestCnt || (cnt == bestCnt 
+							&& ea - sa > bestAe - bestAs)) {
+						bestAs = sa;
+						bestAe = ea;
+						bestBs = sb;
+						bestBe = eb;
+						bestCnt = cnt;
+					}
+					nextBi = Math.max(nextBi, eb);
+				}
+			}
+			steps++;
+			bi = nextBi;
+		}
+
+		// clean the histogram for the next region
+		for (int i = as; i < ae; i++) {
+			head[a[i]] = -1;
+			count[a[i]] = 0;
+		}
+
+		if (bestAs < 0 || coarse) {
+			edits.add(new Edit(as, ae, bs, be));
+			return;
+		}
+		push(as, bestAs, bs, bestBs);
+		push(bestAe, ae, bestBe, be);
+	}
+
+	// the comparisons so far are over budget: from now on, the regions
+	// are not split any more
+	private boolean spent() {
+		if (budget > 0 && steps > budget) {
+			coarse = true;
+		}
+		return coarse;
+	}
+
+	// join edits that touch each other
+	private static List<Edit> merge(List<Edit> edits) {
+		if (edits.size() < 2) {
+			return edits;
+		}
+		List<Edit> res = new ArrayList<>(edits.size());
+		Edit last = edits.get(0);
+		for (int i = 1; i < edits.size(); i++) {
+			Edit e = edits.get(i);
+			if (e.beginA == last.endA && e.beginB == last.endB) {
+				last.endA = e.endA;
+				last.endB = e.endB;
+			} else {
+				res.add(last);
+				last = e;
+			}
+		}
+		res.add(last);
+		return res;
+	}
+}
@@ -0,0 +1,157 @@
+package org.hedera.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the blocks of paragraphs that an edit script deletes at one place
+ * and inserts, unchanged, at another, and reports them as moves instead.
+ * A block is the whole deleted region of one edit, found again as a run
+ * of the inserted region of another edit. The rest of the inserted region
+ * is kept as insertions, so that moving a section and touching its
+ * neighbourhood is still recognized.
+ * <p>
+ * Blocks shorter than {@link #MIN_MOVE_BYTES} are left alone: short
+ * paragraphs such as table separators occur everywhere and would only
+ * chop the edits up.
+ * @author tuan
+ */
+public class MoveDetector {
+
+	public static final int MIN_MOVE_BYTES = 32;
+
+	private static final Comparator<Edit> ORDER = new Comparator<Edit>() {
+		@Override
+		public int compare(Edit e1, Edit e2) {
+			return (e1.beginA != e2.beginA) ? Integer.compare(e1.beginA,
+					e2.beginA) : Integer.compare(e1.beginB, e2.beginB);
+		}
+	};
+
+	// deleted regions by their first paragraph: head per id, next per edit
+	private int[] head = new int[0];
+	private int[] next = new int[0];
+	private boolean[] moved = new boolean[0];
+
+	/**
+	 * The edits of a[] into b[] (as given by HistogramDiff over the
+	 * paragraph ids of the hasher), with the moved blocks as moves. The
+	 * list is returned as is when nothing moved
+	 */
+	public List<Edit> detect(int[] a, int[] b, List<Edit> edits,
+			ParagraphHasher hasher) {
+		int n = edits.size();
+		if (n < 2) {
+			return edits;
+		}
+		int maxId = hasher.maxId();
+		if (head.length <= maxId) {
+			head = new int[Math.max(maxId + 1, head.length * 2)];
+			Arrays.fill(head, -1);
+		}
+		if (next.length < n) {
+			next = new int[Math.max(n, next.length * 2)];
+			moved = new boolean[next.length];
+		}
+		for (int k = n - 1; k >= 0; k--) {
+			Edit e = edits.get(k);
+			moved[k] = false;
+			if (e.endA > e.beginA && bytes(a, e.beginA, e.endA, hasher)
+					>= MIN_MOVE_BYTES) {
+				next[k] = head[a[e.beginA]];
+				head[a[e.beginA]] = k;
+			}
+		}
+
+		// the moves, in the order of the edits whose insertions they are
+		List<Edit> moves = null;
+		int[] owner = null;
+		for (int k = 0; k < n; k++) {
+			Edit e = edits.get(k);
+			int j = e.beginB;
+			while (j < e.endB) {
+				int found = -1;
+				for (int c = head[b[j]]; c >= 0; c = next[c]) {
+					Edit from = edits.get(c);
+					int len = from.endA - from.beginA;
+					if (c != k && !moved[c] && j + len <= e.endB
+							&& equals(a, from.beginA, b, j, len)) {
+						found = c;
+						break;
+					}
+				}
+				if (found < 0) {
+					j++;
+					continue;
+				}
+				Edit from = edits.get(found);
+				moved[found] = true;
+				if (moves == null) {
+					moves = new ArrayList<>();
+					owner = new int[n];
+				}
+				if (owner.length <= moves.size()) {
+					owner = Arrays.copyOf(owner, owner.length * 2);
+				}
+				owner[moves.size()] = k;
+				moves.add(Edit.move(from.beginA, from.endA, j));
+				j += from.endA - from.beginA;
+			}
+		}
+
+		// clean the index for the next call
+		for (int k = 0; k < n; k++) {
+			Edit e = edits.get(k);
+			if (e.endA > e.beginA) {
+				head[a[e.beginA]] = -1;
+			}
+		}
+		if (moves == null) {
+			return edits;
+		}
+
+		// cut the insertions around the moved blocks, and drop the moved
+		// deletions
+		List<Edit> res = new ArrayList<>(n + moves.size() * 2);
+		int m = 0;
+		for (int k = 0; k < n; k++) {
+			Edit e = edits.get(k);
+			int beginA = moved[k] ? e.endA : e.beginA;
+			int pos = e.beginB;
+			while (m < moves.size() && owner[m] == k) {
+				Edit mv = moves.get(m++);
+				if (mv.beginB > pos || beginA < e.endA) {
+					res.add(new Edit(beginA, e.endA, pos, mv.beginB));
+				}
+				beginA = e.endA;
+				pos = mv.endB;
+			}
+			if (e.endB > pos || beginA < e.endA) {
+				res.add(new Edit(beginA, e.endA, pos, e.endB));
+			}
+		}
+		res.addAll(moves);
+		Collections.sort(res, ORDER);
+		return res;
+	}
+
+	private static int bytes(int[] ids, int begin, int end,
+			ParagraphHasher hasher) {
+		int len = 0;
+		for (int i = begin; i < end && len < MIN_MOVE_BYTES; i++) {
+			len += hasher.length(ids[i]);
+		}
+		return len;
+	}
+
+	private static boolean equals(int[] a, int aOff, int[] b, int bOff,
+			int len) {
+		for (int i = 0; i < len; i++) {
+			if (a[aOff + i] != b[bOff + i]) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,99 @@
+package org.hedera.diff;
+
+import org.hedera.util.ByteStringInterner;
+
+/**
+ * Splits revision texts into paragraphs and maps every distinct paragraph
+ * to a dense int id, so that revisions can be diffed as int arrays. Equal
+ * ids mean equal bytes: the lookup compares the bytes on a hash match.
+ * Ids are shared by all revisions hashed since the last clear(), and the
+ * bytes of a paragraph are kept only once, however often it occurs.
+ * @author tuan
+ */
+public class ParagraphHasher {
+
+	private ByteStringInterner paragraphs = new ByteStringInterner();
+
+	/**
+	 * Split the text at line breaks. The line break and the white spaces
+	 * that follow it are not part of any paragraph, so blank lines do not
+	 * count as paragraphs
+	 */
+	public void split(byte[] b, int offset, int len, Paragraphs out) {
+		out.clear();
+		int end = offset + len;
+		int i = offset;
+		while (i < end) {
+			int start = i;
+			while (i < end && b[i] != '\n') i++;
+			if (i > start) {
+				out.add(paragraphs.intern(b, start, i - start), start, 
+						i - start);
+			}
+			while (i < end && isSpace(b[i])) i++;
+		}
+	}
+
+	private static boolean isSpace(byte c) {
+		return c == '\n' || c == ' ' || c == '\t' || c == '\r';
+	}
+
+	/** The largest id given so far */
+	public int maxId() {
+		return paragraphs.size();
+	}
+
+	/** The text of a paragraph, decoded at most once */
+	public String paragraph(int id) {
+		return paragraphs.get(id);
+	}
+
+	/** The bytes of the paragraphs: the one of an id is at offset(id) */
+	public byte[] bytes() {
+		return paragraphs.bytes();
+	}
+
+	public int offset(int id) {
+		return paragraphs.offset(id);
+	}
+
+	public int length(int id) {
+		return paragraphs.length(id);
+	}
+
+	/** The bytes kept for all distinct paragraphs */
+	public long memory() {
+		return paragraphs.memory();
+	}
+
+	public void clear() {
+		paragraphs.clear();
+	}
+
+	/**
+	 * Forget every paragraph except those of the given list, whose ids are
+	 * renumbered in place. This bounds the memory on long page histories
+	 */
+	public void compact(Paragraphs keep) {
+		ByteStringInterner kept = new ByteStringInterner();
+		Paragraphs copy = new Paragraphs();
+		copy.copy(keep);
+		keep.clear();
+		for (int i = 0; i < copy.size(); i++) {
+			keep.add(kept.intern(paragraphs, copy.id(i)), copy.start(i),
+					copy.length(i));
+		}
+		paragraphs = kept;
+	}
+
+	/**
+	 * As compact(), but into a new hasher: this one is left as is, for the
+	 * ids that still refer to it
+	 */
+	public ParagraphHasher compacted(Paragraphs keep) {
+		ParagraphHasher res = new ParagraphHasher();
+		res.paragraphs = paragraphs;
+		res.compact(keep);
+		return res;
+	}
+}
@@ -0,0 +1,63 @@
+package org.hedera.diff;
+
+import java.util.Arrays;
+
+/**
+ * The paragraphs of one revision text: their ids, given by a
+ * ParagraphHasher, and their spans in the text. The arrays are re-used
+ * from one revision to the next
+ * @author tuan
+ */
+public class Paragraphs {
+
+	private int[] ids = new int[256];
+	private int[] starts = new int[256];
+	private int[] lengths = new int[256];
+	private int size;
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(int id, int start, int length) {
+		if (size == ids.length) {
+			int n = size * 2;
+			ids = Arrays.copyOf(ids, n);
+			starts = Arrays.copyOf(starts, n);
+			lengths = Arrays.copyOf(lengths, n);
+		}
+		ids[size] = id;
+		starts[size] = start;
+		lengths[size] = length;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** The ids of all paragraphs, valid up to size() */
+	public int[] ids() {
+		return ids;
+	}
+
+	public int id(int i) {
+		return ids[i];
+	}
+
+	public int start(int i) {
+		return starts[i];
+	}
+
+	public int length(int i) {
+		return lengths[i];
+	}
+
+	/** Make this a copy of the other list */
+	public void copy(Paragraphs other) {
+		clear();
+		for (int i = 0; i < other.size; i++) {
+			add(other.ids[i], other.starts[i], other.lengths[i]);
+		}
+	}
+}
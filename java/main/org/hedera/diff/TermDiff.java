@@ -0,0 +1,203 @@
+package org.hedera.diff;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hedera.util.ByteStringInterner;
+
+/**
+ * Two-level diff of consecutive revisions of one page, as term ids: the
+ * paragraphs are aligned by their ids first, and the words are diffed only
+ * inside the regions of changed paragraphs. The cost is then in the size
+ * of the edit rather than in the size of the article. Paragraphs that were
+ * only moved add or remove no term.
+ * <p>
+ * Terms are the runs of non-white-space bytes, interned per page. After
+ * each {@link #next(byte[], int, int)}, {@link #getAdded()} and
+ * {@link #getRemoved()} hold the term ids inserted and deleted by the new
+ * revision; the first revision of a page adds all of its terms. With a
+ * budget (see {@link HistogramDiff#setBudget(long)}), a pair of regions
+ * whose word diff runs out of budget falls back to the difference of their
+ * bags of words, and {@link #isCoarse()} tells so.
+ * @author tuan
+ */
+public class TermDiff {
+
+	// distinct paragraph bytes kept for one page before compaction
+	private static final long MAX_PARAGRAPH_BYTES = 64l * 1024 * 1024;
+
+	private final ParagraphHasher hasher = new ParagraphHasher();
+	private final ByteStringInterner terms = new ByteStringInterner();
+	private final HistogramDiff paragraphDiff = new HistogramDiff();
+	private final HistogramDiff wordDiff = new HistogramDiff();
+	private final MoveDetector moves = new MoveDetector();
+
+	private Paragraphs last = new Paragraphs();
+	private Paragraphs cur = new Paragraphs();
+
+	// the terms of the two regions being diffed
+	private int[] a = new int[256];
+	private int[] b = new int[256];
+	private int[] bag = new int[1024];
+
+	private int[] added = new int[256];
+	private int addedCount;
+	private int[] removed = new int[256];
+	private int removedCount;
+	private boolean coarse;
+
+	/** Bound the cost of both levels of the diff, 0 for no bound */
+	public void setBudget(long budget) {
+		paragraphDiff.setBudget(budget);
+		wordDiff.setBudget(budget);
+	}
+
+	/** Forget the previous revision and the terms */
+	public void newPage() {
+		hasher.clear();
+		terms.clear();
+		last.clear();
+		addedCount = removedCount = 0;
+		coarse = false;
+	}
+
+	/** Diff the text against the one of the previous call */
+	public void next(byte[] text, int offset, int len) {
+		addedCount = removedCount = 0;
+		if (hasher.memory() > MAX_PARAGRAPH_BYTES) {
+			hasher.compact(last);
+		}
+		hasher.split(text, offset, len, cur);
+
+		List<Edit> edits = paragraphDiff.diff(last.ids(), last.size(),
+				cur.ids(), cur.size(), hasher.maxId());
+		coarse = paragraphDiff.isCoarse();
+		edits = moves.detect(last.ids(), cur.ids(), edits, hasher);
+		for (Edit e : edits) {
+			if (e.getType() == Edit.Type.MOVE) {
+				continue;
+			}
+			int n = 0;
+			for (int i = e.getBeginA(); i < e.getEndA(); i++) {
+				n = tokenize(last.id(i), n, true);
+			}
+			int m = 0;
+			for (int i = e.getBeginB(); i < e.getEndB(); i++) {
+				m = tokenize(cur.id(i), m, false);
+			}
+			diffWords(n, m);
+		}
+
+		Paragraphs tmp = last;
+		last = cur;
+		cur = tmp;
+	}
+
+	// append the terms of the paragraph to a (or b), from position pos
+	private int tokenize(int paragraph, int pos, boolean old) {
+		byte[] bytes = hasher.bytes();
+		int end = hasher.offset(paragraph) + hasher.length(paragraph);
+		int i = hasher.offset(paragraph);
+		while (i < end) {
+			while (i < end && isSpace(bytes[i])) i++;
+			int start = i;
+			while (i < end && !isSpace(bytes[i])) i++;
+			if (i > start) {
+				int id = terms.intern(bytes, start, i - start);
+				if (old) {
+					a = ensure(a, pos + 1);
+					a[pos++] = id;
+				} else {
+					b = ensure(b, pos + 1);
+					b[pos++] = id;
+				}
+			}
+		}
+		return pos;
+	}
+
+	// as in String.split("\\s+")
+	private static boolean isSpace(byte c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f'
+				|| c == 0x0B;
+	}
+
+	private void diffWords(int n, int m) {
+		if (n == 0 || m == 0) {
+			for (int i = 0; i < n; i++) remove(a[i]);
+			for (int i = 0; i < m; i++) add(b[i]);
+			return;
+		}
+		List<Edit> edits = wordDiff.diff(a, n, b, m, terms.size());
+		if (!wordDiff.isCoarse()) {
+			for (Edit e : edits) {
+				for (int i = e.getBeginA(); i < e.getEndA(); i++) remove(a[i]);
+				for (int i = e.getBeginB(); i < e.getEndB(); i++) add(b[i]);
+			}
+			return;
+		}
+
+		// out of budget: the difference of the two bags
+		coarse = true;
+		bag = ensure(bag, terms.size() + 1);
+		for (int i = 0; i < n; i++) bag[a[i]]++;
+		for (int i = 0; i < m; i++) {
+			if (bag[b[i]] > 0) {
+				bag[b[i]]--;
+			} else {
+				add(b[i]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			if (bag[a[i]] > 0) {
+				bag[a[i]]--;
+				remove(a[i]);
+			}
+		}
+	}
+
+	private void add(int term) {
+		added = ensure(added, addedCount + 1);
+		added[addedCount++] = term;
+	}
+
+	private void remove(int term) {
+		removed = ensure(removed, removedCount + 1);
+		removed[removedCount++] = term;
+	}
+
+	private static int[] ensure(int[] x, int len) {
+		return (x.length >= len) ? x : Arrays.copyOf(x, Math.max(len,
+				x.length * 2));
+	}
+
+	/** The ids of the terms inserted by the last revision. Only the first
+	 * {@link #getAddedCount()} are valid */
+	public int[] getAdded() {
+		return added;
+	}
+
+	public int getAddedCount() {
+		return addedCount;
+	}
+
+	/** The ids of the terms deleted by the last revision. Only the first
+	 * {@link #getRemovedCount()} are valid */
+	public int[] getRemoved() {
+		return removed;
+	}
+
+	public int getRemovedCount() {
+		return removedCount;
+	}
+
+	/** The term of an id, decoded at most once per page */
+	public String term(int id) {
+		return terms.get(id);
+	}
+
+	/** Whether some region of the last revision was diffed as a bag */
+	public boolean isCoarse() {
+		return coarse;
+	}
+}
@@ -0,0 +1,225 @@
+package org.hedera.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+import org.hedera.diff.Edit;
+
+/**
+ * The diff between a revision and its predecessor, in a compact form that
+ * replaces RevisionDiff. The deltas are a stream of variable-length ints:
+ * <pre>
+ * [type] [position in old] [#old lines] [position in new] [#new lines]
+ * [length of each old line] [length of each new line]
+ * </pre>
+ * and the UTF-8 bytes of all the lines follow each other in one payload.
+ * The deltas are read back with a re-used {@link DeltaCursor}, which does
+ * not allocate anything. A coarse diff is correct but not minimal: the
+ * diff ran out of budget and replaced some regions as a whole.
+ * @author tuan
+ */
+public class CompactRevisionDiff extends RevisionHeader {
+
+	// the type codes are those of RevisionDiff. A move has no lines: the
+	// lines at the old position are those at the new one
+	public static final byte DELETE = 0;
+	public static final byte INSERT = 1;
+	public static final byte CHANGE = 2;
+	public static final byte MOVE = 3;
+
+	private int deltaCount;
+	private boolean coarse;
+	private final DataOutputBuffer ops = new DataOutputBuffer();
+	private final DataOutputBuffer payload = new DataOutputBuffer();
+
+	private final DeltaCursor cursor = new DeltaCursor();
+
+	public static byte typeOf(Edit.Type type) {
+		switch (type) {
+		case DELETE: return DELETE;
+		case INSERT: return INSERT;
+		case MOVE: return MOVE;
+		default: return CHANGE;
+		}
+	}
+
+	/** Start a new delta, to be followed by its lines: first the old,
+	 * then the new ones. Moves have no lines */
+	public void addDelta(byte type, int posA, int lenA, int posB, int lenB)
+			throws IOException {
+		WritableUtils.writeVInt(ops, type);
+		WritableUtils.writeVInt(ops, posA);
+		WritableUtils.writeVInt(ops, lenA);
+		WritableUtils.writeVInt(ops, posB);
+		WritableUtils.writeVInt(ops, lenB);
+		deltaCount++;
+	}
+
+	public void addLine(byte[] b, int offset, int len) throws IOException {
+		WritableUtils.writeVInt(ops, len);
+		payload.write(b, offset, len);
+	}
+
+	public void addLine(String line) throws IOException {
+		byte[] b = line.getBytes(StandardCharsets.UTF_8);
+		addLine(b, 0, b.length);
+	}
+
+	public int getDeltaCount() {
+		return deltaCount;
+	}
+
+	public boolean isCoarse() {
+		return coarse;
+	}
+
+	public void setCoarse(boolean coarse) {
+		this.coarse = coarse;
+	}
+
+	/** The cursor over the deltas, rewound to the first one. There is only
+	 * one cursor per object */
+	public DeltaCursor deltas() {
+		cursor.rewind();
+		return cursor;
+	}
+
+	/** Forget the deltas, but keep the header */
+	public void clearDeltas() {
+		deltaCount = 0;
+		coarse = false;
+		ops.reset();
+		payload.reset();
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		clearDeltas();
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		super.readFields(in);
+		coarse = in.readBoolean();
+		deltaCount = WritableUtils.readVInt(in);
+		ops.reset();
+		ops.write(in, WritableUtils.readVInt(in));
+		payload.reset();
+		payload.write(in, WritableUtils.readVInt(in));
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+		out.writeBoolean(coarse);
+		WritableUtils.writeVInt(out, deltaCount);
+		WritableUtils.writeVInt(out, ops.getLength());
+		out.write(ops.getData(), 0, ops.getLength());
+		WritableUtils.writeVInt(out, payload.getLength());
+		out.write(payload.getData(), 0, payload.getLength());
+	}
+
+	/**
+	 * Iterates over the deltas with next(), and over the lines of the
+	 * current delta with nextLine(). Lines not visited are skipped
+	 */
+	public class DeltaCursor {
+
+		private final DataInputBuffer in = new DataInputBuffer();
+		private int deltasLeft;
+		private int payloadPos;
+
+		private byte type;
+		private int posA, lenA, posB, lenB;
+		private int linesLeft;
+
+		private int lineOffset;
+		private int lineLength;
+		private boolean oldLine;
+
+		private void rewind() {
+			in.reset(ops.getData(), 0, ops.getLength());
+			deltasLeft = deltaCount;
+			payloadPos = 0;
+			linesLeft = 0;
+		}
+
+		public boolean next() throws IOException {
+			while (linesLeft > 0) {
+				nextLine();
+			}
+			if (deltasLeft == 0) {
+				return false;
+			}
+			deltasLeft--;
+			type = (byte) WritableUtils.readVInt(in);
+			posA = WritableUtils.readVInt(in);
+			lenA = WritableUtils.readVInt(in);
+			posB = WritableUtils.readVInt(in);
+			lenB = WritableUtils.readVInt(in);
+			linesLeft = (type == MOVE) ? 0 : lenA + lenB;
+			return true;
+		}
+
+		public boolean nextLine() throws IOException {
+			if (linesLeft == 0) {
+				return false;
+			}
+			oldLine = linesLeft > lenB;
+			linesLeft--;
+			lineLength = WritableUtils.readVInt(in);
+			lineOffset = payloadPos;
+			payloadPos += lineLength;
+			return true;
+		}
+
+		public byte getType() {
+			return type;
+		}
+
+		public int getPositionA() {
+			return posA;
+		}
+
+		public int getLengthA() {
+			return lenA;
+		}
+
+		public int getPositionB() {
+			return posB;
+		}
+
+		public int getLengthB() {
+			return lenB;
+		}
+
+		/** Whether the current line is one of the old revision */
+		public boolean isOldLine() {
+			return oldLine;
+		}
+
+		/** The bytes of all lines; the current one is at getLineOffset() */
+		public byte[] getPayload() {
+			return payload.getData();
+		}
+
+		public int getLineOffset() {
+			return lineOffset;
+		}
+
+		public int getLineLength() {
+			return lineLength;
+		}
+
+		public String getLine() {
+			return new String(payload.getData(), lineOffset, lineLength,
+					StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package org.hedera.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.Writable;
+
+/**
+ * The lifetime of one link of a page: the revision that added the link
+ * (target and anchor text) and the first later revision that no longer
+ * has it. A link still present in the last revision read of the page has
+ * no removal, i.e. removedAt and removedIn are -1. A link that is removed
+ * and added again gets one interval per stretch
+ * @author tuan
+ */
+public class LinkInterval implements Writable {
+
+	private long pageId;
+	private String pageTitle;
+	private String target;
+	private String anchor;
+
+	// timestamps and revision ids
+	private long addedAt;
+	private long addedIn;
+	private long removedAt = -1;
+	private long removedIn = -1;
+
+	public long getPageId() {
+		return pageId;
+	}
+	public void setPageId(long pageId) {
+		this.pageId = pageId;
+	}
+	public String getPageTitle() {
+		return pageTitle;
+	}
+	public void setPageTitle(String pageTitle) {
+		this.pageTitle = pageTitle;
+	}
+	public String getTarget() {
+		return target;
+	}
+	public void setTarget(String target) {
+		this.target = target;
+	}
+	public String getAnchorText() {
+		return anchor;
+	}
+	public void setAnchorText(String anchor) {
+		this.anchor = anchor;
+	}
+	public long getAddedAt() {
+		return addedAt;
+	}
+	public long getAddedIn() {
+		return addedIn;
+	}
+	public void setAdded(long timestamp, long revisionId) {
+		this.addedAt = timestamp;
+		this.addedIn = revisionId;
+	}
+	public long getRemovedAt() {
+		return removedAt;
+	}
+	public long getRemovedIn() {
+		return removedIn;
+	}
+	public void setRemoved(long timestamp, long revisionId) {
+		this.removedAt = timestamp;
+		this.removedIn = revisionId;
+	}
+	public boolean isOpen() {
+		return removedIn < 0;
+	}
+
+	public void clear() {
+		pageId = addedAt = addedIn = 0;
+		removedAt = removedIn = -1;
+		pageTitle = target = anchor = null;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		pageId = in.readLong();
+		pageTitle = in.readUTF();
+		target = readString(in);
+		anchor = readString(in);
+		addedAt = in.readLong();
+		addedIn = in.readLong();
+		removedAt = in.readLong();
+		removedIn = in.readLong();
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(pageId);
+		out.writeUTF(pageTitle);
+		writeString(out, target);
+		writeString(out, anchor);
+		out.writeLong(addedAt);
+		out.writeLong(addedIn);
+		out.writeLong(removedAt);
+		out.writeLong(removedIn);
+	}
+
+	// anchors can be longer than writeUTF() allows
+	private static String readString(DataInput in) throws IOException {
+		byte[] b = new byte[in.readInt()];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutput out, String s)
+			throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[page: %d, target: %s, anchor: %s, added: %d, "
+				+ "removed: %d]", pageId, target, anchor, addedIn, removedIn);
+	}
+}
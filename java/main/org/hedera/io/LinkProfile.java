@@ -6,16 +6,29 @@ package org.hedera.io;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.apache.hadoop.io.DataOutputBuffer;
+
 /**
- * This object represents the outlink profile of a Wikipedia page at a specific moment
+ * This object represents the outlink profile of a Wikipedia page at a specific moment.
+ * The links are kept as UTF-8 bytes, and decoded to Link objects only by
+ * getLinks()
  * @author tuan
  *
  */
 public class LinkProfile extends RevisionHeader {
 
+	// the bytes of all anchors and targets, and per link the offset and
+	// length of its anchor, then of its target
+	private final DataOutputBuffer linkBytes = new DataOutputBuffer();
+	private int[] spans = new int[4 * 16];
+	private int linkCount;
+
+	// decoded on demand
 	private List<Link> links; 
 
 	public static class Link {
@@ -75,57 +88,94 @@ public class LinkProfile extends RevisionHeader {
 		}
 	}
 
+	/** The links, decoded at the first call. Null if there is none */
 	public List<Link> getLinks() {
+		if (links == null && linkCount > 0) {
+			links = new LinkedList<>();
+			byte[] b = linkBytes.getData();
+			for (int i = 0; i < linkCount; i++) {
+				int k = 4 * i;
+				links.add(new Link(
+						new String(b, spans[k], spans[k + 1], StandardCharsets.UTF_8),
+						new String(b, spans[k + 2], spans[k + 3], StandardCharsets.UTF_8)));
+			}
+		}
 		return links;
 	}
 
-	public void addLink(Link l) {
-		if (links == null) {
-			links = new LinkedList<>();
+	public int getLinkCount() {
+		return linkCount;
+	}
+
+	public void addLink(Link l) throws IOException {
+		byte[] anchor = l.anchor.getBytes(StandardCharsets.UTF_8);
+		byte[] target = l.target.getBytes(StandardCharsets.UTF_8);
+		addLink(target, 0, target.length, anchor, 0, anchor.length);
+	}
+
+	/** Add a link from the bytes of its target and anchor text */
+	public void addLink(byte[] b, int targetOffset, int targetLen, 
+			int anchorOffset, int anchorLen) throws IOException {
+		addLink(b, targetOffset, targetLen, b, anchorOffset, anchorLen);
+	}
+
+	private void addLink(byte[] t, int targetOffset, int targetLen, byte[] a,
+			int anchorOffset, int anchorLen) throws IOException {
+		if (spans.length < 4 * (linkCount + 1)) {
+			spans = Arrays.copyOf(spans, spans.length * 2);
 		}
-		links.add(l);
+		int k = 4 * linkCount++;
+		spans[k] = linkBytes.getLength();
+		spans[k + 1] = anchorLen;
+		linkBytes.write(a, anchorOffset, anchorLen);
+		spans[k + 2] = linkBytes.getLength();
+		spans[k + 3] = targetLen;
+		linkBytes.write(t, targetOffset, targetLen);
+		links = null;
 	}
 
 	@Override
 	public void readFields(DataInput in) throws IOException {
 		super.readFields(in);
+		clearLinks();
 		int len = in.readInt();
 		for (int i = 0; i < len; i++) {
-			int anchorLen = in.readInt();
-			byte[] anchorBytes = new byte[anchorLen];
-			in.readFully(anchorBytes, 0, anchorLen);
-			String anchor = new String(anchorBytes, "UTF-8");
-
-			int textLen = in.readInt();
-			byte[] textBytes = new byte[textLen];
-			in.readFully(textBytes, 0, textLen);
-			String text = new String(textBytes, "UTF-8");
-
-			Link l = new Link(anchor, text);
-			addLink(l);
+			if (spans.length < 4 * (linkCount + 1)) {
+				spans = Arrays.copyOf(spans, spans.length * 2);
+			}
+			int k = 4 * linkCount++;
+			spans[k] = linkBytes.getLength();
+			spans[k + 1] = in.readInt();
+			linkBytes.write(in, spans[k + 1]);
+			spans[k + 2] = linkBytes.getLength();
+			spans[k + 3] = in.readInt();
+			linkBytes.write(in, spans[k + 3]);
 		}
 	}
 
 	@Override
 	public void write(DataOutput out) throws IOException {
 		super.write(out);
-		if (links == null)
-			out.writeInt(0);
-		else
-			out.writeInt(links.size());
-		for (Link l : links) {
-			byte[] bytes = l.anchor.getBytes("UTF-8");
-			out.writeInt(bytes.length);
-			out.write(bytes, 0, bytes.length);
-			bytes = l.target.getBytes("UTF-8");
-			out.writeInt(bytes.length);
-			out.write(bytes, 0, bytes.length);
+		out.writeInt(linkCount);
+		byte[] b = linkBytes.getData();
+		for (int i = 0; i < linkCount; i++) {
+			int k = 4 * i;
+			out.writeInt(spans[k + 1]);
+			out.write(b, spans[k], spans[k + 1]);
+			out.writeInt(spans[k + 3]);
+			out.write(b, spans[k + 2], spans[k + 3]);
 		}
 	}
 
 	@Override
 	public void clear() {
 		super.clear();
+		clearLinks();
+	}
+
+	private void clearLinks() {
+		linkBytes.reset();
+		linkCount = 0;
 		this.links = null;
 	}
 }
@@ -18,7 +18,7 @@ import difflib.InsertDelta;
 /**
  * A writable object that represents diff between two Wikipedia revisions
  * @author tuan
- * @deprecated this object is too cumbersome. Use RevisionDiff instead
+ * @deprecated this object is too cumbersome. Use {@link CompactRevisionDiff} instead
  */
 @Deprecated
 public class RevisionDiff extends RevisionHeader {
@@ -5,6 +5,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 
 /** a wikipedia header that provides APIs to access revision meta-data */
 public class RevisionHeader implements Writable, 
@@ -18,6 +19,49 @@ public class RevisionHeader implements Writable,
 	private int namespace;
 	private int length;
 	private boolean minor = false;
+
+	// sha1 of the text as given in the dump (null if absent), and a 64-bit
+	// hash identifying the text: the hash of the sha1 when available,
+	// otherwise of the text bytes
+	private String sha1;
+	private long textHash;
+
+	// id of an earlier revision of the same page with identical text
+	// (an identity revert), or 0
+	private long revertOf;
+
+	// SimHash fingerprint of the words of the text, or 0 if not computed
+	private long simHash;
+
+	// the contributor: user name, or the IP address of anonymous edits,
+	// null if not read or deleted. The user id is -1 for anonymous edits.
+	// The key is the contributor interned by the reader, valid only within
+	// one task, and is not serialized
+	private String user;
+	private long userId = -1;
+	private int userKey;
+
+	private String comment;
+
+	// similarity to the previous revision read of the page, from the
+	// paragraph hashes of both texts (see RevisionMetrics): the change of
+	// the text length in bytes, the Jaccard index of the paragraphs, and the
+	// share of paragraph bytes that changed. -1 if not computed
+	private int lengthDelta;
+	private float jaccard = -1;
+	private float editRatio = -1;
+
+	// the optional fields that a serialized header carries, as a vint bit
+	// mask after the page title. Absent fields take their default values
+	private static final int HAS_SHA1 = 1;
+	private static final int HAS_TEXT_HASH = 2;
+	private static final int HAS_USER = 4;
+	private static final int HAS_USER_ID = 8;
+	private static final int HAS_COMMENT = 16;
+	private static final int HAS_REVERT = 32;
+	private static final int HAS_SIMHASH = 64;
+	private static final int HAS_METRICS = 128;
+	private static final int IS_MINOR = 256;
 		
 	public boolean isMinor() {
 		return minor;
@@ -67,12 +111,98 @@ public class RevisionHeader implements Writable,
 	public void setLength(int length) {
 		this.length = length;
 	}
+	public String getSha1() {
+		return sha1;
+	}
+	public void setSha1(String sha1) {
+		this.sha1 = sha1;
+	}
+	public long getTextHash() {
+		return textHash;
+	}
+	public void setTextHash(long textHash) {
+		this.textHash = textHash;
+	}
+	public long getRevertOf() {
+		return revertOf;
+	}
+	public void setRevertOf(long revertOf) {
+		this.revertOf = revertOf;
+	}
+	public boolean isRevert() {
+		return revertOf != 0;
+	}
+	public long getSimHash() {
+		return simHash;
+	}
+	public void setSimHash(long simHash) {
+		this.simHash = simHash;
+	}
+	public String getUser() {
+		return user;
+	}
+	public void setUser(String user) {
+		this.user = user;
+	}
+	public long getUserId() {
+		return userId;
+	}
+	public void setUserId(long userId) {
+		this.userId = userId;
+	}
+	public boolean isAnonymous() {
+		return user != null && userId < 0;
+	}
+	public int getUserKey() {
+		return userKey;
+	}
+	public void setUserKey(int userKey) {
+		this.userKey = userKey;
+	}
+	public String getComment() {
+		return comment;
+	}
+	public void setComment(String comment) {
+		this.comment = comment;
+	}
+	public int getLengthDelta() {
+		return lengthDelta;
+	}
+	public void setLengthDelta(int lengthDelta) {
+		this.lengthDelta = lengthDelta;
+	}
+	public float getJaccard() {
+		return jaccard;
+	}
+	public void setJaccard(float jaccard) {
+		this.jaccard = jaccard;
+	}
+	public float getEditRatio() {
+		return editRatio;
+	}
+	public void setEditRatio(float editRatio) {
+		this.editRatio = editRatio;
+	}
 	
 	public void clear() {
 		this.pageId = this.revisionId = this.parentId 
 				= this.timestamp = this.length = 0;
 		this.namespace = 0;
+		this.minor = false;
 		this.pageTitle = null;
+		this.sha1 = null;
+		this.textHash = this.revertOf = this.simHash = 0;
+		this.lengthDelta = 0;
+		this.jaccard = this.editRatio = -1;
+		clearContributor();
+	}
+
+	/** Forget the contributor and comment of the previous revision */
+	public void clearContributor() {
+		this.user = null;
+		this.userId = -1;
+		this.userKey = 0;
+		this.comment = null;
 	}
 	
 	@Override
@@ -84,6 +214,18 @@ public class RevisionHeader implements Writable,
 		this.parentId = obj.parentId;
 		this.revisionId = obj.revisionId;
 		this.timestamp = obj.timestamp;
+		this.minor = obj.minor;
+		this.sha1 = obj.sha1;
+		this.textHash = obj.textHash;
+		this.revertOf = obj.revertOf;
+		this.simHash = obj.simHash;
+		this.user = obj.user;
+		this.userId = obj.userId;
+		this.userKey = obj.userKey;
+		this.comment = obj.comment;
+		this.lengthDelta = obj.lengthDelta;
+		this.jaccard = obj.jaccard;
+		this.editRatio = obj.editRatio;
 	}
 	
 	@Override
@@ -102,6 +244,24 @@ public class RevisionHeader implements Writable,
 		namespace = in.readInt();
 		length = in.readInt();
 		pageTitle = in.readUTF();
+		int fields = WritableUtils.readVInt(in);
+		minor = (fields & IS_MINOR) != 0;
+		sha1 = ((fields & HAS_SHA1) != 0) ? in.readUTF() : null;
+		textHash = ((fields & HAS_TEXT_HASH) != 0) ? in.readLong() : 0;
+		user = ((fields & HAS_USER) != 0) ? in.readUTF() : null;
+		userId = ((fields & HAS_USER_ID) != 0) ? in.readLong() : -1;
+		comment = ((fields & HAS_COMMENT) != 0) ? in.readUTF() : null;
+		userKey = 0;
+		revertOf = ((fields & HAS_REVERT) != 0) ? in.readLong() : 0;
+		simHash = ((fields & HAS_SIMHASH) != 0) ? in.readLong() : 0;
+		if ((fields & HAS_METRICS) != 0) {
+			lengthDelta = in.readInt();
+			jaccard = in.readFloat();
+			editRatio = in.readFloat();
+		} else {
+			lengthDelta = 0;
+			jaccard = editRatio = -1;
+		}
 	}
 	@Override
 	public void write(DataOutput out) throws IOException {
@@ -111,7 +271,30 @@ public class RevisionHeader implements Writable,
 		out.writeLong(timestamp);
 		out.writeInt(namespace);
 		out.writeInt(length);
-		out.writeUTF(pageTitle);		
+		out.writeUTF(pageTitle);
+		boolean hasMetrics = lengthDelta != 0 || jaccard != -1 
+				|| editRatio != -1;
+		WritableUtils.writeVInt(out, (sha1 != null ? HAS_SHA1 : 0)
+				| (textHash != 0 ? HAS_TEXT_HASH : 0)
+				| (user != null ? HAS_USER : 0)
+				| (userId != -1 ? HAS_USER_ID : 0)
+				| (comment != null ? HAS_COMMENT : 0)
+				| (revertOf != 0 ? HAS_REVERT : 0)
+				| (simHash != 0 ? HAS_SIMHASH : 0)
+				| (hasMetrics ? HAS_METRICS : 0)
+				| (minor ? IS_MINOR : 0));
+		if (sha1 != null) out.writeUTF(sha1);
+		if (textHash != 0) out.writeLong(textHash);
+		if (user != null) out.writeUTF(user);
+		if (userId != -1) out.writeLong(userId);
+		if (comment != null) out.writeUTF(comment);
+		if (revertOf != 0) out.writeLong(revertOf);
+		if (simHash != 0) out.writeLong(simHash);
+		if (hasMetrics) {
+			out.writeInt(lengthDelta);
+			out.writeFloat(jaccard);
+			out.writeFloat(editRatio);
+		}
 	}
 	
 	@Override
@@ -0,0 +1,168 @@
+package org.hedera.io.checkpoint;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapred.InvalidJobConfException;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A SequenceFileOutputFormat for map-only jobs whose readers take
+ * checkpoints (see SplitCheckpoint). The output of a task is written in
+ * segments: at each checkpoint, the current segment is closed and moved to
+ * the side directory of the task, where it survives the failure of the
+ * attempt. The attempt that finishes the split moves all segments back
+ * into its work directory when it closes, so they are committed together
+ * with the rest of its output by the output committer, or not at all.
+ *
+ * With map output going to reducers, a failed attempt loses its output
+ * anyway, so the readers only take checkpoints when this format is used.
+ *
+ * All attempts of a task share its side directory, so two attempts must
+ * never run at the same time: the job is rejected when speculative
+ * execution of the maps is on.
+ * @author tuan
+ */
+public class CheckpointOutputFormat<K, V> extends SequenceFileOutputFormat<K, V> {
+
+	private static final Logger LOG = 
+			Logger.getLogger(CheckpointOutputFormat.class);
+
+	// the writers of the running attempts, found by their readers
+	private static final Map<TaskAttemptID, SegmentWriter<?, ?>> WRITERS =
+			new ConcurrentHashMap<TaskAttemptID, SegmentWriter<?, ?>>();
+
+	/** The writer of the attempt, or null if it does not use this format */
+	public static SegmentWriter<?, ?> getWriter(TaskAttemptID id) {
+		return WRITERS.get(id);
+	}
+
+	@Override
+	public void checkOutputSpecs(JobContext job) throws IOException {
+		super.checkOutputSpecs(job);
+		Configuration conf = job.getConfiguration();
+		if (conf.get(SplitCheckpoint.CHECKPOINT_DIR_OPT) != null
+				&& conf.getBoolean(MRJobConfig.MAP_SPECULATIVE, true)) {
+			throw new InvalidJobConfException("Checkpoints do not work with "
+					+ "speculative attempts, set " + MRJobConfig.MAP_SPECULATIVE 
+					+ " to false or unset " + SplitCheckpoint.CHECKPOINT_DIR_OPT);
+		}
+	}
+
+	@Override
+	public RecordWriter<K, V> getRecordWriter(TaskAttemptContext tac)
+			throws IOException, InterruptedException {
+		Path dir = SplitCheckpoint.taskDir(tac);
+		if (dir == null) {
+			return super.getRecordWriter(tac);
+		}
+		SegmentWriter<K, V> w = new SegmentWriter<K, V>(this, tac, dir);
+		WRITERS.put(tac.getTaskAttemptID(), w);
+		return w;
+	}
+
+	public static class SegmentWriter<KEY, VALUE> 
+			extends RecordWriter<KEY, VALUE> {
+
+		private final CheckpointOutputFormat<KEY, VALUE> format;
+		private final TaskAttemptContext tac;
+		private final FileSystem fs;
+		private final Path dir;
+
+		// index of the current segment = number of finished segments
+		private int next;
+		private Path file;
+		private SequenceFile.Writer out;
+
+		private SegmentWriter(CheckpointOutputFormat<KEY, VALUE> format,
+				TaskAttemptContext tac, Path dir) throws IOException {
+			this.format = format;
+			this.tac = tac;
+			this.dir = dir;
+			this.fs = dir.getFileSystem(tac.getConfiguration());
+			SplitCheckpoint cp = SplitCheckpoint.load(fs, dir);
+			next = (cp == null) ? 0 : cp.getSegments();
+
+			// drop what a previous attempt wrote after its last checkpoint
+			if (cp == null) {
+				fs.delete(dir, true);
+			} else {
+				for (FileStatus st : fs.listStatus(dir)) {
+					String name = st.getPath().getName();
+					if (name.startsWith("segment-") && Integer.parseInt(
+							name.substring("segment-".length())) >= next) {
+						fs.delete(st.getPath(), false);
+					}
+				}
+				LOG.info("Resuming the output after segment " + next);
+			}
+			open();
+		}
+
+		private void open() throws IOException {
+			Configuration conf = tac.getConfiguration();
+			CompressionCodec codec = null;
+			CompressionType type = CompressionType.NONE;
+			if (getCompressOutput(tac)) {
+				type = getOutputCompressionType(tac);
+				codec = ReflectionUtils.newInstance(
+						getOutputCompressorClass(tac, DefaultCodec.class), conf);
+			}
+			file = format.getDefaultWorkFile(tac, "-" + next);
+			out = SequenceFile.createWriter(conf, 
+					SequenceFile.Writer.file(file),
+					SequenceFile.Writer.keyClass(tac.getOutputKeyClass()),
+					SequenceFile.Writer.valueClass(tac.getOutputValueClass()),
+					SequenceFile.Writer.compression(type, codec));
+		}
+
+		@Override
+		public void write(KEY key, VALUE value) throws IOException {
+			out.append(key, value);
+		}
+
+		/** Close the current segment and move it to the side directory.
+		 * Return the number of finished segments */
+		public int roll() throws IOException {
+			out.close();
+			fs.mkdirs(dir);
+			if (!fs.rename(file, SplitCheckpoint.segment(dir, next))) {
+				throw new IOException("Cannot move the segment " + file);
+			}
+			next++;
+			open();
+			return next;
+		}
+
+		@Override
+		public void close(TaskAttemptContext context) throws IOException {
+			out.close();
+			WRITERS.remove(tac.getTaskAttemptID());
+			for (int i = 0; i < next; i++) {
+				Path seg = SplitCheckpoint.segment(dir, i);
+				if (!fs.rename(seg, format.getDefaultWorkFile(tac, "-" + i))) {
+					throw new IOException("Cannot move back the segment " + seg);
+				}
+			}
+
+			// the split is done: a retry of a failed commit starts over
+			fs.delete(dir, true);
+		}
+	}
+}
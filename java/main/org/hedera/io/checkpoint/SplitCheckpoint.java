@@ -0,0 +1,120 @@
+package org.hedera.io.checkpoint;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+/**
+ * A checkpoint of a task inside its split: the stream offset right after
+ * the last completed page, the number of records emitted until then, and
+ * the number of output segments that hold these records (see
+ * CheckpointOutputFormat). Checkpoints live in a side directory per task,
+ * shared by all attempts of the task, so that a retried attempt can resume
+ * from the last one. For the same reason, the maps must not run
+ * speculatively (see CheckpointOutputFormat.checkOutputSpecs).
+ *
+ * A checkpoint is only valid if all its segments exist; otherwise the
+ * attempt starts over from the split start.
+ * @author tuan
+ */
+public class SplitCheckpoint {
+
+	/** Side directory of the checkpoints; checkpointing is off if not set */
+	public static final String CHECKPOINT_DIR_OPT = 
+			"org.hedera.io.checkpoint.dir";
+
+	/** Number of input bytes between two checkpoints */
+	public static final String CHECKPOINT_INTERVAL_OPT = 
+			"org.hedera.io.checkpoint.interval";
+
+	public static final long DEFAULT_CHECKPOINT_INTERVAL = 268435456l;
+
+	private static final String FILE = "checkpoint";
+	private static final String TMP_FILE = "checkpoint.tmp";
+
+	private final long offset;
+	private final long records;
+	private final int segments;
+
+	public SplitCheckpoint(long offset, long records, int segments) {
+		this.offset = offset;
+		this.records = records;
+		this.segments = segments;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public int getSegments() {
+		return segments;
+	}
+
+	/** The side directory of the task, or null when checkpointing is off */
+	public static Path taskDir(TaskAttemptContext tac) {
+		String dir = tac.getConfiguration().get(CHECKPOINT_DIR_OPT);
+		return (dir == null) ? null 
+				: new Path(dir, tac.getTaskAttemptID().getTaskID().toString());
+	}
+
+	/** A finished output segment of the task */
+	public static Path segment(Path taskDir, int i) {
+		return new Path(taskDir, "segment-" + i);
+	}
+
+	/** The last valid checkpoint of the task, or null */
+	public static SplitCheckpoint load(FileSystem fs, Path taskDir) 
+			throws IOException {
+		Path p = new Path(taskDir, FILE);
+
+		// the attempt died while replacing the checkpoint
+		if (!fs.exists(p)) {
+			p = new Path(taskDir, TMP_FILE);
+			if (!fs.exists(p)) {
+				return null;
+			}
+		}
+		SplitCheckpoint cp;
+		try (FSDataInputStream in = fs.open(p)) {
+			cp = new SplitCheckpoint(in.readLong(), in.readLong(), in.readInt());
+		} catch (EOFException e) {
+			return null;
+		}
+		for (int i = 0; i < cp.segments; i++) {
+			if (!fs.exists(segment(taskDir, i))) {
+				return null;
+			}
+		}
+		return cp;
+	}
+
+	/** Replace the checkpoint of the task */
+	public void save(FileSystem fs, Path taskDir) throws IOException {
+		Path tmp = new Path(taskDir, TMP_FILE);
+		try (FSDataOutputStream out = fs.create(tmp, true)) {
+			out.writeLong(offset);
+			out.writeLong(records);
+			out.writeInt(segments);
+		}
+		Path p = new Path(taskDir, FILE);
+		fs.delete(p, false);
+		if (!fs.rename(tmp, p)) {
+			throw new IOException("Cannot save the checkpoint " + p);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "[offset: " + offset + ", records: " + records 
+				+ ", segments: " + segments + "]";
+	}
+}
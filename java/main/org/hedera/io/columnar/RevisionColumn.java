@@ -0,0 +1,76 @@
+package org.hedera.io.columnar;
+
+import java.util.EnumSet;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * The columns of the columnar revision store. Numeric columns are
+ * delta-encoded inside one chunk and carry min / max statistics, string
+ * and text columns are stored as length-prefixed UTF-8 bytes
+ * @author tuan
+ */
+public enum RevisionColumn {
+
+	PAGE_ID(true),
+	REVISION_ID(true),
+	PARENT_ID(true),
+	TIMESTAMP(true),
+	NAMESPACE(true),
+	LENGTH(true),
+	MINOR(true),
+	TITLE(false),
+	USER(false),
+	USER_ID(true),
+	COMMENT(false),
+	TEXT(false);
+
+	/** Comma-separated list of column names to be read by the input format */
+	public static final String COLUMNS_OPT = "org.hedera.io.columnar.columns";
+
+	/** The columns a header-only job needs */
+	public static final EnumSet<RevisionColumn> HEADER = EnumSet.of(PAGE_ID,
+			REVISION_ID, PARENT_ID, TIMESTAMP, NAMESPACE, LENGTH, MINOR, TITLE);
+
+	private final boolean numeric;
+
+	private RevisionColumn(boolean numeric) {
+		this.numeric = numeric;
+	}
+
+	public boolean isNumeric() {
+		return numeric;
+	}
+
+	public static RevisionColumn byId(int id) {
+		RevisionColumn[] cols = values();
+		if (id < 0 || id >= cols.length) {
+			throw new IllegalArgumentException("Unknown column id: " + id);
+		}
+		return cols[id];
+	}
+
+	/** Register the columns to be read in the job configuration */
+	public static void setColumns(Configuration conf,
+			EnumSet<RevisionColumn> columns) {
+		StringBuilder sb = new StringBuilder();
+		for (RevisionColumn c : columns) {
+			if (sb.length() > 0) sb.append(',');
+			sb.append(c.name());
+		}
+		conf.set(COLUMNS_OPT, sb.toString());
+	}
+
+	/** Get the columns to be read. All columns are read by default */
+	public static EnumSet<RevisionColumn> getColumns(Configuration conf) {
+		String[] names = conf.getStrings(COLUMNS_OPT);
+		if (names == null || names.length == 0) {
+			return EnumSet.allOf(RevisionColumn.class);
+		}
+		EnumSet<RevisionColumn> columns = EnumSet.noneOf(RevisionColumn.class);
+		for (String name : names) {
+			columns.add(valueOf(name.trim().toUpperCase()));
+		}
+		return columns;
+	}
+}
@@ -0,0 +1,305 @@
+package org.hedera.io.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+import org.hedera.io.FullRevision;
+
+/**
+ * Read the files written by {@link RevisionColumnOutputFormat}. Only the
+ * columns set via {@link RevisionColumn#setColumns} are decoded, the others
+ * are skipped by seeking over their chunks. Whole row groups are skipped
+ * when their min / max statistics fall out of the configured page or time
+ * range. Fields of unread columns are left at their default values.
+ * @author tuan
+ */
+public class RevisionColumnInputFormat extends
+		FileInputFormat<LongWritable, FullRevision> {
+
+	/** Optional range of timestamps (inclusive, in milliseconds) */
+	public static final String MIN_TIME_OPT = "org.hedera.io.columnar.mintime";
+	public static final String MAX_TIME_OPT = "org.hedera.io.columnar.maxtime";
+
+	/** Optional range of page ids (inclusive) */
+	public static final String MIN_PAGE_OPT = "org.hedera.io.columnar.minpage";
+	public static final String MAX_PAGE_OPT = "org.hedera.io.columnar.maxpage";
+
+	// Row groups are the unit of skipping, and files are bounded by
+	// the tasks that wrote them
+	@Override
+	protected boolean isSplitable(JobContext context, Path file) {
+		return false;
+	}
+
+	@Override
+	public RecordReader<LongWritable, FullRevision> createRecordReader(
+			InputSplit input, TaskAttemptContext tac) throws IOException,
+			InterruptedException {
+		return new RevisionColumnReader();
+	}
+
+	public static class RevisionColumnReader
+			extends RecordReader<LongWritable, FullRevision> {
+
+		private static final Logger LOG =
+				Logger.getLogger(RevisionColumnReader.class);
+
+		private FSDataInputStream in;
+		private long length;
+		private CompressionCodec codec;
+
+		private boolean[] wanted;
+
+		// decoders of the current row group, one per column
+		private final DataInputBuffer[] columns =
+				new DataInputBuffer[RevisionColumn.values().length];
+		private final DataOutputBuffer[] raw =
+				new DataOutputBuffer[RevisionColumn.values().length];
+		private final long[] prev = new long[RevisionColumn.values().length];
+		private final boolean[] present = new boolean[RevisionColumn.values().length];
+
+		private int rowsLeft;
+		private boolean eof;
+
+		private long minTime;
+		private long maxTime;
+		private long minPage;
+		private long maxPage;
+
+		private final LongWritable key = new LongWritable();
+		private final FullRevision value = new FullRevision();
+
+		@Override
+		public void initialize(InputSplit input, TaskAttemptContext tac)
+				throws IOException, InterruptedException {
+			Configuration conf = tac.getConfiguration();
+			FileSplit split = (FileSplit) input;
+			Path file = split.getPath();
+			FileSystem fs = file.getFileSystem(conf);
+			length = fs.getFileStatus(file).getLen();
+			in = fs.open(file);
+
+			byte[] magic = new byte[RevisionColumnOutputFormat.MAGIC.length];
+			in.readFully(magic);
+			if (!new String(magic, StandardCharsets.UTF_8).equals(
+					new String(RevisionColumnOutputFormat.MAGIC, StandardCharsets.UTF_8))) {
+				throw new IOException("Not a columnar revision file: " + file);
+			}
+			byte version = in.readByte();
+			if (version != RevisionColumnOutputFormat.VERSION) {
+				throw new IOException("Unsupported version " + version + " in " + file);
+			}
+			String codecName = in.readUTF();
+			if (!codecName.isEmpty()) {
+				try {
+					codec = (CompressionCodec) ReflectionUtils.newInstance(
+							conf.getClassByName(codecName), conf);
+				} catch (ClassNotFoundException e) {
+					throw new IOException("Unknown codec " + codecName, e);
+				}
+			}
+
+			EnumSet<RevisionColumn> cols = RevisionColumn.getColumns(conf);
+			minTime = conf.getLong(MIN_TIME_OPT, Long.MIN_VALUE);
+			maxTime = conf.getLong(MAX_TIME_OPT, Long.MAX_VALUE);
+			minPage = conf.getLong(MIN_PAGE_OPT, Long.MIN_VALUE);
+			maxPage = conf.getLong(MAX_PAGE_OPT, Long.MAX_VALUE);
+
+			// filters on rows require the filtered columns to be read
+			if (minTime != Long.MIN_VALUE || maxTime != Long.MAX_VALUE) {
+				cols.add(RevisionColumn.TIMESTAMP);
+			}
+			cols.add(RevisionColumn.PAGE_ID);
+
+			wanted = new boolean[RevisionColumn.values().length];
+			for (RevisionColumn c : cols) {
+				wanted[c.ordinal()] = true;
+			}
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = new DataInputBuffer();
+				raw[i] = new DataOutputBuffer();
+			}
+			LOG.info("Reading columns " + cols + " from " + file);
+		}
+
+		/** Load the next row group that is not ruled out by its statistics */
+		private boolean nextRowGroup() throws IOException {
+			while (true) {
+				int rows = WritableUtils.readVInt(in);
+				if (rows == 0) {
+					return false;
+				}
+				int n = WritableUtils.readVInt(in);
+				int[] ids = new int[n];
+				int[] rawLen = new int[n];
+				int[] storedLen = new int[n];
+				boolean skip = false;
+				for (int i = 0; i < n; i++) {
+					ids[i] = in.readByte();
+					long min = WritableUtils.readVLong(in);
+					long max = WritableUtils.readVLong(in);
+					rawLen[i] = WritableUtils.readVInt(in);
+					storedLen[i] = WritableUtils.readVInt(in);
+					RevisionColumn c = RevisionColumn.byId(ids[i]);
+					if (c == RevisionColumn.TIMESTAMP && (max < minTime || min > maxTime)) {
+						skip = true;
+					} else if (c == RevisionColumn.PAGE_ID
+							&& (max < minPage || min > maxPage)) {
+						skip = true;
+					}
+				}
+				if (skip) {
+					long total = 0;
+					for (int i = 0; i < n; i++) total += storedLen[i];
+					in.seek(in.getPos() + total);
+					continue;
+				}
+				for (int i = 0; i < present.length; i++) {
+					present[i] = false;
+					prev[i] = 0;
+				}
+				for (int i = 0; i < n; i++) {
+					if (!wanted[ids[i]]) {
+						in.seek(in.getPos() + storedLen[i]);
+						continue;
+					}
+					loadChunk(ids[i], rawLen[i], storedLen[i]);
+					present[ids[i]] = true;
+				}
+				rowsLeft = rows;
+				return true;
+			}
+		}
+
+		private void loadChunk(int id, int rawLen, int storedLen) throws IOException {
+			DataOutputBuffer b = raw[id];
+			b.reset();
+			if (codec == null) {
+				b.write(in, storedLen);
+			} else {
+				byte[] stored = new byte[storedLen];
+				in.readFully(stored);
+				Decompressor decompressor = CodecPool.getDecompressor(codec);
+				try {
+					CompressionInputStream cis = codec.createInputStream(
+							new ByteArrayInputStream(stored), decompressor);
+					b.write(new DataInputStream(cis), rawLen);
+				} finally {
+					CodecPool.returnDecompressor(decompressor);
+				}
+			}
+			columns[id].reset(b.getData(), 0, b.getLength());
+		}
+
+		private long nextLong(RevisionColumn c, long defaultValue)
+				throws IOException {
+			int id = c.ordinal();
+			if (!present[id]) return defaultValue;
+			prev[id] += WritableUtils.readVLong(columns[id]);
+			return prev[id];
+		}
+
+		private String nextString(RevisionColumn c) throws IOException {
+			int id = c.ordinal();
+			if (!present[id]) return null;
+			int len = WritableUtils.readVInt(columns[id]);
+			if (len < 0) return null;
+			DataInputBuffer b = columns[id];
+			String s = new String(b.getData(), b.getPosition(), len,
+					StandardCharsets.UTF_8);
+			b.skip(len);
+			return s;
+		}
+
+		private void nextText() throws IOException {
+			int id = RevisionColumn.TEXT.ordinal();
+			if (!present[id]) return;
+			DataInputBuffer b = columns[id];
+			int len = WritableUtils.readVInt(b);
+			value.loadText(b.getData(), b.getPosition(), len);
+			b.skip(len);
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException, InterruptedException {
+			while (!eof) {
+				if (rowsLeft == 0 && !nextRowGroup()) {
+					eof = true;
+					return false;
+				}
+				rowsLeft--;
+				value.clear();
+				value.setPageId(nextLong(RevisionColumn.PAGE_ID, 0));
+				value.setRevisionId(nextLong(RevisionColumn.REVISION_ID, 0));
+				value.setParentId(nextLong(RevisionColumn.PARENT_ID, 0));
+				value.setTimestamp(nextLong(RevisionColumn.TIMESTAMP, 0));
+				value.setNamespace((int) nextLong(RevisionColumn.NAMESPACE, 0));
+				value.setLength((int) nextLong(RevisionColumn.LENGTH, 0));
+				value.setMinor(nextLong(RevisionColumn.MINOR, 0) == 1);
+				value.setPageTitle(nextString(RevisionColumn.TITLE));
+				value.setUser(nextString(RevisionColumn.USER));
+				value.setUserId(nextLong(RevisionColumn.USER_ID, -1));
+				value.setComment(nextString(RevisionColumn.COMMENT));
+
+				// when the text is read, the length is taken from the text
+				nextText();
+
+				long ts = value.getTimestamp();
+				long pageId = value.getPageId();
+				if (pageId < minPage || pageId > maxPage) continue;
+				if (present[RevisionColumn.TIMESTAMP.ordinal()]
+						&& (ts < minTime || ts > maxTime)) continue;
+				key.set(pageId);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public LongWritable getCurrentKey() throws IOException,
+		InterruptedException {
+			return key;
+		}
+
+		@Override
+		public FullRevision getCurrentValue() throws IOException,
+		InterruptedException {
+			return value;
+		}
+
+		@Override
+		public float getProgress() throws IOException, InterruptedException {
+			if (eof || length == 0) return 1f;
+			return Math.min(1f, in.getPos() / (float) length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			IOUtils.closeStream(in);
+		}
+	}
+}
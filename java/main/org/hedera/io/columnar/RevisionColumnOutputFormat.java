@@ -0,0 +1,256 @@
+package org.hedera.io.columnar;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.hedera.io.FullRevision;
+import org.hedera.io.Revision;
+import org.hedera.io.RevisionHeader;
+
+/**
+ * An output format that stores revisions column by column. Revisions are
+ * buffered into row groups, and inside one row group each field of
+ * RevisionHeader / Revision / FullRevision is written into its own chunk,
+ * together with the min / max statistics of the numeric columns. Readers
+ * that need only a few columns (e.g. the headers) can then skip the other
+ * chunks, most notably the text, without reading them.
+ *
+ * Layout of one file:
+ * <pre>
+ * "HCOL" [version] [codec class name or empty]
+ * { [rows] [columns] {[column id] [min] [max] [raw length] [stored length]}*
+ *   {chunk}* }*
+ * [0]
+ * </pre>
+ * @author tuan
+ */
+public class RevisionColumnOutputFormat extends
+		FileOutputFormat<LongWritable, RevisionHeader> {
+
+	public static final byte[] MAGIC = "HCOL".getBytes(StandardCharsets.UTF_8);
+	public static final byte VERSION = 1;
+
+	/** Maximum number of revisions in one row group */
+	public static final String ROW_GROUP_SIZE_OPT =
+			"org.hedera.io.columnar.rowgroup.rows";
+
+	/** Maximum number of buffered bytes in one row group */
+	public static final String ROW_GROUP_BYTES_OPT =
+			"org.hedera.io.columnar.rowgroup.bytes";
+
+	private static final int DEFAULT_ROW_GROUP_SIZE = 100000;
+	private static final long DEFAULT_ROW_GROUP_BYTES = 67108864l;
+
+	@Override
+	public RecordWriter<LongWritable, RevisionHeader> getRecordWriter(
+			TaskAttemptContext tac) throws IOException, InterruptedException {
+		Configuration conf = tac.getConfiguration();
+		CompressionCodec codec = null;
+		String ext = ".hcol";
+		if (getCompressOutput(tac)) {
+			Class<? extends CompressionCodec> codecClass =
+					getOutputCompressorClass(tac, DefaultCodec.class);
+			codec = ReflectionUtils.newInstance(codecClass, conf);
+			ext += codec.getDefaultExtension();
+		}
+		Path file = getDefaultWorkFile(tac, ext);
+		FileSystem fs = file.getFileSystem(conf);
+		FSDataOutputStream out = fs.create(file, false);
+		return new RevisionColumnWriter(out, codec,
+				conf.getInt(ROW_GROUP_SIZE_OPT, DEFAULT_ROW_GROUP_SIZE),
+				conf.getLong(ROW_GROUP_BYTES_OPT, DEFAULT_ROW_GROUP_BYTES));
+	}
+
+	/** Buffer of one column inside the current row group */
+	private static class ColumnChunk {
+
+		private final RevisionColumn column;
+		private final DataOutputBuffer data = new DataOutputBuffer();
+		private long prev;
+		private long min;
+		private long max;
+
+		private ColumnChunk(RevisionColumn column) {
+			this.column = column;
+			reset();
+		}
+
+		private void reset() {
+			data.reset();
+			prev = 0;
+			min = Long.MAX_VALUE;
+			max = Long.MIN_VALUE;
+		}
+
+		// numeric values are stored as the difference to the previous row,
+		// which keeps sorted ids and timestamps at one or two bytes
+		private void addLong(long v) throws IOException {
+			WritableUtils.writeVLong(data, v - prev);
+			prev = v;
+			if (v < min) min = v;
+			if (v > max) max = v;
+		}
+
+		private void addBytes(byte[] b, int offset, int len) throws IOException {
+			WritableUtils.writeVInt(data, len);
+			if (len > 0) {
+				data.write(b, offset, len);
+			}
+		}
+
+		private void addString(String s) throws IOException {
+			if (s == null) {
+				WritableUtils.writeVInt(data, -1);
+			} else {
+				byte[] b = s.getBytes(StandardCharsets.UTF_8);
+				addBytes(b, 0, b.length);
+			}
+		}
+	}
+
+	public static class RevisionColumnWriter
+			extends RecordWriter<LongWritable, RevisionHeader> {
+
+		private final DataOutputStream out;
+		private final CompressionCodec codec;
+		private final int maxRows;
+		private final long maxBytes;
+
+		private final ColumnChunk[] chunks;
+		private int rows;
+
+		public RevisionColumnWriter(DataOutputStream out, CompressionCodec codec,
+				int maxRows, long maxBytes) throws IOException {
+			this.out = out;
+			this.codec = codec;
+			this.maxRows = maxRows;
+			this.maxBytes = maxBytes;
+			RevisionColumn[] cols = RevisionColumn.values();
+			chunks = new ColumnChunk[cols.length];
+			for (int i = 0; i < cols.length; i++) {
+				chunks[i] = new ColumnChunk(cols[i]);
+			}
+			out.write(MAGIC);
+			out.writeByte(VERSION);
+			out.writeUTF(codec == null ? "" : codec.getClass().getName());
+		}
+
+		@Override
+		public void write(LongWritable key, RevisionHeader value)
+				throws IOException, InterruptedException {
+			chunk(RevisionColumn.PAGE_ID).addLong(value.getPageId());
+			chunk(RevisionColumn.REVISION_ID).addLong(value.getRevisionId());
+			chunk(RevisionColumn.PARENT_ID).addLong(value.getParentId());
+			chunk(RevisionColumn.TIMESTAMP).addLong(value.getTimestamp());
+			chunk(RevisionColumn.NAMESPACE).addLong(value.getNamespace());
+			chunk(RevisionColumn.LENGTH).addLong(value.getLength());
+			chunk(RevisionColumn.MINOR).addLong(value.isMinor() ? 1 : 0);
+			chunk(RevisionColumn.TITLE).addString(value.getPageTitle());
+
+			if (value instanceof FullRevision) {
+				FullRevision full = (FullRevision) value;
+				chunk(RevisionColumn.USER).addString(full.getUser());
+				chunk(RevisionColumn.USER_ID).addLong(full.getUserId());
+				chunk(RevisionColumn.COMMENT).addString(full.getComment());
+			} else {
+				chunk(RevisionColumn.USER).addString(null);
+				chunk(RevisionColumn.USER_ID).addLong(-1);
+				chunk(RevisionColumn.COMMENT).addString(null);
+			}
+
+			if (value instanceof Revision && ((Revision) value).getText() != null) {
+				chunk(RevisionColumn.TEXT).addBytes(((Revision) value).getText(),
+						0, value.getLength());
+			} else {
+				chunk(RevisionColumn.TEXT).addBytes(null, 0, 0);
+			}
+
+			rows++;
+			if (rows >= maxRows || bufferedBytes() >= maxBytes) {
+				flush();
+			}
+		}
+
+		private ColumnChunk chunk(RevisionColumn c) {
+			return chunks[c.ordinal()];
+		}
+
+		private long bufferedBytes() {
+			long total = 0;
+			for (ColumnChunk c : chunks) {
+				total += c.data.getLength();
+			}
+			return total;
+		}
+
+		/** Write the buffered row group: first all chunk headers, then
+		 * the chunks themselves, so that a reader can skip the unwanted ones */
+		private void flush() throws IOException {
+			if (rows == 0) return;
+			WritableUtils.writeVInt(out, rows);
+			WritableUtils.writeVInt(out, chunks.length);
+
+			DataOutputBuffer[] stored = new DataOutputBuffer[chunks.length];
+			for (int i = 0; i < chunks.length; i++) {
+				ColumnChunk c = chunks[i];
+				stored[i] = (codec == null) ? c.data : compress(c.data);
+				out.writeByte(c.column.ordinal());
+				WritableUtils.writeVLong(out, c.column.isNumeric() ? c.min : 0);
+				WritableUtils.writeVLong(out, c.column.isNumeric() ? c.max : 0);
+				WritableUtils.writeVInt(out, c.data.getLength());
+				WritableUtils.writeVInt(out, stored[i].getLength());
+			}
+			for (int i = 0; i < chunks.length; i++) {
+				out.write(stored[i].getData(), 0, stored[i].getLength());
+			}
+			for (ColumnChunk c : chunks) {
+				c.reset();
+			}
+			rows = 0;
+		}
+
+		// chunks are compressed independently, so that the reader can
+		// decompress only the columns it needs
+		private DataOutputBuffer compress(DataOutputBuffer raw)
+				throws IOException {
+			DataOutputBuffer res = new DataOutputBuffer();
+			Compressor compressor = CodecPool.getCompressor(codec);
+			try {
+				CompressionOutputStream cos = codec.createOutputStream(
+						(OutputStream) res, compressor);
+				cos.write(raw.getData(), 0, raw.getLength());
+				cos.finish();
+				cos.flush();
+			} finally {
+				CodecPool.returnCompressor(compressor);
+			}
+			return res;
+		}
+
+		@Override
+		public void close(TaskAttemptContext tac)
+				throws IOException, InterruptedException {
+			flush();
+			WritableUtils.writeVInt(out, 0);
+			out.close();
+		}
+	}
+}
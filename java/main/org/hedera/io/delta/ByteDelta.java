@@ -0,0 +1,221 @@
+package org.hedera.io.delta;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Byte-level delta between two consecutive texts of a page. A delta is a
+ * sequence of operations that rebuild the new text from the old one:
+ * <pre>
+ * COPY   [offset in old text] [length]
+ * INSERT [length] [bytes]
+ * </pre>
+ * all numbers being variable-length integers. The encoder first strips the
+ * common prefix and suffix of the two texts (which covers most single
+ * edits), then matches the remaining middle part against fixed-size blocks
+ * of the old text, so that several scattered edits in one revision still
+ * give small deltas.
+ * @author tuan
+ */
+public class ByteDelta {
+
+	public static final int COPY = 0;
+	public static final int INSERT = 1;
+
+	// size of the blocks of the old text that are indexed for matching
+	private static final int BLOCK = 32;
+
+	// matches shorter than this are cheaper to insert than to copy
+	private static final int MIN_MATCH = 8;
+
+	// re-used hash table from block hashes to offsets in the old text
+	private int[] table = new int[1024];
+	private int[] offsets = new int[1024];
+
+	/**
+	 * Encode the delta that turns prev[0..prevLen) into cur[0..curLen)
+	 * and append it to out
+	 */
+	public void encode(byte[] prev, int prevLen, byte[] cur, int curLen,
+			DataOutputBuffer out) throws IOException {
+		int min = Math.min(prevLen, curLen);
+		int prefix = 0;
+		while (prefix < min && prev[prefix] == cur[prefix]) prefix++;
+		int suffix = 0;
+		while (suffix < min - prefix
+				&& prev[prevLen - 1 - suffix] == cur[curLen - 1 - suffix]) {
+			suffix++;
+		}
+		if (prefix > 0) {
+			copy(out, 0, prefix);
+		}
+		encodeMiddle(prev, prefix, prevLen - suffix, cur, prefix,
+				curLen - suffix, out);
+		if (suffix > 0) {
+			copy(out, prevLen - suffix, suffix);
+		}
+	}
+
+	private void encodeMiddle(byte[] prev, int prevStart, int prevEnd,
+			byte[] cur, int curStart, int curEnd, DataOutputBuffer out)
+					throws IOException {
+		int blocks = (prevEnd - prevStart) / BLOCK;
+		if (blocks == 0 || curEnd - curStart < BLOCK) {
+			insert(out, cur, curStart, curEnd - curStart);
+			return;
+		}
+		int mask = index(prev, prevStart, blocks);
+
+		int pending = curStart;
+		int i = curStart;
+		while (i + BLOCK <= curEnd) {
+			int h = hash(cur, i);
+			int slot = h & mask;
+			int matchAt = -1;
+			while (table[slot] != 0) {
+				int off = offsets[slot];
+				if (table[slot] == (h | 1) && equals(prev, off, cur, i)) {
+					matchAt = off;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (matchAt < 0) {
+				i++;
+				continue;
+			}
+
+			// extend the match in both directions
+			int start = i, from = matchAt;
+			while (start > pending && from > prevStart
+					&& prev[from - 1] == cur[start - 1]) {
+				start--;
+				from--;
+			}
+			int end = i + BLOCK, to = matchAt + BLOCK;
+			while (end < curEnd && to < prevEnd && prev[to] == cur[end]) {
+				end++;
+				to++;
+			}
+			if (end - start < MIN_MATCH) {
+				i++;
+				continue;
+			}
+			if (start > pending) {
+				insert(out, cur, pending, start - pending);
+			}
+			copy(out, from, end - start);
+			pending = i = end;
+		}
+		if (curEnd > pending) {
+			insert(out, cur, pending, curEnd - pending);
+		}
+	}
+
+	/** Index the non-overlapping blocks of the old text, return the mask */
+	private int index(byte[] prev, int start, int blocks) {
+		int size = Integer.highestOneBit(blocks * 2 - 1) << 1;
+		if (table.length < size) {
+			table = new int[size];
+			offsets = new int[size];
+		} else {
+			for (int k = 0; k < size; k++) table[k] = 0;
+		}
+		int mask = size - 1;
+		for (int b = 0; b < blocks; b++) {
+			int off = start + b * BLOCK;
+			int h = hash(prev, off);
+			int slot = h & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			// the lowest bit marks the slot as used
+			table[slot] = h | 1;
+			offsets[slot] = off;
+		}
+		return mask;
+	}
+
+	private static int hash(byte[] b, int off) {
+		int h = 0x811c9dc5;
+		for (int k = off; k < off + BLOCK; k++) {
+			h = (h ^ (b[k] & 0xff)) * 0x01000193;
+		}
+		return h;
+	}
+
+	private static boolean equals(byte[] a, int aOff, byte[] b, int bOff) {
+		for (int k = 0; k < BLOCK; k++) {
+			if (a[aOff + k] != b[bOff + k]) return false;
+		}
+		return true;
+	}
+
+	private static void copy(DataOutputBuffer out, int offset, int len)
+			throws IOException {
+		WritableUtils.writeVInt(out, COPY);
+		WritableUtils.writeVInt(out, offset);
+		WritableUtils.writeVInt(out, len);
+	}
+
+	private static void insert(DataOutputBuffer out, byte[] b, int offset,
+			int len) throws IOException {
+		if (len == 0) return;
+		WritableUtils.writeVInt(out, INSERT);
+		WritableUtils.writeVInt(out, len);
+		out.write(b, offset, len);
+	}
+
+	/**
+	 * Rebuild the new text by applying the delta in delta[offset..offset+len)
+	 * to the old text prev[0..prevLen), appending the result to out
+	 */
+	public static void apply(byte[] prev, int prevLen, byte[] delta,
+			int offset, int len, DataInputBuffer in, DataOutputBuffer out)
+					throws IOException {
+		in.reset(delta, offset, len);
+		while (in.getPosition() < offset + len) {
+			int op = WritableUtils.readVInt(in);
+			if (op == COPY) {
+				int from = WritableUtils.readVInt(in);
+				int n = WritableUtils.readVInt(in);
+				if (from < 0 || from + n > prevLen) {
+					throw new IOException("Corrupted delta: copy [" + from
+							+ ", " + (from + n) + ") out of " + prevLen);
+				}
+				out.write(prev, from, n);
+			} else if (op == INSERT) {
+				int n = WritableUtils.readVInt(in);
+				out.write(delta, in.getPosition(), n);
+				in.skip(n);
+			} else {
+				throw new IOException("Corrupted delta: unknown operation " + op);
+			}
+		}
+	}
+
+	/**
+	 * Collect only the inserted bytes of a delta, for jobs that are interested
+	 * in the added text and not in the full revision
+	 */
+	public static void inserted(byte[] delta, int offset, int len,
+			DataInputBuffer in, DataOutputBuffer out) throws IOException {
+		in.reset(delta, offset, len);
+		while (in.getPosition() < offset + len) {
+			int op = WritableUtils.readVInt(in);
+			if (op == COPY) {
+				WritableUtils.readVInt(in);
+				WritableUtils.readVInt(in);
+			} else if (op == INSERT) {
+				int n = WritableUtils.readVInt(in);
+				out.write(delta, in.getPosition(), n);
+				in.skip(n);
+			} else {
+				throw new IOException("Corrupted delta: unknown operation " + op);
+			}
+		}
+	}
+}
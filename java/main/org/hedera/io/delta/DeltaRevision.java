@@ -0,0 +1,78 @@
+package org.hedera.io.delta;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.WritableUtils;
+import org.hedera.io.RevisionHeader;
+
+/**
+ * One revision in the delta-encoded history. A keyframe carries the full
+ * text of the revision, the other revisions carry a {@link ByteDelta}
+ * against the previous revision of the same page. The header length is
+ * always the length of the full text.
+ * @author tuan
+ */
+public class DeltaRevision extends RevisionHeader {
+
+	private boolean keyframe;
+
+	// full text or delta, depending on the keyframe flag
+	private byte[] payload = new byte[0];
+	private int payloadLength;
+
+	public boolean isKeyframe() {
+		return keyframe;
+	}
+
+	public void setKeyframe(boolean keyframe) {
+		this.keyframe = keyframe;
+	}
+
+	/** The payload buffer is re-used, only the first
+	 * {@link #getPayloadLength()} bytes are valid */
+	public byte[] getPayload() {
+		return payload;
+	}
+
+	public int getPayloadLength() {
+		return payloadLength;
+	}
+
+	public void loadPayload(byte[] buffer, int offset, int len) {
+		ensure(len);
+		System.arraycopy(buffer, offset, payload, 0, len);
+		payloadLength = len;
+	}
+
+	private void ensure(int len) {
+		if (payload.length < len) {
+			payload = new byte[Math.max(len, payload.length * 2)];
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		keyframe = false;
+		payloadLength = 0;
+	}
+
+	@Override
+	public void readFields(DataInput in) throws IOException {
+		super.readFields(in);
+		keyframe = in.readBoolean();
+		payloadLength = WritableUtils.readVInt(in);
+		ensure(payloadLength);
+		in.readFully(payload, 0, payloadLength);
+	}
+
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+		out.writeBoolean(keyframe);
+		WritableUtils.writeVInt(out, payloadLength);
+		out.write(payload, 0, payloadLength);
+	}
+}
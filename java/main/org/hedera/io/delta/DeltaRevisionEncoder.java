@@ -0,0 +1,90 @@
+package org.hedera.io.delta;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.FullRevision;
+import org.hedera.io.Revision;
+
+/**
+ * Turn a stream of revisions, grouped by page and ordered by time as all
+ * revision readers emit them, into delta revisions. A keyframe is written
+ * for the first revision of each page, every K revisions, and whenever the
+ * delta would not be smaller than the full text.
+ * @author tuan
+ */
+public class DeltaRevisionEncoder {
+
+	/** Number of revisions between two keyframes of one page */
+	public static final String KEYFRAME_INTERVAL_OPT =
+			"org.hedera.io.delta.keyframe.interval";
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 20;
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final int interval;
+	private final ByteDelta delta = new ByteDelta();
+
+	private long lastPageId = -1;
+	private int sinceKeyframe;
+
+	// text of the previous revision of the current page
+	private final DataOutputBuffer prevText = new DataOutputBuffer();
+	private final DataOutputBuffer deltaBuf = new DataOutputBuffer();
+
+	public DeltaRevisionEncoder(Configuration conf) {
+		this(conf.getInt(KEYFRAME_INTERVAL_OPT, DEFAULT_KEYFRAME_INTERVAL));
+	}
+
+	public DeltaRevisionEncoder(int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Invalid keyframe interval: "
+					+ interval);
+		}
+		this.interval = interval;
+	}
+
+	/** Encode one revision into the given (re-used) delta revision */
+	public void encode(Revision rev, DeltaRevision out) throws IOException {
+		out.clear();
+		out.clone(rev);
+		if (rev instanceof FullRevision) {
+			FullRevision full = (FullRevision) rev;
+			out.setUser(full.getUser());
+			out.setUserId(full.getUserId());
+			out.setComment(full.getComment());
+		}
+
+		byte[] text = rev.getText();
+		if (text == null) {
+			text = EMPTY;
+		}
+		int len = (text == EMPTY) ? 0 : rev.getLength();
+		out.setLength(len);
+
+		boolean keyframe = (rev.getPageId() != lastPageId)
+				|| (sinceKeyframe + 1 >= interval);
+		if (!keyframe) {
+			deltaBuf.reset();
+			delta.encode(prevText.getData(), prevText.getLength(), text, len,
+					deltaBuf);
+			keyframe = deltaBuf.getLength() >= len;
+		}
+		if (keyframe) {
+			out.setKeyframe(true);
+			out.loadPayload(text, 0, len);
+			sinceKeyframe = 0;
+		} else {
+			out.setKeyframe(false);
+			out.loadPayload(deltaBuf.getData(), 0, deltaBuf.getLength());
+			sinceKeyframe++;
+		}
+
+		lastPageId = rev.getPageId();
+		prevText.reset();
+		if (len > 0) {
+			prevText.write(text, 0, len);
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package org.hedera.io.delta;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
+
+import gnu.trove.set.hash.TLongHashSet;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileRecordReader;
+import org.hedera.io.FullRevision;
+import org.hedera.io.RevisionHeader;
+
+/**
+ * Read the delta-encoded history written by BuildDeltaHistory and rebuild
+ * the full text of every revision on the fly. Jobs that only need the
+ * changes can read the same files with a SequenceFileInputFormat of
+ * {@link DeltaRevision} and {@link ByteDelta#inserted} instead.
+ * <p>
+ * With {@link #REVISIONS_OPT} or {@link #AS_OF_OPT}, only some revisions
+ * are rebuilt, each from the last keyframe before it: the deltas of the
+ * other revisions are read but never applied.
+ * @author tuan
+ */
+public class DeltaRevisionInputFormat extends
+		FileInputFormat<LongWritable, FullRevision> {
+
+	/** Comma-separated ids of the only revisions to rebuild */
+	public static final String REVISIONS_OPT = "org.hedera.io.delta.revisions";
+
+	/** Rebuild, for each page, the revision that is current at this time,
+	 * i.e. its last revision up to then. Takes over REVISIONS_OPT */
+	public static final String AS_OF_OPT = "org.hedera.io.delta.asof";
+
+	// a delta chain must be read from its keyframe, so the files
+	// (one per writer task) are never split
+	@Override
+	protected boolean isSplitable(JobContext context, Path file) {
+		return false;
+	}
+
+	@Override
+	public RecordReader<LongWritable, FullRevision> createRecordReader(
+			InputSplit input, TaskAttemptContext tac) throws IOException,
+			InterruptedException {
+		return new DeltaRevisionReader();
+	}
+
+	public static class DeltaRevisionReader
+			extends RecordReader<LongWritable, FullRevision> {
+
+		private static final long NO_TIME = Long.MIN_VALUE;
+
+		private final SequenceFileRecordReader<LongWritable, DeltaRevision> reader =
+				new SequenceFileRecordReader<LongWritable, DeltaRevision>();
+
+		private final LongWritable key = new LongWritable();
+		private final FullRevision value = new FullRevision();
+
+		// the revisions to rebuild: all of them, those of the given ids, or
+		// the one of each page that is current at the given time
+		private TLongHashSet wanted;
+		private long asOf = NO_TIME;
+
+		// payloads of the current page since its last keyframe, one after
+		// the other. Deltas are only applied when a revision is wanted
+		private final DataOutputBuffer chain = new DataOutputBuffer();
+		private int[] chainOffsets = new int[32];
+		private int chainSize;
+
+		// text of the first [built] revisions of the chain, rebuilt in two
+		// buffers that are swapped after each delta
+		private DataOutputBuffer prevText = new DataOutputBuffer();
+		private DataOutputBuffer curText = new DataOutputBuffer();
+		private int built;
+		private final DataInputBuffer deltaIn = new DataInputBuffer();
+		private long lastPageId = -1;
+
+		// as-of mode: the latest revision of the page so far
+		private final RevisionHeader pending = new RevisionHeader();
+		private long pendingKey;
+		private int pendingIndex = -1;
+
+		// the rest of the page is after the time
+		private boolean pageDone;
+
+		// the current record of the reader is to be read again
+		private boolean held;
+
+		@Override
+		public void initialize(InputSplit input, TaskAttemptContext tac)
+				throws IOException, InterruptedException {
+			reader.initialize(input, tac);
+			Configuration conf = tac.getConfiguration();
+			String[] ids = conf.getStrings(REVISIONS_OPT);
+			if (ids != null) {
+				wanted = new TLongHashSet(ids.length);
+				for (String id : ids) {
+					wanted.add(Long.parseLong(id.trim()));
+				}
+			}
+			String time = conf.get(AS_OF_OPT);
+			if (time != null) {
+				asOf = TIME_FORMAT.parseMillis(time);
+			}
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException, InterruptedException {
+			while (true) {
+				if (!held && !reader.nextKeyValue()) {
+					return flush();
+				}
+				held = false;
+				DeltaRevision rev = reader.getCurrentValue();
+				if (rev.getPageId() != lastPageId) {
+
+					// the page is over, its pending revision goes first
+					if (flush()) {
+						held = true;
+						return true;
+					}
+					if (!rev.isKeyframe()) {
+						throw new IOException("Delta without keyframe at page "
+								+ rev.getPageId() + ", revision " + rev.getRevisionId());
+					}
+					lastPageId = rev.getPageId();
+					pageDone = false;
+				} else if (pageDone) {
+					continue;
+				}
+
+				if (asOf != NO_TIME) {
+					if (rev.getTimestamp() > asOf) {
+						pageDone = true;
+						if (flush()) {
+							return true;
+						}
+						continue;
+					}
+					append(rev);
+					pending.clone(rev);
+					pendingKey = reader.getCurrentKey().get();
+					pendingIndex = chainSize - 1;
+					continue;
+				}
+
+				append(rev);
+				if (wanted == null || wanted.contains(rev.getRevisionId())) {
+					emit(rev, chainSize - 1, reader.getCurrentKey().get());
+					return true;
+				}
+			}
+		}
+
+		// emit the pending revision of the as-of mode, if any
+		private boolean flush() throws IOException {
+			if (pendingIndex < 0) {
+				return false;
+			}
+			int index = pendingIndex;
+			pendingIndex = -1;
+			emit(pending, index, pendingKey);
+			return true;
+		}
+
+		private void append(DeltaRevision rev) {
+			if (rev.isKeyframe()) {
+				chain.reset();
+				chainSize = 0;
+				built = 0;
+			}
+			if (chainSize == chainOffsets.length) {
+				chainOffsets = Arrays.copyOf(chainOffsets, chainSize * 2);
+			}
+			chainOffsets[chainSize++] = chain.getLength();
+			try {
+				chain.write(rev.getPayload(), 0, rev.getPayloadLength());
+			} catch (IOException e) {
+				// never thrown by an in-memory buffer
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private int payloadLength(int index) {
+			int end = (index + 1 < chainSize) ? chainOffsets[index + 1]
+					: chain.getLength();
+			return end - chainOffsets[index];
+		}
+
+		// the text of the revision at the index of the chain, in prevText.
+		// The deltas already applied for an earlier revision are kept
+		private void rebuild(int index) throws IOException {
+			if (built == 0 || built > index + 1) {
+				prevText.reset();
+				prevText.write(chain.getData(), chainOffsets[0], payloadLength(0));
+				built = 1;
+			}
+			while (built <= index) {
+				curText.reset();
+				ByteDelta.apply(prevText.getData(), prevText.getLength(),
+						chain.getData(), chainOffsets[built], payloadLength(built),
+						deltaIn, curText);
+				DataOutputBuffer tmp = prevText;
+				prevText = curText;
+				curText = tmp;
+				built++;
+			}
+		}
+
+		private void emit(RevisionHeader header, int index, long k)
+				throws IOException {
+			rebuild(index);
+			value.clear();
+			value.clone(header);
+			value.loadText(prevText.getData(), 0, prevText.getLength());
+			key.set(k);
+		}
+
+		@Override
+		public LongWritable getCurrentKey() throws IOException,
+				InterruptedException {
+			return key;
+		}
+
+		@Override
+		public FullRevision getCurrentValue() throws IOException,
+				InterruptedException {
+			return value;
+		}
+
+		@Override
+		public float getProgress() throws IOException, InterruptedException {
+			return reader.getProgress();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
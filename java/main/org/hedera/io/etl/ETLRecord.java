@@ -0,0 +1,30 @@
+package org.hedera.io.etl;
+
+/**
+ * One output record of a NamedETLExtractor, as emitted by
+ * MultiRevisionETLInputFormat. The key and value objects are owned and
+ * re-used by the extractor's lane.
+ * @author tuan
+ */
+public class ETLRecord {
+
+	private Object key;
+	private Object value;
+
+	public Object getKey() {
+		return key;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public void set(Object key, Object value) {
+		this.key = key;
+		this.value = value;
+	}
+
+	public void clear() {
+		key = value = null;
+	}
+}
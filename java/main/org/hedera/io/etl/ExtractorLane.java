@@ -0,0 +1,125 @@
+package org.hedera.io.etl;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.CloneableObject;
+
+/**
+ * The default lane: it keeps the last established revision of the page and
+ * lets a RevisionSampler decide what to do with the next one. The last kept
+ * revision is extracted at the end of the page.
+ * @author tuan
+ */
+public abstract class ExtractorLane<KEYIN, VALUEIN, META extends CloneableObject<META>>
+		implements RevisionLane<META> {
+
+	protected final ETLExtractor<KEYIN, VALUEIN, META> extractor;
+	protected final RevisionSampler<META> sampler;
+	protected final KEYIN key;
+	protected final VALUEIN value;
+
+	// revisions with less content than this are ignored
+	private final int minLength;
+
+	// caches for the last established revision
+	private final META meta;
+	private final DataOutputBuffer prevBuf = new DataOutputBuffer();
+	private boolean kept;
+
+	public ExtractorLane(ETLExtractor<KEYIN, VALUEIN, META> extractor,
+			RevisionSampler<META> sampler, KEYIN key, VALUEIN value, META meta,
+			int minLength) {
+		this.extractor = extractor;
+		this.sampler = sampler;
+		this.key = key;
+		this.value = value;
+		this.meta = meta;
+		this.minLength = minLength;
+	}
+
+	public KEYIN getKey() {
+		return key;
+	}
+
+	public VALUEIN getValue() {
+		return value;
+	}
+
+	/** Clean the key and value before a new extraction */
+	protected abstract void free();
+
+	@Override
+	public boolean acceptHeader(META curMeta) {
+		return sampler.acceptHeader(curMeta);
+	}
+
+	@Override
+	public boolean needsSimHash() {
+		return sampler.needsSimHash();
+	}
+
+	@Override
+	public boolean offer(META curMeta, DataOutputBuffer content)
+			throws IOException {
+
+		// if the current revision is too small, just skip it
+		if (content.getLength() < minLength) {
+			return false;
+		}
+
+		switch (sampler.offer(curMeta, kept ? meta : null)) {
+		case REPLACE:
+			keep(curMeta, content);
+			return false;
+		case EMIT:
+			boolean res = kept && extract();
+			keep(curMeta, content);
+			return res;
+		default:
+			return false;
+		}
+	}
+
+	@Override
+	public boolean endPage() throws IOException {
+		if (!kept) {
+			return false;
+		}
+		boolean res = extract();
+		kept = false;
+		prevBuf.reset();
+		return res;
+	}
+
+	// at most one record per revision
+	@Override
+	public boolean next() {
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		kept = false;
+		prevBuf.reset();
+		sampler.newPage();
+		free();
+	}
+
+	private boolean extract() {
+		free();
+		return extractor.extract(prevBuf, meta, key, value);
+	}
+
+	private void keep(META curMeta, DataOutputBuffer content)
+			throws IOException {
+		meta.clone(curMeta);
+		prevBuf.reset();
+
+		// some ETL Reader dont read the content at all !!
+		if (content.getLength() > 0) {
+			prevBuf.write(content.getData(), 0, content.getLength());
+		}
+		kept = true;
+	}
+}
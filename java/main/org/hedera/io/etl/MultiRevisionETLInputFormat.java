@@ -0,0 +1,134 @@
+package org.hedera.io.etl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.input.WikiRevisionInputFormat;
+
+/**
+ * Run several NamedETLExtractors over one pass of the dump. Every extractor
+ * gets its own lane, i.e. its own RevisionSampler and its own key / value
+ * objects. The records are emitted with the name of the
+ * extractor as key, so that the mapper can route them to named outputs.
+ * The extractors are set via {@link #EXTRACTORS_OPT}.
+ * @author tuan
+ */
+public class MultiRevisionETLInputFormat extends 
+		WikiRevisionInputFormat<Text, ETLRecord> {
+
+	/** Comma-separated class names of the NamedETLExtractors to run */
+	public static final String EXTRACTORS_OPT = "org.hedera.io.etl.extractors";
+
+	@Override
+	public RecordReader<Text, ETLRecord> createRecordReader(InputSplit input,
+			TaskAttemptContext context) throws IOException, InterruptedException {
+		return new MultiRevisionETLReader();
+	}
+
+	/** Instantiate the configured extractors */
+	public static List<NamedETLExtractor<?, ?>> getExtractors(Configuration conf) {
+		Class<?>[] classes = conf.getClasses(EXTRACTORS_OPT);
+		if (classes == null || classes.length == 0) {
+			throw new IllegalArgumentException("No extractors set in "
+					+ EXTRACTORS_OPT);
+		}
+		List<NamedETLExtractor<?, ?>> res = new ArrayList<>(classes.length);
+		for (Class<?> cls : classes) {
+			res.add((NamedETLExtractor<?, ?>) ReflectionUtils.newInstance(cls, conf));
+		}
+		return res;
+	}
+
+	public static class MultiRevisionETLReader extends 
+			IntervalRevisionETLReader<Text, ETLRecord> {
+
+		private Text name;
+		private ETLRecord record;
+
+		@Override
+		protected Text initializeKey() {
+			name = new Text();
+			return name;
+		}
+
+		@Override
+		protected void freeKey(Text key) {
+			key.clear();
+		}
+
+		@Override
+		protected ETLRecord initializeValue() {
+			record = new ETLRecord();
+			return record;
+		}
+
+		@Override
+		protected void freeValue(ETLRecord value) {
+			value.clear();
+		}
+
+		// the lanes carry their own extractors
+		@Override
+		protected ETLExtractor<Text, ETLRecord, RevisionHeader> 
+				initializeExtractor() {
+			return null;
+		}
+
+		@Override
+		protected List<RevisionLane<RevisionHeader>> initializeLanes() {
+			Configuration conf = getTaskAttemptContext().getConfiguration();
+			List<RevisionLane<RevisionHeader>> lanes = new ArrayList<>();
+			for (NamedETLExtractor<?, ?> e : getExtractors(conf)) {
+				lanes.add(lane(e, conf));
+			}
+			return lanes;
+		}
+
+		// every extractor samples on its own, see RevisionSamplers.SAMPLER_FOR_OPT
+		private <K, V> NamedLane<K, V> lane(NamedETLExtractor<K, V> e,
+				Configuration conf) {
+			return new NamedLane<K, V>(e, RevisionSamplers.create(conf, e,
+					e.getName()), minContentLength());
+		}
+
+		@Override
+		protected void emit(RevisionLane<RevisionHeader> lane) {
+			NamedLane<?, ?> l = (NamedLane<?, ?>) lane;
+			name.set(l.named.getName());
+			record.set(l.getKey(), l.getValue());
+		}
+	}
+
+	private static class NamedLane<K, V> extends 
+			ExtractorLane<K, V, RevisionHeader> {
+
+		private final NamedETLExtractor<K, V> named;
+
+		private NamedLane(NamedETLExtractor<K, V> named,
+				RevisionSampler<RevisionHeader> sampler, int minLength) {
+			super(named, sampler, named.initializeKey(), named.initializeValue(),
+					new RevisionHeader(), minLength);
+			this.named = named;
+		}
+
+		@Override
+		protected void free() {
+			named.freeKey(key);
+			named.freeValue(value);
+		}
+
+		@Override
+		public void clear() {
+			super.clear();
+			named.newPage();
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package org.hedera.io.etl;
+
+import org.hedera.io.RevisionHeader;
+
+/**
+ * An ETLExtractor that can run next to other extractors in one pass over
+ * the dump (see MultiRevisionETLInputFormat). Besides the extraction, it
+ * describes its output: a name (used as the name of the output, so it
+ * must be alphanumeric), the key and value types, and how to create and
+ * clean them. Implementations need a public no-argument constructor, and
+ * can implement Configurable to read job options.
+ * @author tuan
+ */
+public interface NamedETLExtractor<KEY, VALUE> 
+		extends ETLExtractor<KEY, VALUE, RevisionHeader> {
+
+	public String getName();
+
+	public Class<KEY> getKeyClass();
+
+	public Class<VALUE> getValueClass();
+
+	public KEY initializeKey();
+
+	public void freeKey(KEY key);
+
+	public VALUE initializeValue();
+
+	public void freeValue(VALUE value);
+
+	/** Called before the revisions of a new page, to drop per-page state */
+	public void newPage();
+}
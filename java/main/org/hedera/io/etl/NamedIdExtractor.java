@@ -0,0 +1,50 @@
+package org.hedera.io.etl;
+
+import org.apache.hadoop.io.LongWritable;
+import org.hedera.io.etl.RevisionIdsFormat.IdExtractor;
+
+import edu.umd.cloud9.io.pair.PairOfLongs;
+
+/** The revision ids and timestamps, as in RevisionIdsFormat */
+public class NamedIdExtractor extends IdExtractor 
+		implements NamedETLExtractor<LongWritable, PairOfLongs> {
+
+	@Override
+	public String getName() {
+		return "ids";
+	}
+
+	@Override
+	public Class<LongWritable> getKeyClass() {
+		return LongWritable.class;
+	}
+
+	@Override
+	public Class<PairOfLongs> getValueClass() {
+		return PairOfLongs.class;
+	}
+
+	@Override
+	public LongWritable initializeKey() {
+		return new LongWritable();
+	}
+
+	@Override
+	public void freeKey(LongWritable key) {
+		key.set(0);
+	}
+
+	@Override
+	public PairOfLongs initializeValue() {
+		return new PairOfLongs();
+	}
+
+	@Override
+	public void freeValue(PairOfLongs value) {
+		value.set(0, 0);
+	}
+
+	@Override
+	public void newPage() {
+	}
+}
@@ -0,0 +1,48 @@
+package org.hedera.io.etl;
+
+import org.apache.hadoop.io.LongWritable;
+import org.hedera.io.LinkProfile;
+import org.hedera.io.etl.RevisionLinkInputFormat.LinkExtractor;
+
+/** The links of revisions, as in RevisionLinkInputFormat */
+public class NamedLinkExtractor extends LinkExtractor 
+		implements NamedETLExtractor<LongWritable, LinkProfile> {
+
+	@Override
+	public String getName() {
+		return "links";
+	}
+
+	@Override
+	public Class<LongWritable> getKeyClass() {
+		return LongWritable.class;
+	}
+
+	@Override
+	public Class<LinkProfile> getValueClass() {
+		return LinkProfile.class;
+	}
+
+	@Override
+	public LongWritable initializeKey() {
+		return new LongWritable();
+	}
+
+	@Override
+	public void freeKey(LongWritable key) {
+	}
+
+	@Override
+	public LinkProfile initializeValue() {
+		return new LinkProfile();
+	}
+
+	@Override
+	public void freeValue(LinkProfile value) {
+		value.clear();
+	}
+
+	@Override
+	public void newPage() {
+	}
+}
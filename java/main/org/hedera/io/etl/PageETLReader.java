@@ -0,0 +1,46 @@
+package org.hedera.io.etl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.hedera.io.RevisionHeader;
+
+/**
+ * A reader that runs a PageExtractor over a window of the last revisions
+ * of each page. The size of the window is set via {@link #WINDOW_SIZE_OPT}
+ * @author tuan
+ */
+public abstract class PageETLReader<KEYIN, VALUEIN> extends
+		IntervalRevisionETLReader<KEYIN, VALUEIN> {
+
+	public static final String WINDOW_SIZE_OPT = "org.hedera.io.etl.window";
+	private static final int DEFAULT_WINDOW_SIZE = 8;
+
+	protected abstract PageExtractor<KEYIN, VALUEIN> initializePageExtractor();
+
+	// the page extractor replaces the revision-by-revision one
+	@Override
+	protected ETLExtractor<KEYIN, VALUEIN, RevisionHeader> initializeExtractor() {
+		return null;
+	}
+
+	/** The number of revisions in the window, by default from
+	 * {@link #WINDOW_SIZE_OPT} */
+	protected int windowSize() {
+		return getTaskAttemptContext().getConfiguration().getInt(
+				WINDOW_SIZE_OPT, DEFAULT_WINDOW_SIZE);
+	}
+
+	@Override
+	protected List<RevisionLane<RevisionHeader>> initializeLanes() {
+		RevisionLane<RevisionHeader> lane = new PageExtractorLane<KEYIN, VALUEIN>(
+				initializePageExtractor(), windowSize(), key, value) {
+			@Override
+			protected void free() {
+				freeKey(key);
+				freeValue(value);
+			}
+		};
+		return Collections.<RevisionLane<RevisionHeader>>singletonList(lane);
+	}
+}
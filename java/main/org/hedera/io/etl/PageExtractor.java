@@ -0,0 +1,33 @@
+package org.hedera.io.etl;
+
+import org.hedera.io.RevisionHeader;
+
+/**
+ * API for extractors that need more than the previous revision. The reader
+ * keeps the last revisions of the page in a RevisionWindow, calls
+ * {@link #update} for each new revision and {@link #endPage} at the end of
+ * the page, and after each of these calls pulls records via {@link #next}
+ * until it returns false. So an extractor can emit any number of records
+ * per page, but must keep what it has not emitted yet itself.
+ * @author tuan
+ */
+public interface PageExtractor<KEY, VALUE> {
+
+	/** Decide from the header alone whether the revision goes into the
+	 * window. Revisions that are not wanted are not even buffered */
+	public boolean acceptHeader(RevisionHeader meta);
+
+	/** The latest revision, header(0) of the window, has been added. The
+	 * text in the window is the raw wiki text, without the </text> tag */
+	public void update(RevisionWindow window);
+
+	/** The window holds the last revisions of the finished page */
+	public void endPage(RevisionWindow window);
+
+	/** Write the next pending record into the (clean) key and value.
+	 * Return false when there are no more */
+	public boolean next(KEY key, VALUE value);
+
+	/** Forget everything about the current page */
+	public void newPage();
+}
@@ -0,0 +1,74 @@
+package org.hedera.io.etl;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.END_TEXT;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.RevisionHeader;
+
+/**
+ * The lane of a PageExtractor: it moves the revisions of the page through
+ * a RevisionWindow and pulls the records of the extractor one by one
+ * @author tuan
+ */
+public abstract class PageExtractorLane<KEYIN, VALUEIN> 
+		implements RevisionLane<RevisionHeader> {
+
+	protected final PageExtractor<KEYIN, VALUEIN> extractor;
+	protected final KEYIN key;
+	protected final VALUEIN value;
+
+	private final RevisionWindow window;
+
+	public PageExtractorLane(PageExtractor<KEYIN, VALUEIN> extractor,
+			int windowSize, KEYIN key, VALUEIN value) {
+		this.extractor = extractor;
+		this.window = new RevisionWindow(windowSize);
+		this.key = key;
+		this.value = value;
+	}
+
+	/** Clean the key and value before a new record */
+	protected abstract void free();
+
+	@Override
+	public boolean acceptHeader(RevisionHeader meta) {
+		return extractor.acceptHeader(meta);
+	}
+
+	@Override
+	public boolean needsSimHash() {
+		return false;
+	}
+
+	// the content buffer ends with the </text> tag, which the window drops
+	@Override
+	public boolean offer(RevisionHeader meta, DataOutputBuffer content)
+			throws IOException {
+		int len = content.getLength();
+		window.add(meta, content.getData(), 0, (len >= END_TEXT.length) 
+				? len - END_TEXT.length : len);
+		extractor.update(window);
+		return next();
+	}
+
+	@Override
+	public boolean endPage() throws IOException {
+		extractor.endPage(window);
+		return next();
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		free();
+		return extractor.next(key, value);
+	}
+
+	@Override
+	public void clear() {
+		window.clear();
+		extractor.newPage();
+		free();
+	}
+}
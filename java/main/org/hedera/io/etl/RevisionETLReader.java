@@ -2,6 +2,10 @@ package org.hedera.io.etl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -18,12 +22,17 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.log4j.Logger;
 import org.hedera.io.CloneableObject;
+import org.hedera.io.checkpoint.CheckpointOutputFormat;
+import org.hedera.io.checkpoint.SplitCheckpoint;
+import org.hedera.io.input.MalformedPageException;
+import org.hedera.io.input.WikiRevisionInputFormat.ParseCounters;
 
 import com.twitter.elephantbird.util.TaskHeartbeatThread;
 
 import static org.hedera.io.input.WikiRevisionInputFormat.START_PAGE;
 import static org.hedera.io.input.WikiRevisionInputFormat.END_PAGE;
 import static org.hedera.io.input.WikiRevisionInputFormat.START_REVISION;
+import static org.hedera.io.input.WikiRevisionInputFormat.RESYNC_ON_ERROR;
 
 public abstract class RevisionETLReader<KEYIN, VALUEIN, 
 META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
@@ -32,15 +41,12 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 
 	protected static long DEFAULT_MAX_BLOCK_SIZE = 134217728l;
 
-	private static final float DEFAULT_LOWER_THRESHOLD = 0.01f;
-	private static final float DEFAULT_UPPER_THRESHOLD = 0.1f;
-	
 	// add a few break after five iterations to give other jobs in the cluster chances
 	// to get executed
 	private int threadCnt;
 	
 	// threshold for checking the revision seriously
-	private static final long GOOD_ENOUGH_REVISION = 10;
+	private static final int GOOD_ENOUGH_REVISION = 10;
 
 	/** The acknowledgement signal when invoking one internal consuming method.
 	 * There are three states can return:
@@ -68,10 +74,12 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 	// 1: Before the first page
 	// 2: Inside the page, does not reach the end revision yet
 	// 3: outside the page block
-	// 4: The boundary case - The last and second last revisions are 
-	// both worth extracting for information
 	private byte flag;
 
+	// the <page> tag of the next page has been consumed already, by a
+	// scan that failed on it
+	private boolean pageOpen;
+
 	// compression mode checking
 	private boolean compressed = false;
 
@@ -81,12 +89,18 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 
 	private Seekable fsin;
 
-	private KEYIN key;
-	private VALUEIN value;
+	// offset in the (decompressed) stream of the end of the buffered data
+	private long streamPos;
 
-	// caches for the last established revision
-	private META meta;
-	private DataOutputBuffer prevBuf = new DataOutputBuffer();
+	// side directory of the checkpoints, null when checkpointing is off
+	private Path checkpointDir;
+	private FileSystem checkpointFs;
+	private long checkpointInterval;
+	private long lastCheckpoint;
+	private long records;
+
+	protected KEYIN key;
+	protected VALUEIN value;
 
 	// cache for the currently visited revision	
 	private DataOutputBuffer curBuf = new DataOutputBuffer();
@@ -94,12 +108,31 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 
 	protected ETLExtractor<KEYIN, VALUEIN, META> extractor;
 
+	// the consumers of the revision stream, and those having a record
+	// ready to be emitted
+	private List<RevisionLane<META>> lanes;
+	private final Deque<RevisionLane<META>> ready = 
+			new ArrayDeque<RevisionLane<META>>();
+
+	// the lane whose record has been emitted last
+	private RevisionLane<META> current;
+
+	// the last revision of the page has been offered to the lanes
+	private boolean pageEnded;
+
+	// the lanes that accepted the header of the current revision
+	private boolean[] accepted;
+	private boolean headerChecked;
+
 	protected abstract META initializeMeta();
 
 	protected abstract ETLExtractor<KEYIN, VALUEIN, META> initializeExtractor();
 
 	private TaskAttemptContext context;
 
+	// skip malformed pages instead of failing
+	private boolean resync;
+
 	@Override
 	public KEYIN getCurrentKey() throws IOException, InterruptedException {
 		return key;
@@ -146,24 +179,50 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 
 		FileSystem fs = file.getFileSystem(conf);
 
+		// resume from the last checkpoint of a previous attempt
+		SplitCheckpoint cp = null;
+		records = 0;
+		checkpointDir = SplitCheckpoint.taskDir(tac);
+		if (checkpointDir != null) {
+			checkpointFs = checkpointDir.getFileSystem(conf);
+			checkpointInterval = conf.getLong(
+					SplitCheckpoint.CHECKPOINT_INTERVAL_OPT,
+					SplitCheckpoint.DEFAULT_CHECKPOINT_INTERVAL);
+			cp = SplitCheckpoint.load(checkpointFs, checkpointDir);
+			if (cp != null) {
+				LOG.info("Resuming " + file + " from checkpoint " + cp);
+				records = cp.getRecords();
+			}
+		}
+
 		if (codec != null) { // file is compressed
 			compressed = true;
 			// fsin = new FSDataInputStream(codec.createInputStream(fs.open(file)));
 			CompressionInputStream cis = codec.createInputStream(fs.open(file));
 
-			cis.skip(start - 1);
+			streamPos = cis.skip((cp != null) ? cp.getOffset() : start - 1);
 
 			fsin = cis;
 		} else { // file is uncompressed	
 			compressed = false;
 			fsin = fs.open(file);
-			fsin.seek(start);
+			streamPos = (cp != null) ? cp.getOffset() : start;
+			fsin.seek(streamPos);
 		}
+		lastCheckpoint = streamPos;
 		flag = 1;
+		pageOpen = false;
 		threadCnt = 0;
 		pos[0] = pos[1] = 0;
-		meta = null;
+
+		// the reader can be re-initialized with another split
+		// (see WikiRevisionCombineInputFormat)
+		curBuf.reset();
+		ready.clear();
+		current = null;
+		pageEnded = false;
 		this.context = tac;
+		resync = conf.getBoolean(RESYNC_ON_ERROR, false);
 		initializeObjects();
 	}
 
@@ -172,76 +231,178 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 		value = initializeValue();
 		curMeta = initializeMeta();
 		extractor = initializeExtractor();
+		lanes = initializeLanes();
+		accepted = new boolean[lanes.size()];
 	}	
 
-	protected static void setBlockSize(Configuration conf) {
-		conf.setLong("mapreduce.input.fileinputformat.split.maxsize", 
-				DEFAULT_MAX_BLOCK_SIZE);
+	/**
+	 * Set up the consumers of the revision stream. By default, there is
+	 * one ExtractorLane that extracts into the key and value of this reader
+	 */
+	protected List<RevisionLane<META>> initializeLanes() {
+		RevisionLane<META> lane = new ExtractorLane<KEYIN, VALUEIN, META>(
+				extractor, initializeSampler(), key, value, initializeMeta(),
+				minContentLength()) {
+			@Override
+			protected void free() {
+				freeKey(key);
+				freeValue(value);
+			}
+		};
+		return Collections.singletonList(lane);
+	}
+
+	/**
+	 * The sampling policy of the default lane: the extractor's check()
+	 * against the thresholds of RevisionSamplers
+	 */
+	protected RevisionSampler<META> initializeSampler() {
+		return RevisionSamplers.check(extractor, context.getConfiguration());
+	}
+
+	/**
+	 * Revisions whose content buffer is shorter than this are ignored.
+	 * Readers that do not keep the text should return 0
+	 */
+	protected int minContentLength() {
+		return context.getConfiguration().getInt(
+				RevisionSamplers.MIN_LENGTH_OPT, GOOD_ENOUGH_REVISION);
 	}
 
-	protected void updateRevision() throws IOException {
-		if (meta == null) {
-			meta = initializeMeta();
+	/** Whether any lane needs the SimHash of the revisions */
+	protected boolean needSimHash() {
+		for (RevisionLane<META> lane : lanes) {
+			if (lane.needsSimHash()) {
+				return true;
+			}
 		}
-		meta.clone(curMeta);
-		prevBuf.reset();
+		return false;
+	}
 
-		// some ETL Reader dont read the content at all !!
-		if (curBuf.getLength() > 0) {
-			prevBuf.write(curBuf.getData(), 0, curBuf.getLength());
-			curBuf.reset();
+	/**
+	 * Ask the lanes whether they want the current revision, from its
+	 * header alone. Readers call this right before the <text>, and do not
+	 * buffer the text when it returns false
+	 */
+	protected boolean acceptHeader(META meta) {
+		boolean any = false;
+		for (int k = 0; k < accepted.length; k++) {
+			accepted[k] = lanes.get(k).acceptHeader(meta);
+			any |= accepted[k];
 		}
+		headerChecked = true;
+		return any;
+	}
+
+	/**
+	 * Called when a lane has a record ready, before nextKeyValue() returns.
+	 * Readers whose lanes do not extract into the key and value of the
+	 * reader itself must copy the record over here
+	 */
+	protected void emit(RevisionLane<META> lane) {
+	}
+
+	/**
+	 * Hand the content of the revision being offered over to a lane, in
+	 * exchange for a buffer that the reader reuses. This saves a copy of
+	 * the text, and is only for a lane that is the only one of the reader
+	 */
+	protected final DataOutputBuffer swapContent(DataOutputBuffer other) {
+		DataOutputBuffer content = curBuf;
+		curBuf = other;
+		return content;
+	}
+
+	protected static void setBlockSize(Configuration conf) {
+		conf.setLong("mapreduce.input.fileinputformat.split.maxsize", 
+				DEFAULT_MAX_BLOCK_SIZE);
 	}
 
 	protected void clearRevisions() {
-		meta = null;
-		prevBuf.reset();
 		curBuf.reset();
+		for (RevisionLane<META> lane : lanes) {
+			lane.clear();
+		}
+		ready.clear();
+		current = null;
+		pageEnded = false;
 		freeKey(key);
 		freeValue(value);
 	}
 
 	@Override
-	//
-	// Tuan: This is one of the most error-prone, tedious code I've ever written :(
-	// I feel like I have to write the documentation for this method somewhere. Otherwise
-	// I will lose understanding it next few months
-	//
 	public boolean nextKeyValue() throws IOException, InterruptedException {
-		while (fsin.getPos() < end) {
+		while (true) {
+			try {
+				boolean res = readNextKeyValue();
+				if (res) {
+					records++;
+				}
+				return res;
+			} catch (MalformedPageException | RuntimeException e) {
+				if (!resync) {
+					throw e;
+				}
+
+				// log, drop the current page and re-synchronize at the next <page>
+				LOG.warn("Skipping malformed page " + curMeta + " at offset "
+						+ fsin.getPos() + ": " + e.getMessage());
+				context.getCounter(ParseCounters.MALFORMED_PAGES).increment(1);
+				clearRevisions();
+
+				// if the next <page> cut the malformed one short, it is
+				// read next instead of scanned past (see pageOpen)
+				if (flag != -1) {
+					flag = 3;
+				}
+			}
+		}
+	}
+
+	// The reader walks through the pages and offers every revision to
+	// all lanes. Records that the lanes have ready are emitted one by one
+	// before the stream moves on, and the end of a page is signalled only
+	// after the records of its last revision have been emitted, so that no
+	// lane has to hold more than one record at a time
+	private boolean readNextKeyValue() throws IOException, InterruptedException {
+		while (true) {
+			if (current != null && current.next()) {
+				emit(current);
+				return true;
+			}
+			current = ready.poll();
+			if (current != null) {
+				emit(current);
+				return true;
+			}
+			if (pageEnded) {
+				pageEnded = false;
+				flag = 3;
+				for (RevisionLane<META> l : lanes) {
+					if (l.endPage()) {
+						ready.add(l);
+					}
+				}
+				continue;
+			}
+			if (flag == -1 || (!pageOpen && pastEnd())) {
+				return false;
+			}
 
 			// take a break for other jobs running in the cluster
 			threadCnt++;
 			if (threadCnt % 10 == 0) {
 				Thread.sleep(500);
 			}
-			
-			if (flag == -1) {
-				return false;
-			}
 
-			// the rare case: One last revision from last page still needs
-			// to be processed
-			if (flag == 4) {
-				if (meta != null) {
-					freeKey(key);
-					freeValue(value);
-					boolean res = extractor.extract(prevBuf, meta, key, value);
-					flag = 3;
-					if (!res) {
-						throw new RuntimeException("This should not happen: "
-								+ " error in offset " + fsin.getPos());
-					}
-					return true;
-				}
-
-				// this should never happen !!
-				else throw new RuntimeException("This should not happen: "
-						+ " error in offset " + fsin.getPos());
+			// between two pages, all records so far have been consumed
+			if (flag == 3 && !pageOpen) {
+				checkpoint();
 			}
-			else if (flag == 1 || flag == 3) {
 
-				while (hasNextPage()) {
+			if (flag == 1 || flag == 3) {
+				while (pageOpen || hasNextPage()) {
+					pageOpen = false;
 
 					// before we start, let's clean all buffers
 					clearRevisions();
@@ -250,8 +411,8 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 					if (r == Ack.EOF) 
 						return false;
 					else if (r == Ack.FAILED) 
-						throw new IOException("error when reading the next "
-								+ "<revision>");			
+						throw new MalformedPageException("error when reading "
+								+ "the next <revision>");			
 					// Next_Tag = Revision in this case
 					else if (r == Ack.PASSED_TO_NEXT_TAG) {
 						flag = 2;
@@ -260,167 +421,76 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 					else continue;
 				}
 			}
-			if (flag == 2) {				
+			if (flag == 2) {
+				headerChecked = false;
 				Ack r = readToNextRevision(curBuf, curMeta);
+				if (r == Ack.PASSED_TO_NEXT_TAG) {
+
+					// readers that do not keep the text might not ask
+					if (!headerChecked && !acceptHeader(curMeta)) {
+						r = Ack.SKIPPED;
+					}
+					else r = checkRevision(curBuf, curMeta);
+				}
 				if (r == Ack.EOF)
 					return false;
 				else if (r == Ack.FAILED)
-					throw new IOException("error when reading the next "
-							+ "</revision");
-
+					throw new MalformedPageException("error when reading "
+							+ "the next </revision");
 				else if (r == Ack.PASSED_TO_NEXT_TAG) {
-
-					// if the current revision is too small, just skip it
-					if (curBuf.getLength() < GOOD_ENOUGH_REVISION) {
-						if (hasNextRevision()) {
-							continue;
-						} 
-
-						// the last revision, extract and stop
-						else {
-							flag = 3;
-							if (meta != null) {
-								freeKey(key);
-								freeValue(value);
-								boolean res = extractor.extract(prevBuf,meta,key,value);
-								
-								// every revsion that is checked is empty
-								if (!res) {
-									continue;
-								}
-								else return true;
-							}
+					for (int k = 0; k < accepted.length; k++) {
+						RevisionLane<META> l = lanes.get(k);
+						if (accepted[k] && l.offer(curMeta, curBuf)) {
+							ready.add(l);
 						}
 					}
-					
-					// The first revision always replace the previous (empty) one
-					if (meta == null) {						
-						updateRevision();
-						if (hasNextRevision()) {
-							continue;
-						} 
-
-						// the last revision, extract and stop
-						else {
-							flag = 3;
-							if (meta != null) {
-								freeKey(key);
-								freeValue(value);
-								boolean res = extractor.extract(prevBuf,meta,key,value);
-								
-								// every revsion that is checked is empty
-								if (!res) {
-									continue;
-								}
-								else return true;
-							}
-						}
-					}
-
-					// heuristics: 
-					// - If the two revisions are too similar (< 0.01), throw 
-					// away the previous revision and get the new one and 
-					// continue.
-					// - If the two revisions are different enough (> 0.1), 
-					// perform the extraction on the previous revision, making
-					// sure the value is clean when seeing the revisions 
-					// independently. Then throw it away, get the new rev and
-					// stop.
-					else {
-						float score = extractor.check(curMeta, meta);
-						if (score < DEFAULT_LOWER_THRESHOLD) {
-							updateRevision();
-							if (hasNextRevision()) {
-								continue;
-							} 
-
-							// the last revision, extract and stop
-							else {
-								flag = 3;
-								if (meta != null) {
-									freeKey(key);
-									freeValue(value);
-									boolean res = extractor.extract(prevBuf,meta,key,value);
-									
-									// every revision that is checked is empty --> skip this page
-									if (!res) {
-										continue;
-									}
-									else return true;
-								}
-							}
-						}
-						else if (score > DEFAULT_UPPER_THRESHOLD) {
-							if (meta != null) {
-								freeKey(key);
-								freeValue(value);
-																
-								boolean res = extractor.extract(prevBuf,meta,key,value);
-								
-								// Tricky scenario: The very last revision just has
-								// a big change. 
-								if (!hasNextRevision()) {
-									// By turning a special flag value, we hope it will not
-									// be forgotten the next read
-									flag = 4;
-								}
-								updateRevision();
-								if (res)
-									return true;
-								else continue;
-							}
-
-							// Boundary case: We have only one revision. Emit it right away and stop
-							else if (!hasNextRevision()) {
-								updateRevision();
-								if (meta != null) {
-									flag = 3;
-									freeKey(key);
-									freeValue(value);
-									boolean res = extractor.extract(prevBuf,meta,key,value);
-									
-									if (res)
-										return true;
-									
-									else throw new RuntimeException("No way! String to " +
-											"inspect: " + new String(prevBuf.getData(), "UTF-8"));
-								}
-							}
-							
-							// there are still more revisions to check, just shift the revision one
-							// step ahead and continue
-							else {
-								updateRevision();
-							}
-						}
-
-					}
 				}
 
-				else if (r == Ack.SKIPPED) {
-					if (hasNextRevision()) {
-						continue;
-					} 
-
-					// the last revision, extract and stop
-					else {
-						flag = 3;
-
-						// it might happen that you skipped all the revisions,
-						// so just move on when meta is null
-						if (meta != null) {
-							freeKey(key);
-							freeValue(value);
-							boolean res = extractor.extract(prevBuf,meta,key,value);
-							if (res)
-								return true;
-							else continue;
-						}						
-					}
+				// never carry the content of a revision over
+				curBuf.reset();
+				if (!hasNextRevision()) {
+					pageEnded = true;
 				}
-			}			
+			}
 		}
-		return false;
+	}
+
+	/** Offset in the (decompressed) stream of the next byte to consume */
+	private long position() {
+		return (pos[1] > 0) ? streamPos - (pos[1] - pos[0]) : streamPos;
+	}
+
+	/** Whether the next page starts after the split. The stream itself
+	 * is ahead by the buffered bytes, so it only counts when compressed */
+	private boolean pastEnd() throws IOException {
+		return compressed ? fsin.getPos() >= end : position() >= end;
+	}
+
+	/**
+	 * Take a checkpoint if the reader went far enough since the last one.
+	 * The output of the records so far is secured first, so this only works
+	 * with CheckpointOutputFormat
+	 */
+	private void checkpoint() throws IOException {
+		if (checkpointDir == null) {
+			return;
+		}
+		long p = position();
+		if (p - lastCheckpoint < checkpointInterval) {
+			return;
+		}
+		CheckpointOutputFormat.SegmentWriter<?, ?> w = 
+				CheckpointOutputFormat.getWriter(context.getTaskAttemptID());
+		if (w == null) {
+			LOG.warn("The task does not use CheckpointOutputFormat, "
+					+ "no checkpoints are taken");
+			checkpointDir = null;
+			return;
+		}
+		SplitCheckpoint cp = new SplitCheckpoint(p, records, w.roll());
+		cp.save(checkpointFs, checkpointDir);
+		lastCheckpoint = p;
+		LOG.info("Checkpoint " + cp);
 	}
 
 	/**
@@ -438,6 +508,14 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 	protected abstract Ack readToNextRevision(DataOutputBuffer buffer, META meta)
 			throws IOException;	
 
+	/**
+	 * Inspect one revision that has been read completely, before it is
+	 * compared against the previous one. Return SKIPPED to drop it
+	 */
+	protected Ack checkRevision(DataOutputBuffer buffer, META meta) {
+		return Ack.PASSED_TO_NEXT_TAG;
+	}
+
 	/**
 	 * Outside the <page> block, check if next <page> tag comes
 	 * @return true if next page has been found,
@@ -518,6 +596,9 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 				pos[1] = (compressed) ? ((InputStream)fsin).read(buf) :
 					((FSDataInputStream)fsin).read(buf);
 				pos[0] = 0;
+				if (pos[1] > 0) {
+					streamPos += pos[1];
+				}
 			} finally {
 				heartbeat.stop();
 			}
@@ -529,6 +610,18 @@ META extends CloneableObject<META>>  extends RecordReader<KEYIN, VALUEIN> {
 		} return true; 
 	}
 
+	/** Feed the stream to the scanner until it is done. The scanner
+	 * consumes whole chunks, instead of byte by byte */
+	protected final Ack scan(RevisionScanner scanner) throws IOException {
+		pageOpen = false;
+		while (!scanner.isDone()) {
+			if (!fetchMore()) return Ack.EOF;
+			pos[0] = scanner.scan(buf, pos[0], pos[1]);
+		}
+		pageOpen = scanner.isAtPage();
+		return scanner.getResult();
+	}
+
 	/** Check whether there are still data to read */
 	protected boolean hasData() {
 		return (pos[0] < pos[1]);
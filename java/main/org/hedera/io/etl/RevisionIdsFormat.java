@@ -1,6 +1,7 @@
 package org.hedera.io.etl;
 
 import java.io.IOException;
+import java.util.EnumSet;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DataOutputBuffer;
@@ -10,6 +11,7 @@ import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.hedera.io.RevisionHeader;
+import org.hedera.io.etl.RevisionScanner.Field;
 import org.hedera.io.input.WikiRevisionInputFormat;
 
 import edu.umd.cloud9.io.pair.PairOfLongs;
@@ -65,98 +67,16 @@ WikiRevisionInputFormat<LongWritable, PairOfLongs> {
 			value.set(0, 0);
 		}
 
+		// the text is never read, so every revision counts
 		@Override
-		// -1: EOF
-		// 9 - default
-		// 10 - just passed the inner <id> tag inside <revision>
-		// 11 - just passed the inner </id> tag inside <revision>
-		// 12 - just passed the <timestamp>
-		// 13 - just passed the </timestamp> tag, skip to the </revision>
-		// 14 - just passed the </revision>
-		protected Ack readToNextRevision(DataOutputBuffer buffer, 
-				RevisionHeader meta) throws IOException {
-			int i = 0;
-			int flag = 9;	
-			try (DataOutputBuffer revIdBuf = new DataOutputBuffer(); 
-					DataOutputBuffer timestampBuf = new DataOutputBuffer(); 
-					DataOutputBuffer parBuf = new DataOutputBuffer()) {
-
-				while (true) {
-					if (!fetchMore()) return Ack.EOF;
-					while (hasData()) {
-						byte b = nextByte();
-						if (flag == 9) {
-							if (b == START_ID[i]) {
-								i++;
-							} else i = 0;
-							if (i >= START_ID.length) {
-								flag = 10;
-								i = 0;
-							}
-						}
-
-						// everything inside the inner <id></id> 
-						// block goes to revision buffer
-						else if (flag == 10) {
-							if (b == END_ID[i]) {
-								i++;
-							} else i = 0;
-							revIdBuf.write(b);
-							if (i >= END_ID.length) {
-								flag = 11;
-								String idStr = new String(revIdBuf.getData(), 0, 
-										revIdBuf.getLength() - END_ID.length);
-								long revId = Long.parseLong(idStr);
-								meta.setRevisionId(revId);
-								revIdBuf.reset();
-								i = 0;
-							}
-						}
-
-						// after the inner <id>, check for <timestamp>
-						else if (flag == 11) {
-							if (b == START_TIMESTAMP[i]) {
-								i++;
-							} else i = 0;
-							if (i >= START_TIMESTAMP.length) {
-								flag = 12;
-								i = 0;
-							}	
-						}
-
-						// inside <timestamp></timestamp> block everything goes to
-						// timestamp buffer
-						else if (flag == 12) {
-							if (b == END_TIMESTAMP[i]) {
-								i++;
-							} else i = 0;
-							timestampBuf.write(b);
-							if (i >= END_TIMESTAMP.length) {
-								flag = 13;
-								String ts = new String(timestampBuf.getData(), 0, 
-										timestampBuf.getLength() 
-										- END_TIMESTAMP.length);
-								long timestamp = TIME_FORMAT.parseMillis(ts);
-								meta.setTimestamp(timestamp);
-								timestampBuf.reset();
-								i = 0;
-							}
-						}				
-
-						// after the </timestamp>, check for <text>
-						else if (flag == 13) {
-							if (b == END_REVISION[i]) {
-								i++;
-							} else i = 0;
-							if (i >= END_REVISION.length) {
-								// the flag is not anymore useful
-								flag = 14;
-								return Ack.PASSED_TO_NEXT_TAG;
-							}
-						}
-					}
-				}
-			}
+		protected int minContentLength() {
+			return 0;
+		}
+
+		// the text is never read
+		@Override
+		protected EnumSet<Field> revisionFields() {
+			return EnumSet.of(Field.ID, Field.TIMESTAMP, Field.SHA1);
 		}
 	}
 
@@ -0,0 +1,40 @@
+package org.hedera.io.etl;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+
+/**
+ * A consumer of the revision stream of one RevisionETLReader. The reader
+ * offers every revision of a page to all of its lanes and signals the end
+ * of the page; each lane decides on its own which revisions to extract.
+ * When a call returns true, the lane has an output record ready, which the
+ * reader emits before it offers the next revision. Once it has been
+ * consumed, the reader asks the lane for more records via next().
+ * @author tuan
+ */
+public interface RevisionLane<META> {
+
+	/** Decide on the next revision from its header alone. Revisions that
+	 * no lane accepts are not buffered, and are only offered to the lanes
+	 * that accepted them */
+	public boolean acceptHeader(META meta);
+
+	/** Offer the next revision of the current page. The content buffer is
+	 * re-used by the reader afterwards, so it must be copied if needed */
+	public boolean offer(META meta, DataOutputBuffer content) throws IOException;
+
+	/** The current page has no more revisions */
+	public boolean endPage() throws IOException;
+
+	/** The last record of this lane has been consumed. Return true when
+	 * the lane has another one ready */
+	public boolean next() throws IOException;
+
+	/** Whether the lane needs RevisionHeader.getSimHash(), see
+	 * RevisionSampler.needsSimHash() */
+	public boolean needsSimHash();
+
+	/** Forget everything about the current page */
+	public void clear();
+}
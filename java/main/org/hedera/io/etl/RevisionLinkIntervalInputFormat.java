@@ -0,0 +1,223 @@
+package org.hedera.io.etl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.hedera.io.LinkInterval;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.input.WikiRevisionInputFormat;
+import org.hedera.util.ByteStringInterner;
+import org.hedera.util.WikiLinkScanner;
+
+/**
+ * The input format that follows the links of each page through its
+ * revisions, and emits one LinkInterval per link and stretch of revisions
+ * that have it, instead of the links of every revision as
+ * RevisionLinkInputFormat does. Links are (target, anchor) pairs, as found
+ * by WikiLinkScanner. An interval is emitted as soon as the link is
+ * removed, and the links still present are emitted at the end of the page
+ * @author tuan
+ */
+public class RevisionLinkIntervalInputFormat extends
+		WikiRevisionInputFormat<LongWritable, LinkInterval> {
+
+	@Override
+	public RecordReader<LongWritable, LinkInterval> createRecordReader(
+			InputSplit input, TaskAttemptContext context)
+					throws IOException, InterruptedException {
+		return new LinkIntervalReader();
+	}
+
+	public static class LinkIntervalReader
+			extends PageETLReader<LongWritable, LinkInterval> {
+
+		@Override
+		protected LongWritable initializeKey() {
+			return new LongWritable();
+		}
+
+		@Override
+		protected void freeKey(LongWritable key) {
+		}
+
+		@Override
+		protected LinkInterval initializeValue() {
+			return new LinkInterval();
+		}
+
+		@Override
+		protected void freeValue(LinkInterval value) {
+			value.clear();
+		}
+
+		@Override
+		protected PageExtractor<LongWritable, LinkInterval>
+				initializePageExtractor() {
+			return new LinkIntervalExtractor();
+		}
+
+		// only the latest revision is looked at
+		@Override
+		protected int windowSize() {
+			return 1;
+		}
+	}
+
+	/**
+	 * Keeps the links of the latest revision of the page, with the revision
+	 * that added each of them. The (target, anchor) pairs of the page are
+	 * interned, so a revision that keeps its links costs one lookup per link
+	 * and allocates nothing
+	 */
+	public static class LinkIntervalExtractor
+			implements PageExtractor<LongWritable, LinkInterval> {
+
+		private final WikiLinkScanner scanner = new WikiLinkScanner();
+
+		// the pairs of the page, as the bytes of target, 0, anchor
+		private final ByteStringInterner pairs = new ByteStringInterner();
+		private byte[] pair = new byte[256];
+
+		// per pair: the revision that added it, and the number of the last
+		// revision of the page that has it. Revisions are numbered from 2,
+		// so that 0 (never seen) is not the number of a previous revision
+		private long[] addedAt = new long[256];
+		private long[] addedIn = new long[256];
+		private int[] seen = new int[256];
+		private int revision = 1;
+
+		// the pairs of the latest revision
+		private int[] present = new int[256];
+		private int presentCount;
+
+		// the pairs whose interval is over, all removed by the same revision
+		// (or still present at the end of the page, with -1)
+		private int[] closed = new int[256];
+		private int closedCount;
+		private int emitted;
+		private long removedAt;
+		private long removedIn;
+
+		private long pageId;
+		private String pageTitle;
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return true;
+		}
+
+		@Override
+		public void update(RevisionWindow window) {
+			RevisionHeader meta = window.header(0);
+			pageId = meta.getPageId();
+			pageTitle = meta.getPageTitle();
+			revision++;
+			closedCount = emitted = 0;
+
+			byte[] text = window.text(0);
+			int n = scanner.scan(text, 0, window.textLength(0));
+			for (int i = 0; i < n; i++) {
+				int id = intern(text, i);
+				if (seen[id] == revision) {
+					continue;
+				}
+				if (seen[id] != revision - 1) {
+					addedAt[id] = meta.getTimestamp();
+					addedIn[id] = meta.getRevisionId();
+					present = ensure(present, presentCount + 1);
+					present[presentCount++] = id;
+				}
+				seen[id] = revision;
+			}
+
+			// close the pairs that this revision does not have
+			int w = 0;
+			for (int k = 0; k < presentCount; k++) {
+				int id = present[k];
+				if (seen[id] == revision) {
+					present[w++] = id;
+				} else {
+					closed = ensure(closed, closedCount + 1);
+					closed[closedCount++] = id;
+				}
+			}
+			presentCount = w;
+			removedAt = meta.getTimestamp();
+			removedIn = meta.getRevisionId();
+		}
+
+		private int intern(byte[] text, int link) {
+			int tLen = scanner.targetLength(link);
+			int aLen = scanner.anchorLength(link);
+			int len = tLen + 1 + aLen;
+			if (pair.length < len) {
+				pair = Arrays.copyOf(pair, Math.max(len, pair.length * 2));
+			}
+			System.arraycopy(text, scanner.targetOffset(link), pair, 0, tLen);
+			pair[tLen] = 0;
+			System.arraycopy(text, scanner.anchorOffset(link), pair, tLen + 1,
+					aLen);
+			int id = pairs.intern(pair, 0, len);
+			if (seen.length <= id) {
+				int size = Math.max(id + 1, seen.length * 2);
+				seen = Arrays.copyOf(seen, size);
+				addedAt = Arrays.copyOf(addedAt, size);
+				addedIn = Arrays.copyOf(addedIn, size);
+			}
+			return id;
+		}
+
+		private static int[] ensure(int[] x, int len) {
+			return (x.length >= len) ? x : Arrays.copyOf(x, Math.max(len,
+					x.length * 2));
+		}
+
+		@Override
+		public void endPage(RevisionWindow window) {
+			int[] tmp = closed;
+			closed = present;
+			present = tmp;
+			closedCount = presentCount;
+			presentCount = 0;
+			emitted = 0;
+			removedAt = removedIn = -1;
+		}
+
+		@Override
+		public boolean next(LongWritable key, LinkInterval value) {
+			if (emitted == closedCount) {
+				return false;
+			}
+			int id = closed[emitted++];
+			byte[] b = pairs.bytes();
+			int start = pairs.offset(id);
+			int end = start + pairs.length(id);
+			int sep = start;
+			while (b[sep] != 0) sep++;
+
+			key.set(pageId);
+			value.setPageId(pageId);
+			value.setPageTitle(pageTitle);
+			value.setTarget(new String(b, start, sep - start,
+					StandardCharsets.UTF_8));
+			value.setAnchorText(new String(b, sep + 1, end - sep - 1,
+					StandardCharsets.UTF_8));
+			value.setAdded(addedAt[id], addedIn[id]);
+			value.setRemoved(removedAt, removedIn);
+			return true;
+		}
+
+		@Override
+		public void newPage() {
+			Arrays.fill(seen, 0, Math.min(seen.length, pairs.size() + 1), 0);
+			pairs.clear();
+			revision = 1;
+			presentCount = closedCount = emitted = 0;
+		}
+	}
+}
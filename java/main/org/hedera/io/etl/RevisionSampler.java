@@ -0,0 +1,40 @@
+package org.hedera.io.etl;
+
+/**
+ * A policy that decides which revisions of a page are extracted. The
+ * sampler sees a revision twice: once with the header only, before the
+ * text is read (so that the text of revisions nobody wants is never
+ * buffered), and once after the revision has been read completely, to
+ * decide against the pending revision, i.e. the last kept revision that
+ * has not been extracted yet. The pending revision is always extracted
+ * at the end of the page. See RevisionSamplers for the built-in policies.
+ * @author tuan
+ */
+public interface RevisionSampler<META> {
+
+	/**
+	 * - SKIP: drop the revision, the pending one stays
+	 * - REPLACE: the revision becomes pending, the previous pending one is
+	 * dropped
+	 * - EMIT: extract the pending revision, then the revision becomes pending
+	 */
+	public static enum Action {
+		SKIP,
+		REPLACE,
+		EMIT
+	}
+
+	/** Decide from the header alone. Return false to drop the revision */
+	public boolean acceptHeader(META meta);
+
+	/** Decide on a revision that has been read. The pending revision is
+	 * null at the start of a page */
+	public Action offer(META meta, META pending);
+
+	/** Whether offer() compares the SimHash of the revisions, which the
+	 * reader then computes while reading the text */
+	public boolean needsSimHash();
+
+	/** Forget everything about the previous page */
+	public void newPage();
+}
@@ -0,0 +1,410 @@
+package org.hedera.io.etl;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
+
+import org.apache.hadoop.conf.Configuration;
+import org.hedera.io.RevisionHeader;
+import org.hedera.util.SimHash;
+
+/**
+ * The built-in revision sampling policies, chosen by {@link #SAMPLER_OPT}:
+ * - check (default): the extractor's own check() score, compared against
+ * a lower and an upper threshold
+ * - all: every revision
+ * - first, last: the first / last revision of each time bucket
+ * - length: revisions whose length changed by more than a ratio
+ * - kth: every k-th revision of a page, counting only the revisions
+ * that reach offer(), i.e. those left after the watermarks, the reverts
+ * (see REVERT_MODE) and the minimum length
+ * - decay: revisions at least some time apart, where the gap doubles with
+ * every half-life of age, so that recent history is sampled more densely
+ * - simhash: near-duplicates (by the SimHash of RevisionHeader) replace
+ * the pending revision, the others are extracted
+ * @author tuan
+ */
+public class RevisionSamplers {
+
+	public static final String SAMPLER_OPT = "org.hedera.io.etl.sampler";
+
+	/** Per-extractor override of the policy, followed by the extractor name
+	 * (see MultiRevisionETLInputFormat) */
+	public static final String SAMPLER_FOR_OPT = "org.hedera.io.etl.sampler.for.";
+
+	public static final String LOWER_THRESHOLD_OPT = 
+			"org.hedera.io.etl.sampler.lower";
+	public static final String UPPER_THRESHOLD_OPT = 
+			"org.hedera.io.etl.sampler.upper";
+	public static final String MIN_LENGTH_OPT = 
+			"org.hedera.io.etl.sampler.minlength";
+
+	/** The calendar bucket of first / last and the base gap of decay:
+	 * hour, day, week or month */
+	public static final String BUCKET_OPT = "org.hedera.io.etl.sampler.bucket";
+	public static final String RATIO_OPT = "org.hedera.io.etl.sampler.ratio";
+	public static final String K_OPT = "org.hedera.io.etl.sampler.k";
+
+	/** The largest Hamming distance of two near-duplicate SimHashes */
+	public static final String DISTANCE_OPT = 
+			"org.hedera.io.etl.sampler.distance";
+
+	/** Half-life of decay in days, and the time the age is measured from.
+	 * WikiRevisionInputFormat.getSplits() pins the reference to the time
+	 * of the job submission when it is not set, so that all tasks (and
+	 * their re-runs) sample the same revisions */
+	public static final String HALF_LIFE_OPT = 
+			"org.hedera.io.etl.sampler.halflife";
+	public static final String REFERENCE_TIME_OPT = 
+			"org.hedera.io.etl.sampler.reference";
+
+	private static final float DEFAULT_LOWER_THRESHOLD = 0.01f;
+	private static final float DEFAULT_UPPER_THRESHOLD = 0.1f;
+	private static final float DEFAULT_RATIO = 0.1f;
+	private static final int DEFAULT_K = 10;
+	private static final int DEFAULT_HALF_LIFE = 365;
+	private static final int DEFAULT_DISTANCE = 3;
+
+	private static final long HOUR = 1000l * 60 * 60;
+	private static final long DAY = HOUR * 24;
+
+	/** The legacy policy for readers of any meta-data type */
+	public static <META> RevisionSampler<META> check(
+			ETLExtractor<?, ?, META> extractor, Configuration conf) {
+		return new Check<META>(extractor,
+				conf.getFloat(LOWER_THRESHOLD_OPT, DEFAULT_LOWER_THRESHOLD),
+				conf.getFloat(UPPER_THRESHOLD_OPT, DEFAULT_UPPER_THRESHOLD));
+	}
+
+	/** The policy configured for the extractor of the given name (null for
+	 * the single extractor of a reader) */
+	public static RevisionSampler<RevisionHeader> create(Configuration conf,
+			ETLExtractor<?, ?, RevisionHeader> extractor, String name) {
+		String policy = conf.get(SAMPLER_OPT, "check");
+		if (name != null) {
+			policy = conf.get(SAMPLER_FOR_OPT + name, policy);
+		}
+		if ("check".equals(policy)) {
+			return check(extractor, conf);
+		}
+		else if ("all".equals(policy)) {
+			return new All();
+		}
+		else if ("first".equals(policy)) {
+			return new FirstInBucket(
+					TimeBucket.parse(conf.get(BUCKET_OPT, "day")));
+		}
+		else if ("last".equals(policy)) {
+			return new LastInBucket(
+					TimeBucket.parse(conf.get(BUCKET_OPT, "day")));
+		}
+		else if ("length".equals(policy)) {
+			return new LengthChange(conf.getFloat(RATIO_OPT, DEFAULT_RATIO));
+		}
+		else if ("kth".equals(policy)) {
+			return new EveryKth(conf.getInt(K_OPT, DEFAULT_K));
+		}
+		else if ("decay".equals(policy)) {
+			String ref = conf.get(REFERENCE_TIME_OPT);
+			if (ref == null) {
+				throw new IllegalArgumentException("The decay policy needs "
+						+ REFERENCE_TIME_OPT);
+			}
+			return new TimeDecay(bucketLength(conf),
+					conf.getInt(HALF_LIFE_OPT, DEFAULT_HALF_LIFE) * DAY,
+					TIME_FORMAT.parseMillis(ref));
+		}
+		else if ("simhash".equals(policy)) {
+			return new NearDuplicate(conf.getInt(DISTANCE_OPT, DEFAULT_DISTANCE));
+		}
+		throw new IllegalArgumentException("Unknown sampling policy: " + policy);
+	}
+
+	/** Set the reference time of decay to now, unless it is set already */
+	public static void pinReferenceTime(Configuration conf) {
+		if (conf.get(REFERENCE_TIME_OPT) == null) {
+			conf.set(REFERENCE_TIME_OPT, 
+					TIME_FORMAT.print(System.currentTimeMillis()));
+		}
+	}
+
+	private static long bucketLength(Configuration conf) {
+		String scale = conf.get(BUCKET_OPT, "day");
+		if ("hour".equals(scale)) return HOUR;
+		else if ("day".equals(scale)) return DAY;
+		else if ("week".equals(scale)) return DAY * 7;
+		// the average month, only used as a gap
+		else if ("month".equals(scale)) return DAY * 30;
+		throw new IllegalArgumentException("Unknown bucket: " + scale);
+	}
+
+	public static class Check<META> implements RevisionSampler<META> {
+
+		private final ETLExtractor<?, ?, META> extractor;
+		private final float lower;
+		private final float upper;
+
+		public Check(ETLExtractor<?, ?, META> extractor, float lower,
+				float upper) {
+			this.extractor = extractor;
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		@Override
+		public boolean acceptHeader(META meta) {
+			return true;
+		}
+
+		// - If the two revisions are too similar, throw away the pending
+		// revision and keep the new one.
+		// - If the two revisions are different enough, extract the pending
+		// revision and keep the new one.
+		@Override
+		public Action offer(META meta, META pending) {
+			if (pending == null) {
+				return Action.REPLACE;
+			}
+			float score = extractor.check(meta, pending);
+			if (score < lower) {
+				return Action.REPLACE;
+			}
+			else if (score > upper) {
+				return Action.EMIT;
+			}
+			return Action.SKIP;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+		}
+	}
+
+	public static class All implements RevisionSampler<RevisionHeader> {
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return true;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			return Action.EMIT;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+		}
+	}
+
+	/** Decides on the header, so the other revisions are never buffered */
+	public static class FirstInBucket implements RevisionSampler<RevisionHeader> {
+
+		private final TimeBucket bucket;
+		private long last = Long.MIN_VALUE;
+
+		public FirstInBucket(TimeBucket bucket) {
+			this.bucket = bucket;
+		}
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return bucket.of(meta.getTimestamp()) != last;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			last = bucket.of(meta.getTimestamp());
+			return Action.EMIT;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+			last = Long.MIN_VALUE;
+		}
+	}
+
+	public static class LastInBucket implements RevisionSampler<RevisionHeader> {
+
+		private final TimeBucket bucket;
+
+		public LastInBucket(TimeBucket bucket) {
+			this.bucket = bucket;
+		}
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return true;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			if (pending == null || bucket.of(meta.getTimestamp())
+					== bucket.of(pending.getTimestamp())) {
+				return Action.REPLACE;
+			}
+			return Action.EMIT;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+		}
+	}
+
+	public static class LengthChange implements RevisionSampler<RevisionHeader> {
+
+		private final float ratio;
+
+		public LengthChange(float ratio) {
+			this.ratio = ratio;
+		}
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return true;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			if (pending == null) {
+				return Action.REPLACE;
+			}
+			long diff = Math.abs(meta.getLength() - pending.getLength());
+			return (diff > ratio * Math.max(1, pending.getLength())) 
+					? Action.EMIT : Action.SKIP;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+		}
+	}
+
+	/** Counts in offer(): a revision that passes the header can still be
+	 * dropped as a revert, so the text of every revision is read */
+	public static class EveryKth implements RevisionSampler<RevisionHeader> {
+
+		private final int k;
+		private int cnt;
+
+		public EveryKth(int k) {
+			this.k = k;
+		}
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return true;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			return ((cnt++ % k) == 0) ? Action.EMIT : Action.SKIP;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+			cnt = 0;
+		}
+	}
+
+	/** Decides on the header, so the other revisions are never buffered */
+	public static class TimeDecay implements RevisionSampler<RevisionHeader> {
+
+		private final long base;
+		private final long halfLife;
+		private final long reference;
+		private long last = Long.MIN_VALUE;
+
+		public TimeDecay(long base, long halfLife, long reference) {
+			this.base = base;
+			this.halfLife = halfLife;
+			this.reference = reference;
+		}
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			if (last == Long.MIN_VALUE) {
+				return true;
+			}
+			long age = Math.max(0, reference - meta.getTimestamp());
+			double gap = base * Math.pow(2, age / (double) halfLife);
+			return meta.getTimestamp() - last >= gap;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			last = meta.getTimestamp();
+			return Action.EMIT;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return false;
+		}
+
+		@Override
+		public void newPage() {
+			last = Long.MIN_VALUE;
+		}
+	}
+
+	/** Needs the SimHash of the text, see WikiRevisionInputFormat.SIMHASH */
+	public static class NearDuplicate implements RevisionSampler<RevisionHeader> {
+
+		private final int maxDistance;
+
+		public NearDuplicate(int maxDistance) {
+			this.maxDistance = maxDistance;
+		}
+
+		@Override
+		public boolean acceptHeader(RevisionHeader meta) {
+			return true;
+		}
+
+		@Override
+		public Action offer(RevisionHeader meta, RevisionHeader pending) {
+			if (pending == null || SimHash.distance(meta.getSimHash(),
+					pending.getSimHash()) <= maxDistance) {
+				return Action.REPLACE;
+			}
+			return Action.EMIT;
+		}
+
+		@Override
+		public boolean needsSimHash() {
+			return true;
+		}
+
+		@Override
+		public void newPage() {
+		}
+	}
+}
@@ -0,0 +1,483 @@
+package org.hedera.io.etl;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.END_TEXT;
+import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.etl.RevisionETLReader.Ack;
+import org.hedera.util.ByteStringInterner;
+
+/**
+ * One scanner for the page headers and revisions of the dump, driven by the
+ * set of fields a reader needs. It works on the raw chunks of the stream:
+ * it looks for the next '<', reads the tag name and decides whether the
+ * content is wanted. Since the content of an element is XML-escaped, it
+ * ends at the next '<', so unwanted content (the text above all) is skipped
+ * with one tight loop, and wanted content is copied in bulk. Tags are
+ * recognized by name regardless of their attributes and of how empty
+ * elements are written.
+ *
+ * A scanner is started with {@link #startPage} right after a <page> tag,
+ * or with {@link #startRevision} right after a <revision> tag, and then fed
+ * with chunks until {@link #isDone()}. The Listener is told about every
+ * parsed field and can stop the scan, e.g. to skip the revision.
+ * Contributors (user names or IPs) are interned within the scanner, so a
+ * recurring editor costs no new String and gets a stable key in the task.
+ * @author tuan
+ */
+public class RevisionScanner {
+
+	public static enum Field {
+		// page header, always parsed
+		TITLE,
+		NAMESPACE,
+		PAGE_ID,
+		REDIRECT,
+
+		// revision
+		ID,
+		PARENT_ID,
+		TIMESTAMP,
+		CONTRIBUTOR,
+		MINOR,
+		COMMENT,
+		TEXT,
+		SHA1
+	}
+
+	/** Everything a revision can have */
+	public static final EnumSet<Field> ALL_FIELDS = EnumSet.range(Field.ID, 
+			Field.SHA1);
+
+	/** The reader side of the scanner */
+	public static interface Listener {
+
+		/** A field has been parsed into the header. Return SKIPPED to stop
+		 * the scan and drop the page / revision */
+		public Ack onField(Field f, RevisionHeader meta) throws IOException;
+
+		/** The text starts. Return false to drop the revision right here,
+		 * without reading the text */
+		public boolean acceptText(RevisionHeader meta);
+
+		/** A chunk of the text has been copied */
+		public void onText(byte[] b, int offset, int len);
+	}
+
+	private static final byte[] PAGE = bytes("page");
+	private static final byte[] TITLE = bytes("title");
+	private static final byte[] NS = bytes("ns");
+	private static final byte[] ID = bytes("id");
+	private static final byte[] REDIRECT = bytes("redirect");
+	private static final byte[] REVISION = bytes("revision");
+	private static final byte[] PARENT_ID = bytes("parentid");
+	private static final byte[] TIMESTAMP = bytes("timestamp");
+	private static final byte[] CONTRIBUTOR = bytes("contributor");
+	private static final byte[] USERNAME = bytes("username");
+	private static final byte[] IP = bytes("ip");
+	private static final byte[] COMMENT = bytes("comment");
+	private static final byte[] MINOR = bytes("minor");
+	private static final byte[] TEXT = bytes("text");
+	private static final byte[] SHA1 = bytes("sha1");
+
+	// outside the tags, skip everything
+	private static final int CONTENT = 0;
+
+	// copy the content of a field
+	private static final int CAPTURE = 1;
+	private static final int CAPTURE_TEXT = 2;
+
+	// inside a tag: reading the name, and after the name
+	private static final int NAME = 3;
+	private static final int ATTRIBUTES = 4;
+
+	private final EnumSet<Field> fields;
+	private final Listener listener;
+
+	private int state;
+	private boolean revision;
+	private boolean done;
+	private Ack result;
+	private boolean atPage;
+
+	private final byte[] name = new byte[16];
+	private int nameLen;
+	private boolean closing;
+	private boolean selfClosing;
+
+	private boolean inContributor;
+	private boolean idSeen;
+
+	// the part of <contributor> being captured
+	private static final int USER_NAME = 0;
+	private static final int USER_ID = 1;
+	private static final int USER_IP = 2;
+	private int userPart;
+
+	// contributors are interned within the task
+	private final ByteStringInterner users = new ByteStringInterner();
+
+	private Field capture;
+	private final DataOutputBuffer value = new DataOutputBuffer();
+
+	private RevisionHeader meta;
+	private DataOutputBuffer text;
+
+	public RevisionScanner(EnumSet<Field> fields, Listener listener) {
+		this.fields = fields;
+		this.listener = listener;
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public EnumSet<Field> getFields() {
+		return fields;
+	}
+
+	/** The contributors seen so far, by their keys */
+	public ByteStringInterner getUsers() {
+		return users;
+	}
+
+	/** Scan a page header up to its first <revision> */
+	public void startPage(RevisionHeader meta) {
+		start(meta, null, false);
+	}
+
+	/** Scan a revision up to its </revision>. The text, if wanted, is
+	 * copied into the buffer followed by </text> */
+	public void startRevision(DataOutputBuffer buffer, RevisionHeader meta) {
+		start(meta, buffer, true);
+		meta.setParentId(0);
+		meta.setMinor(false);
+		meta.setSha1(null);
+		meta.clearContributor();
+	}
+
+	private void start(RevisionHeader meta, DataOutputBuffer buffer,
+			boolean revision) {
+		this.meta = meta;
+		this.text = buffer;
+		this.revision = revision;
+		state = CONTENT;
+		done = false;
+		result = null;
+		atPage = false;
+		inContributor = false;
+		idSeen = false;
+		capture = null;
+	}
+
+	public boolean isDone() {
+		return done;
+	}
+
+	/** PASSED_TO_NEXT_TAG when the scan reached its end, or SKIPPED */
+	public Ack getResult() {
+		return result;
+	}
+
+	/** True when the scan failed at the <page> tag of the next page, which
+	 * it has already consumed */
+	public boolean isAtPage() {
+		return atPage;
+	}
+
+	public DataOutputBuffer getText() {
+		return text;
+	}
+
+	/** Scan the bytes from offset to end, and return the position where the
+	 * scan stopped: end, or right after the last byte it needed */
+	public int scan(byte[] b, int offset, int end) throws IOException {
+		int i = offset;
+		while (i < end && !done) {
+			switch (state) {
+			case CONTENT:
+				while (i < end && b[i] != '<') i++;
+				if (i < end) {
+					i++;
+					startTag();
+				}
+				break;
+
+			case CAPTURE:
+			case CAPTURE_TEXT: {
+				int from = i;
+				while (i < end && b[i] != '<') i++;
+				if (state == CAPTURE) {
+					value.write(b, from, i - from);
+				} else if (i > from) {
+					text.write(b, from, i - from);
+					listener.onText(b, from, i - from);
+				}
+				if (i < end) {
+					i++;
+					endCapture();
+					if (!done) {
+						startTag();
+					}
+				}
+				break;
+			}
+
+			case NAME: {
+				byte c = b[i++];
+				if (c == '>') {
+					endTag();
+				} else if (c == '/') {
+					if (nameLen == 0) closing = true;
+					else {
+						selfClosing = true;
+						state = ATTRIBUTES;
+					}
+				} else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+					state = ATTRIBUTES;
+				} else if (nameLen < name.length) {
+					name[nameLen++] = c;
+				} else {
+					// a long name we do not know anyway
+					nameLen = name.length + 1;
+				}
+				break;
+			}
+
+			case ATTRIBUTES: {
+				byte c = b[i++];
+				if (c == '>') {
+					endTag();
+				} else if (c == '/') {
+					selfClosing = true;
+				} else if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+					selfClosing = false;
+				}
+				break;
+			}
+			}
+		}
+		return i;
+	}
+
+	private void startTag() {
+		state = NAME;
+		nameLen = 0;
+		closing = false;
+		selfClosing = false;
+	}
+
+	private boolean is(byte[] tag) {
+		if (nameLen != tag.length) return false;
+		for (int k = 0; k < nameLen; k++) {
+			if (name[k] != tag[k]) return false;
+		}
+		return true;
+	}
+
+	private void finish(Ack r) {
+		done = true;
+		result = r;
+	}
+
+	private void capture(Field f) {
+		if (revision && !fields.contains(f)) {
+			state = CONTENT;
+			return;
+		}
+		capture = f;
+		value.reset();
+		state = CAPTURE;
+	}
+
+	private void captureUser(int part) {
+		userPart = part;
+		capture(Field.CONTRIBUTOR);
+	}
+
+	private void endTag() throws IOException {
+		state = CONTENT;
+		if (closing) {
+			if (revision && is(REVISION)) {
+				finish(Ack.PASSED_TO_NEXT_TAG);
+			} else if (is(CONTRIBUTOR)) {
+				inContributor = false;
+				if (fields.contains(Field.CONTRIBUTOR)) {
+					fire(Field.CONTRIBUTOR);
+				}
+			}
+			return;
+		}
+		if (!revision) {
+			if (is(TITLE)) capture(Field.TITLE);
+			else if (is(NS)) capture(Field.NAMESPACE);
+			else if (is(ID) && !idSeen) {
+				idSeen = true;
+				capture(Field.PAGE_ID);
+			}
+			else if (is(REDIRECT)) {
+				fire(Field.REDIRECT);
+			}
+			else if (is(REVISION)) {
+				finish(Ack.PASSED_TO_NEXT_TAG);
+			}
+			else if (is(PAGE)) {
+				// the previous page was not closed
+				atPage = true;
+				finish(Ack.FAILED);
+			}
+			return;
+		}
+		if (is(MINOR)) {
+			meta.setMinor(true);
+			if (fields.contains(Field.MINOR)) {
+				fire(Field.MINOR);
+			}
+		}
+		else if (is(TEXT)) {
+			if (!fields.contains(Field.TEXT)) {
+				return;
+			}
+			if (!listener.acceptText(meta)) {
+				finish(Ack.SKIPPED);
+			}
+			else if (selfClosing) {
+				// empty or deleted text
+				text.write(END_TEXT);
+				fire(Field.TEXT);
+			}
+			else {
+				capture = Field.TEXT;
+				state = CAPTURE_TEXT;
+			}
+		}
+		else if (is(CONTRIBUTOR)) {
+			// <contributor deleted="deleted" /> has no user
+			if (!selfClosing) {
+				inContributor = true;
+			}
+			else if (fields.contains(Field.CONTRIBUTOR)) {
+				fire(Field.CONTRIBUTOR);
+			}
+		}
+		else if (is(COMMENT)) {
+			if (!selfClosing) {
+				capture(Field.COMMENT);
+			}
+		}
+		else if (selfClosing) {
+			return;
+		}
+		else if (inContributor) {
+			// the <id> inside <contributor> is the user's
+			if (is(USERNAME)) captureUser(USER_NAME);
+			else if (is(ID)) captureUser(USER_ID);
+			else if (is(IP)) captureUser(USER_IP);
+		}
+		else if (is(ID)) {
+			if (!idSeen) {
+				idSeen = true;
+				capture(Field.ID);
+			}
+		}
+		else if (is(PARENT_ID)) capture(Field.PARENT_ID);
+		else if (is(TIMESTAMP)) capture(Field.TIMESTAMP);
+		else if (is(SHA1)) capture(Field.SHA1);
+		else if (is(PAGE)) {
+			// the previous page was not closed
+			atPage = true;
+			finish(Ack.FAILED);
+		}
+	}
+
+	private void fire(Field f) throws IOException {
+		Ack r = listener.onField(f, meta);
+		if (r != Ack.PASSED_TO_NEXT_TAG) {
+			finish(r);
+		}
+	}
+
+	private long parseLong() {
+		byte[] b = value.getData();
+		int len = value.getLength();
+		long res = 0;
+		boolean neg = false;
+		int k = 0;
+		while (k < len && (b[k] == ' ' || b[k] == '\n' || b[k] == '\t' 
+				|| b[k] == '\r')) k++;
+		if (k < len && b[k] == '-') {
+			neg = true;
+			k++;
+		}
+		if (k >= len || b[k] < '0' || b[k] > '9') {
+			throw new NumberFormatException("Not a number: " + valueString());
+		}
+		for (; k < len && b[k] >= '0' && b[k] <= '9'; k++) {
+			res = res * 10 + (b[k] - '0');
+		}
+		return neg ? -res : res;
+	}
+
+	private String valueString() {
+		return new String(value.getData(), 0, value.getLength(), 
+				StandardCharsets.UTF_8);
+	}
+
+	private void endCapture() throws IOException {
+		Field f = capture;
+		capture = null;
+		state = CONTENT;
+		switch (f) {
+		case TITLE:
+			meta.setPageTitle(valueString());
+			break;
+		case NAMESPACE:
+			meta.setNamespace((int) parseLong());
+			break;
+		case PAGE_ID:
+			meta.setPageId(parseLong());
+			break;
+		case ID:
+			meta.setRevisionId(parseLong());
+			break;
+		case PARENT_ID:
+			meta.setParentId(parseLong());
+			break;
+		case TIMESTAMP:
+			meta.setTimestamp(TIME_FORMAT.parseMillis(valueString().trim()));
+			break;
+		case SHA1:
+			if (value.getLength() > 0) {
+				meta.setSha1(valueString());
+			}
+			break;
+		case CONTRIBUTOR:
+			// the field is complete at </contributor>
+			if (userPart == USER_ID) {
+				meta.setUserId(parseLong());
+			} else {
+				int key = users.intern(value.getData(), 0, value.getLength());
+				meta.setUserKey(key);
+				meta.setUser(users.get(key));
+				if (userPart == USER_IP) {
+					meta.setUserId(-1);
+				}
+			}
+			return;
+		case COMMENT:
+			meta.setComment(valueString());
+			break;
+		case TEXT:
+			text.write(END_TEXT);
+			break;
+		default:
+			break;
+		}
+		fire(f);
+	}
+}
@@ -0,0 +1,98 @@
+package org.hedera.io.etl;
+
+import java.util.Arrays;
+
+import org.hedera.io.RevisionHeader;
+
+/**
+ * A ring buffer of the last N revisions of the current page: headers and
+ * text slices. Every slot owns a header object and a byte arena that only
+ * grows, so after the first few pages adding a revision allocates nothing.
+ * The text of a slot is valid until the slot is overwritten, i.e. for the
+ * next N - 1 revisions.
+ * @author tuan
+ */
+public class RevisionWindow {
+
+	private final RevisionHeader[] headers;
+	private final byte[][] texts;
+	private final int[] lengths;
+
+	// slot of the latest revision, and number of revisions in the window
+	private int head = -1;
+	private int size;
+
+	// number of revisions of the page seen so far
+	private int total;
+
+	public RevisionWindow(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Window capacity: " + capacity);
+		}
+		headers = new RevisionHeader[capacity];
+		texts = new byte[capacity][];
+		lengths = new int[capacity];
+		for (int k = 0; k < capacity; k++) {
+			headers[k] = new RevisionHeader();
+			texts[k] = new byte[0];
+		}
+	}
+
+	/** Copy a revision in, evicting the oldest one if the window is full */
+	public void add(RevisionHeader header, byte[] text, int offset, int len) {
+		head = (head + 1) % headers.length;
+		headers[head].clone(header);
+		if (texts[head].length < len) {
+			texts[head] = Arrays.copyOf(texts[head], 
+					Math.max(len, texts[head].length * 2));
+		}
+		System.arraycopy(text, offset, texts[head], 0, len);
+		lengths[head] = len;
+		if (size < headers.length) {
+			size++;
+		}
+		total++;
+	}
+
+	private int slot(int age) {
+		if (age < 0 || age >= size) {
+			throw new IndexOutOfBoundsException("Revision " + age 
+					+ " of a window of " + size);
+		}
+		return (head - age + headers.length) % headers.length;
+	}
+
+	/** Header of a revision: age 0 is the latest one, size() - 1 the oldest */
+	public RevisionHeader header(int age) {
+		return headers[slot(age)];
+	}
+
+	/** The arena of a revision, holding its text from offset 0 */
+	public byte[] text(int age) {
+		return texts[slot(age)];
+	}
+
+	public int textLength(int age) {
+		return lengths[slot(age)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return headers.length;
+	}
+
+	/** Number of revisions of the page that went through the window */
+	public int total() {
+		return total;
+	}
+
+	/** Empty the window for a new page, keeping the arenas */
+	public void clear() {
+		head = -1;
+		size = 0;
+		total = 0;
+	}
+}
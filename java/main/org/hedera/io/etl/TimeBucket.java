@@ -0,0 +1,59 @@
+package org.hedera.io.etl;
+
+/**
+ * Calendar time buckets (in UTC) of revision timestamps. Weeks start on
+ * Monday, and months are real calendar months
+ * @author tuan
+ */
+public enum TimeBucket {
+
+	HOUR, DAY, WEEK, MONTH;
+
+	private static final long HOUR_MILLIS = 1000l * 60 * 60;
+	private static final long DAY_MILLIS = HOUR_MILLIS * 24;
+
+	/** The bucket of a timestamp in milliseconds. Consecutive buckets have
+	 * consecutive numbers */
+	public long of(long ts) {
+		switch (this) {
+		case HOUR:
+			return floorDiv(ts, HOUR_MILLIS);
+		case DAY:
+			return floorDiv(ts, DAY_MILLIS);
+		case WEEK:
+			// 1970-01-01 is a Thursday
+			return floorDiv(floorDiv(ts, DAY_MILLIS) + 3, 7);
+		default:
+			return month(floorDiv(ts, DAY_MILLIS));
+		}
+	}
+
+	/** The bucket named by one of the scale options: hour, day, week or
+	 * month */
+	public static TimeBucket parse(String name) {
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown bucket: " + name);
+		}
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		return (x % y != 0 && ((x ^ y) < 0)) ? q - 1 : q;
+	}
+
+	// year * 12 + month of the day since the epoch, after the civil
+	// calendar algorithm of H. Hinnant
+	private static long month(long days) {
+		long z = days + 719468;
+		long era = floorDiv(z, 146097);
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		long m = (mp < 10) ? mp + 3 : mp - 9;
+		long y = yoe + era * 400 + ((m <= 2) ? 1 : 0);
+		return y * 12 + m - 1;
+	}
+}
@@ -0,0 +1,19 @@
+package org.hedera.io.input;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the revision readers when a page does not have the expected
+ * structure. With {@link WikiRevisionInputFormat#RESYNC_ON_ERROR} on, the
+ * readers catch it, skip to the next page and count the page in
+ * {@link WikiRevisionInputFormat.ParseCounters#MALFORMED_PAGES}
+ * @author tuan
+ */
+public class MalformedPageException extends IOException {
+
+	private static final long serialVersionUID = 2856397618440217635L;
+
+	public MalformedPageException(String msg) {
+		super(msg);
+	}
+}
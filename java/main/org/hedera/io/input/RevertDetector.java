@@ -0,0 +1,70 @@
+package org.hedera.io.input;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.REVERT_MODE;
+
+import gnu.trove.map.hash.TLongLongHashMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.hedera.io.RevisionHeader;
+import org.hedera.util.TextHash;
+
+/**
+ * Detect identity reverts, i.e. revisions whose text is identical to an
+ * earlier revision of the same page. The text is identified by its sha1
+ * from the dump when available, otherwise by a hash of the text bytes.
+ * Depending on {@link WikiRevisionInputFormat#REVERT_MODE}, reverts are
+ * only marked in the header (revertOf) or skipped altogether.
+ * @author tuan
+ */
+public class RevertDetector {
+
+	public static enum Mode {
+		NONE,
+		MARK,
+		SKIP
+	}
+
+	private final Mode mode;
+
+	// text hash -> first revision id with that text, of the current page
+	private final TLongLongHashMap seen = new TLongLongHashMap();
+
+	public RevertDetector(Configuration conf) {
+		this.mode = Mode.valueOf(conf.get(REVERT_MODE, "none").toUpperCase());
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/** Forget the history of the previous page */
+	public void newPage() {
+		seen.clear();
+	}
+
+	/**
+	 * Set the text hash of a revision and check it against the earlier
+	 * revisions of the page. The text may be null for readers that do not
+	 * keep it. Return true if the revision should be skipped
+	 */
+	public boolean check(RevisionHeader rev, byte[] text, int offset, int len) {
+		long h = 0;
+		if (rev.getSha1() != null) {
+			h = TextHash.hash(rev.getSha1());
+		} else if (text != null) {
+			h = TextHash.hash(text, offset, len);
+		}
+		rev.setTextHash(h);
+		rev.setRevertOf(0);
+		if (mode == Mode.NONE || h == 0) {
+			return false;
+		}
+		long prev = seen.get(h);
+		if (prev != seen.getNoEntryValue()) {
+			rev.setRevertOf(prev);
+			return mode == Mode.SKIP;
+		}
+		seen.put(h, rev.getRevisionId());
+		return false;
+	}
+}
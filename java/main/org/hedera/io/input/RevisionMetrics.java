@@ -0,0 +1,155 @@
+package org.hedera.io.input;
+
+import java.util.Arrays;
+
+import org.hedera.io.RevisionHeader;
+import org.hedera.util.TextHash;
+
+/**
+ * Cheap similarity of a revision to the previous one of its page, fed byte
+ * by byte while the text streams through a reader, as SimHash is. The text
+ * is cut into paragraphs at line breaks (blank lines do not count), and
+ * only a hash and a length are kept per paragraph. From these, without any
+ * diff, it sets in the header:
+ * <pre>
+ * lengthDelta: the change of the text length in bytes
+ * jaccard:     |P & Q| / |P | Q| over the distinct paragraphs P, Q
+ * editRatio:   the share of paragraph bytes of both texts that the other
+ *              text does not have, 0 for the same paragraphs
+ * </pre>
+ * The first revision of a page has a Jaccard index of 0 and an edit ratio
+ * of 1.
+ * @author tuan
+ */
+public class RevisionMetrics {
+
+	// a paragraph is kept as a 40-bit hash and a 24-bit length, so that
+	// a plain sort of the longs groups equal paragraphs
+	private static final int LENGTH_BITS = 24;
+	private static final long MAX_LENGTH = (1l << LENGTH_BITS) - 1;
+
+	private long[] prev = new long[256];
+	private int prevCount;
+	private long prevLength;
+	private boolean hasPrev;
+
+	private long[] cur = new long[256];
+	private int curCount;
+	private long curLength;
+
+	// the paragraph being read
+	private long hash;
+	private long paraLength;
+	private boolean lineStart;
+
+	/** Forget the previous revision */
+	public void newPage() {
+		hasPrev = false;
+		prevCount = 0;
+		prevLength = 0;
+	}
+
+	/** Start the text of a new revision */
+	public void reset() {
+		curCount = 0;
+		curLength = 0;
+		hash = TextHash.OFFSET;
+		paraLength = 0;
+		lineStart = true;
+	}
+
+	public void update(byte b) {
+		curLength++;
+		if (b == '\n') {
+			endParagraph();
+			lineStart = true;
+		} else if (lineStart && (b == ' ' || b == '\t' || b == '\r')) {
+			// white spaces at the start of a line, as in ParagraphHasher
+		} else {
+			lineStart = false;
+			hash = TextHash.update(hash, b);
+			paraLength++;
+		}
+	}
+
+	public void update(byte[] b, int offset, int len) {
+		for (int i = offset; i < offset + len; i++) {
+			update(b[i]);
+		}
+	}
+
+	private void endParagraph() {
+		if (paraLength > 0) {
+			if (curCount == cur.length) {
+				cur = Arrays.copyOf(cur, curCount * 2);
+			}
+			cur[curCount++] = (hash << LENGTH_BITS)
+					| Math.min(paraLength, MAX_LENGTH);
+		}
+		hash = TextHash.OFFSET;
+		paraLength = 0;
+	}
+
+	/**
+	 * Set the metrics of the text read since reset() in the header, and
+	 * keep the text as the previous revision of the page
+	 */
+	public void finish(RevisionHeader meta) {
+		endParagraph();
+		Arrays.sort(cur, 0, curCount);
+		meta.setLengthDelta((int) (curLength - prevLength));
+		if (!hasPrev) {
+			meta.setJaccard(0);
+			meta.setEditRatio(1);
+		} else {
+			compare(meta);
+		}
+
+		long[] tmp = prev;
+		prev = cur;
+		cur = tmp;
+		prevCount = curCount;
+		prevLength = curLength;
+		hasPrev = true;
+	}
+
+	// merge the sorted paragraphs of both revisions
+	private void compare(RevisionHeader meta) {
+		long matchedBytes = 0, bytes = 0;
+		int common = 0, distinct = 0;
+		int i = 0, j = 0;
+		long last = 0;
+		boolean hasLast = false;
+		while (i < prevCount || j < curCount) {
+			long p = (i < prevCount) ? prev[i] : Long.MAX_VALUE;
+			long c = (j < curCount) ? cur[j] : Long.MAX_VALUE;
+			long x;
+			if (i < prevCount && j < curCount && p == c) {
+				x = p;
+				matchedBytes += 2 * (x & MAX_LENGTH);
+				bytes += 2 * (x & MAX_LENGTH);
+				if (!hasLast || x != last) {
+					common++;
+				}
+				i++;
+				j++;
+			} else if (j >= curCount || (i < prevCount && p < c)) {
+				x = p;
+				bytes += x & MAX_LENGTH;
+				i++;
+			} else {
+				x = c;
+				bytes += x & MAX_LENGTH;
+				j++;
+			}
+			if (!hasLast || x != last) {
+				distinct++;
+				last = x;
+				hasLast = true;
+			}
+		}
+		meta.setJaccard((distinct == 0) ? 1f : common / (float) distinct);
+		meta.setEditRatio((bytes == 0) ? 0f
+				: (bytes - matchedBytes) / (float) bytes);
+	}
+}
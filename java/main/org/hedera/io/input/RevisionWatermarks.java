@@ -0,0 +1,52 @@
+package org.hedera.io.input;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.mapreduce.lib.output.MapFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.HashPartitioner;
+
+import edu.umd.cloud9.io.pair.PairOfLongs;
+
+/**
+ * The high-water marks of a previous run: for every page, the id and
+ * timestamp of the last revision that has been processed, as written by
+ * BuildRevisionWatermarks into MapFiles keyed by page id. Pages come in
+ * increasing id order in a dump, so the lookups mostly read the MapFiles
+ * forward and nothing is loaded into memory beyond their indexes.
+ * @author tuan
+ */
+public class RevisionWatermarks implements Closeable {
+
+	private final MapFile.Reader[] readers;
+	private final HashPartitioner<LongWritable, PairOfLongs> partitioner =
+			new HashPartitioner<LongWritable, PairOfLongs>();
+
+	private final LongWritable key = new LongWritable();
+	private final PairOfLongs value = new PairOfLongs();
+
+	public RevisionWatermarks(Path dir, Configuration conf) throws IOException {
+		readers = MapFileOutputFormat.getReaders(dir, conf);
+	}
+
+	/** Id of the last processed revision of the page, or 0 for new pages */
+	public long get(long pageId) throws IOException {
+		key.set(pageId);
+		if (MapFileOutputFormat.getEntry(readers, partitioner, key, value) 
+				== null) {
+			return 0;
+		}
+		return value.getLeftElement();
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (MapFile.Reader r : readers) {
+			r.close();
+		}
+	}
+}
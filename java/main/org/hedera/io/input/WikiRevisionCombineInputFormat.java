@@ -0,0 +1,293 @@
+package org.hedera.io.input;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.log4j.Logger;
+import org.hedera.io.checkpoint.SplitCheckpoint;
+
+/**
+ * An input format that packs the page-aligned splits of another
+ * WikiRevisionInputFormat (the delegate) into bigger splits, so that dumps
+ * made of hundreds of small parts do not start one mapper per file. The
+ * splits are first grouped by host, and each host fills its own splits up
+ * to a target cost; the remainders of all hosts are packed together at the
+ * end. The cost of a split is its length, multiplied by a factor when the
+ * file is compressed.
+ *
+ * One record reader of the delegate is created per task and moved from
+ * split to split, so that its internal buffer is allocated only once.
+ *
+ * Usage: set the delegate via {@link #DELEGATE_OPT} and use this class as
+ * the input format of the job.
+ * @author tuan
+ */
+public class WikiRevisionCombineInputFormat<KEYIN, VALUEIN>
+		extends InputFormat<KEYIN, VALUEIN> {
+
+	private static final Logger LOG =
+			Logger.getLogger(WikiRevisionCombineInputFormat.class);
+
+	/** Class of the WikiRevisionInputFormat that reads the actual records */
+	public static final String DELEGATE_OPT = "org.hedera.io.combine.delegate";
+
+	/** Target cost of one combined split, in (uncompressed) bytes */
+	public static final String SPLIT_COST_OPT = "org.hedera.io.combine.split.cost";
+
+	/** Cost factor of a byte in a compressed file */
+	public static final String COMPRESSED_FACTOR_OPT =
+			"org.hedera.io.combine.compressed.factor";
+
+	private static final long DEFAULT_SPLIT_COST = 1073741824l;
+	private static final float DEFAULT_COMPRESSED_FACTOR = 5f;
+
+	public static void setDelegate(Configuration conf,
+			Class<? extends WikiRevisionInputFormat<?, ?>> delegate) {
+		conf.setClass(DELEGATE_OPT, delegate, WikiRevisionInputFormat.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected WikiRevisionInputFormat<KEYIN, VALUEIN> getDelegate(
+			Configuration conf) {
+		Class<?> cls = conf.getClass(DELEGATE_OPT, null);
+		if (cls == null) {
+			throw new IllegalArgumentException("No delegate input format set in "
+					+ DELEGATE_OPT);
+		}
+		return (WikiRevisionInputFormat<KEYIN, VALUEIN>)
+				ReflectionUtils.newInstance(cls, conf);
+	}
+
+	@Override
+	public List<InputSplit> getSplits(JobContext jc) throws IOException,
+			InterruptedException {
+		Configuration conf = jc.getConfiguration();
+
+		// a checkpoint only knows one position in one file
+		if (conf.get(SplitCheckpoint.CHECKPOINT_DIR_OPT) != null) {
+			throw new IllegalArgumentException("Checkpoints do not work with "
+					+ "combined splits, unset " + SplitCheckpoint.CHECKPOINT_DIR_OPT);
+		}
+		long target = conf.getLong(SPLIT_COST_OPT, DEFAULT_SPLIT_COST);
+		float factor = conf.getFloat(COMPRESSED_FACTOR_OPT,
+				DEFAULT_COMPRESSED_FACTOR);
+		CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+
+		// page-aligned splits of the delegate, large files included
+		List<InputSplit> parts = getDelegate(conf).getSplits(jc);
+
+		List<InputSplit> splits = new ArrayList<InputSplit>();
+		Map<String, List<FileSplit>> byHost =
+				new LinkedHashMap<String, List<FileSplit>>();
+		Map<FileSplit, Long> costs = new LinkedHashMap<FileSplit, Long>();
+
+		for (InputSplit part : parts) {
+			FileSplit fs = (FileSplit) part;
+			long cost = fs.getLength();
+			if (codecs.getCodec(fs.getPath()) != null) {
+				cost = (long) (cost * factor);
+			}
+			if (cost >= target) {
+				splits.add(combine(single(fs), fs.getLocations()));
+				continue;
+			}
+			costs.put(fs, cost);
+			String[] hosts = fs.getLocations();
+			String host = (hosts == null || hosts.length == 0) ? "" : hosts[0];
+			List<FileSplit> l = byHost.get(host);
+			if (l == null) {
+				l = new ArrayList<FileSplit>();
+				byHost.put(host, l);
+			}
+			l.add(fs);
+		}
+
+		// node-local packing
+		List<FileSplit> remainders = new ArrayList<FileSplit>();
+		for (Map.Entry<String, List<FileSplit>> e : byHost.entrySet()) {
+			List<FileSplit> bin = new ArrayList<FileSplit>();
+			long binCost = 0;
+			for (FileSplit fs : e.getValue()) {
+				bin.add(fs);
+				binCost += costs.get(fs);
+				if (binCost >= target) {
+					splits.add(combine(bin, hosts(e.getKey())));
+					bin = new ArrayList<FileSplit>();
+					binCost = 0;
+				}
+			}
+			remainders.addAll(bin);
+		}
+
+		// pack the remainders of all hosts together
+		List<FileSplit> bin = new ArrayList<FileSplit>();
+		Set<String> binHosts = new LinkedHashSet<String>();
+		long binCost = 0;
+		for (FileSplit fs : remainders) {
+			bin.add(fs);
+			binCost += costs.get(fs);
+			if (fs.getLocations() != null) {
+				for (String h : fs.getLocations()) binHosts.add(h);
+			}
+			if (binCost >= target) {
+				splits.add(combine(bin, binHosts.toArray(new String[0])));
+				bin = new ArrayList<FileSplit>();
+				binHosts.clear();
+				binCost = 0;
+			}
+		}
+		if (!bin.isEmpty()) {
+			splits.add(combine(bin, binHosts.toArray(new String[0])));
+		}
+
+		LOG.info("Combined " + parts.size() + " splits into " + splits.size());
+		return splits;
+	}
+
+	private static List<FileSplit> single(FileSplit fs) {
+		List<FileSplit> l = new ArrayList<FileSplit>(1);
+		l.add(fs);
+		return l;
+	}
+
+	private static String[] hosts(String host) {
+		return host.isEmpty() ? new String[0] : new String[] {host};
+	}
+
+	private static CombineFileSplit combine(List<FileSplit> bin, String[] hosts) {
+		int n = bin.size();
+		Path[] paths = new Path[n];
+		long[] starts = new long[n];
+		long[] lengths = new long[n];
+		for (int i = 0; i < n; i++) {
+			FileSplit fs = bin.get(i);
+			paths[i] = fs.getPath();
+			starts[i] = fs.getStart();
+			lengths[i] = fs.getLength();
+		}
+		return new CombineFileSplit(paths, starts, lengths, hosts);
+	}
+
+	@Override
+	public RecordReader<KEYIN, VALUEIN> createRecordReader(InputSplit input,
+			TaskAttemptContext tac) throws IOException, InterruptedException {
+		return new CombineRevisionReader<KEYIN, VALUEIN>(
+				getDelegate(tac.getConfiguration()));
+	}
+
+	/** Move one record reader of the delegate through all parts of
+	 * a combined split */
+	public static class CombineRevisionReader<KEYIN, VALUEIN>
+			extends RecordReader<KEYIN, VALUEIN> {
+
+		private final WikiRevisionInputFormat<KEYIN, VALUEIN> delegate;
+		private RecordReader<KEYIN, VALUEIN> reader;
+
+		private CombineFileSplit split;
+		private TaskAttemptContext tac;
+		private int idx;
+		private boolean opened;
+
+		// bytes of the parts that are already finished
+		private long done;
+
+		public CombineRevisionReader(WikiRevisionInputFormat<KEYIN, VALUEIN>
+				delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void initialize(InputSplit input, TaskAttemptContext tac)
+				throws IOException, InterruptedException {
+			this.split = (CombineFileSplit) input;
+			this.tac = tac;
+			idx = 0;
+			done = 0;
+			opened = false;
+		}
+
+		private FileSplit part(int i) throws IOException {
+			return new FileSplit(split.getPath(i), split.getOffset(i),
+					split.getLength(i), split.getLocations());
+		}
+
+		private boolean openNext() throws IOException, InterruptedException {
+			if (opened) {
+				reader.close();
+				done += split.getLength(idx);
+				idx++;
+				opened = false;
+			}
+			if (idx >= split.getNumPaths()) {
+				return false;
+			}
+			FileSplit fs = part(idx);
+			if (reader == null) {
+				reader = delegate.createRecordReader(fs, tac);
+			}
+			LOG.info("Reading " + fs.getPath() + " from " + fs.getStart());
+			reader.initialize(fs, tac);
+			opened = true;
+			return true;
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException, InterruptedException {
+			while (true) {
+				if (opened && reader.nextKeyValue()) {
+					return true;
+				}
+				if (!openNext()) {
+					return false;
+				}
+			}
+		}
+
+		@Override
+		public KEYIN getCurrentKey() throws IOException, InterruptedException {
+			return reader.getCurrentKey();
+		}
+
+		@Override
+		public VALUEIN getCurrentValue() throws IOException,
+				InterruptedException {
+			return reader.getCurrentValue();
+		}
+
+		@Override
+		public float getProgress() throws IOException, InterruptedException {
+			long total = split.getLength();
+			if (total == 0) return 1f;
+			long current = 0;
+			if (opened) {
+				current = (long) (Math.min(1f, reader.getProgress())
+						* split.getLength(idx));
+			}
+			return Math.min(1f, (done + current) / (float) total);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (opened) {
+				reader.close();
+				opened = false;
+			}
+		}
+	}
+}
@@ -2,9 +2,14 @@ package org.hedera.io.input;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.io.DataOutputBuffer;
@@ -12,19 +17,21 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.hedera.io.RevisionDiff;
+import org.hedera.diff.Edit;
+import org.hedera.diff.HistogramDiff;
+import org.hedera.diff.MoveDetector;
+import org.hedera.diff.ParagraphHasher;
+import org.hedera.diff.Paragraphs;
+import org.hedera.io.CompactRevisionDiff;
+import org.hedera.io.RevisionHeader;
 
 import com.twitter.elephantbird.util.TaskHeartbeatThread;
 
-import difflib.Delta;
-import difflib.DiffUtils;
-import difflib.Patch;
-
 public class WikiRevisionDiffInputFormat 
-		extends WikiRevisionInputFormat<LongWritable, RevisionDiff> {
+		extends WikiRevisionInputFormat<LongWritable, CompactRevisionDiff> {
 	
 	@Override
-	public RecordReader<LongWritable, RevisionDiff> createRecordReader(
+	public RecordReader<LongWritable, CompactRevisionDiff> createRecordReader(
 			InputSplit input, TaskAttemptContext context) throws IOException,
 			InterruptedException {
 		return new DiffReader(); 
@@ -32,8 +39,13 @@ public class WikiRevisionDiffInputFormat
 
 	/**
 	 * Read every pairs of consecutive revisions and calculate their diffs
-	 * using Meyer's alogirthm. Return WikipediaRevisionDiff which, among other fields,
-	 * emits the list of diff between the two texts
+	 * using histogram diff over paragraph ids. Return CompactRevisionDiff which, 
+	 * among other fields, emits the list of diff between the two texts.
+	 * <p>
+	 * With {@link #DIFF_THREADS}, the pairs of paragraph lists are queued to
+	 * a pool of diff threads and the reader goes on scanning, so that the
+	 * diffs overlap with the I/O. At most twice as many revisions as threads
+	 * wait in the queue, and they are emitted in the order of the dump
 	 *
 	 * @author tuan
 	 */
@@ -59,7 +71,7 @@ public class WikiRevisionDiffInputFormat
 	// 17 - just passed the </text> tag
 	// 18 - just passed the </revision>
 	// 19 - just passed the </page>
-	public static class DiffReader extends WikiRevisionReader<RevisionDiff> {
+	public static class DiffReader extends WikiRevisionReader<CompactRevisionDiff> {
 
 		// Extra flags:
 		//
@@ -79,6 +91,10 @@ public class WikiRevisionDiffInputFormat
 		
 		private TaskAttemptContext context;
 
+		// distinct paragraph bytes kept for one page before compaction
+		private static final long MAX_PARAGRAPH_BYTES = 64l * 1024 * 1024;
+		private long maxParagraphBytes;
+
 		// We now convert and cache everything from pageHeader to the followin global variables
 		// NOTE: they all need to be synchronized with pageHeader !!
 		// private DataOutputBuffer pageHeader = new DataOutputBuffer();
@@ -93,18 +109,118 @@ public class WikiRevisionDiffInputFormat
 		private DataOutputBuffer revIdBuf = new DataOutputBuffer();		
 		private DataOutputBuffer parBuf = new DataOutputBuffer();
 
-		private List<String> lastRevText = new LinkedList<>();
+		// the header of the revision being scanned
+		private final RevisionHeader meta = new RevisionHeader();
+
+		// the paragraphs of the last and the current revision, as ids
+		private ParagraphHasher hasher = new ParagraphHasher();
+		private final HistogramDiff differ = new HistogramDiff();
+		private MoveDetector moves;
+		private Paragraphs lastRevText = new Paragraphs();
+		private Paragraphs curRevText = new Paragraphs();
 		private DataOutputBuffer contentBuf = new DataOutputBuffer();
 		//////////////////////////////////////////////////////////////
 		// END revision buffer variables
 		//////////////////////////////////////////////////////////////
 
+		// the diff threads and the queued revisions, null if the diffs
+		// are done in the reading thread
+		private ExecutorService pool;
+		private ThreadLocal<HistogramDiff> differs;
+		private ArrayDeque<DiffJob> pending;
+		private int depth;
+		private boolean eof;
+
 		@Override
 		public void initialize(InputSplit input, TaskAttemptContext tac)
 				throws IOException, InterruptedException {
 			super.initialize(input, tac);
-			value = new RevisionDiff(); 
+			value = new CompactRevisionDiff(); 
 			this.context = tac;
+
+			// a reader can be moved to the next split (see
+			// WikiRevisionCombineInputFormat): drop the pool and the queue
+			// of the last one
+			if (pool != null) {
+				pool.shutdownNow();
+				pool = null;
+			}
+			differs = null;
+			pending = null;
+			eof = false;
+			resetEverything();
+			final long budget = tac.getConfiguration().getLong(DIFF_BUDGET, 0);
+			differ.setBudget(budget);
+			moves = tac.getConfiguration().getBoolean(DIFF_MOVES, true)
+					? new MoveDetector() : null;
+			maxParagraphBytes = tac.getConfiguration().getLong(DIFF_MEMORY,
+					MAX_PARAGRAPH_BYTES);
+
+			int threads = tac.getConfiguration().getInt(DIFF_THREADS, 0);
+			if (threads > 0) {
+				pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "hedera-diff");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+				differs = new ThreadLocal<HistogramDiff>() {
+					@Override
+					protected HistogramDiff initialValue() {
+						HistogramDiff d = new HistogramDiff();
+						d.setBudget(budget);
+						return d;
+					}
+				};
+				depth = 2 * threads;
+				pending = new ArrayDeque<>(depth);
+			}
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException, InterruptedException {
+			if (pool == null) {
+				return super.nextKeyValue();
+			}
+
+			// scan ahead until the oldest queued diff is done, or the queue
+			// is full
+			while (true) {
+				DiffJob head = pending.peek();
+				if (head != null && (eof || pending.size() >= depth 
+						|| head.result.isDone())) {
+					pending.poll();
+					List<Edit> edits;
+					try {
+						edits = head.result.get();
+					} catch (ExecutionException e) {
+						throw new IOException(e.getCause());
+					}
+					emit(head.header, edits, head.coarse, head.last, head.cur, 
+							head.hasher);
+					return true;
+				}
+				if (eof) {
+					return false;
+				}
+				eof = !super.nextKeyValue();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			super.close();
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+
+		@Override
+		protected void resync() {
+			super.resync();
+			resetEverything();
 		}
 
 		private void resetEverything() {
@@ -117,8 +233,15 @@ public class WikiRevisionDiffInputFormat
 			contentBuf.reset();
 			keyBuf.reset();
 			pageTitle.reset();
+			meta.clear();
 			value.clear();	
 			lastRevText.clear();
+			if (pool == null) {
+				hasher.clear();
+			} else {
+				// the queued diffs still read the old one
+				hasher = new ParagraphHasher();
+			}
 			skipped = false;
 		}
 
@@ -128,7 +251,7 @@ public class WikiRevisionDiffInputFormat
 				resetEverything();
 			}
 
-			// emit the object when reaching </revision>
+			// emit the object (or queue its diff) when reaching </revision>
 			else if (flag == 18) {
 				if (!skipped)
 					return STATE.STOP_TRUE;
@@ -138,16 +261,33 @@ public class WikiRevisionDiffInputFormat
 			// inside the <revision> block
 			else if (flag == 17) {
 				if (!skipped) {
-					// create a mass number of strings
-					List<String> content = extractParagraph(contentBuf.getData(), 0,
-							contentBuf.getLength() - END_TEXT.length);
-
-					Patch patch = DiffUtils.diff(lastRevText, content);						
-					for (Delta d : patch.getDeltas()) {
-						value.add(d);
-					}						
+					// keep the paragraphs of a long history in bounds
+					if (hasher.memory() > maxParagraphBytes) {
+						if (pool == null) {
+							hasher.compact(lastRevText);
+						} else {
+							// the queued diffs keep the old ids
+							hasher = hasher.compacted(lastRevText);
+						}
+					}
+					hasher.split(contentBuf.getData(), 0,
+							contentBuf.getLength() - END_TEXT.length, curRevText);
+
+					if (pool == null) {
+						List<Edit> edits = differ.diff(lastRevText.ids(), 
+								lastRevText.size(), curRevText.ids(), 
+								curRevText.size(), hasher.maxId());
+						emit(meta, edits, differ.isCoarse(), lastRevText, 
+								curRevText, hasher);
+					} else {
+						DiffJob job = new DiffJob();
+						job.result = pool.submit(job);
+						pending.add(job);
+					}
 
-					lastRevText = content;						
+					Paragraphs tmp = lastRevText;
+					lastRevText = curRevText;
+					curRevText = tmp;
 				}
 				// release big chunk of bytes here
 				contentBuf.reset();
@@ -158,7 +298,7 @@ public class WikiRevisionDiffInputFormat
 					String parIdStr = new String(parBuf.getData(), 0, parBuf.getLength() 
 							- END_PARENT_ID.length);
 					long parId = Long.parseLong(parIdStr);
-					value.setParentId(parId);
+					meta.setParentId(parId);
 				}
 				parBuf.reset();
 			}
@@ -168,7 +308,7 @@ public class WikiRevisionDiffInputFormat
 					String ts = new String(timestampBuf.getData(), 0, timestampBuf.getLength() 
 							- END_TIMESTAMP.length);
 					long timestamp = TIME_FORMAT.parseMillis(ts);
-					value.setTimestamp(timestamp);
+					meta.setTimestamp(timestamp);
 				}
 				timestampBuf.reset();
 			}
@@ -178,7 +318,7 @@ public class WikiRevisionDiffInputFormat
 					String idStr = new String(revIdBuf.getData(), 0, revIdBuf.getLength()
 							- END_ID.length);
 					long revId = Long.parseLong(idStr);
-					value.setRevisionId(revId);
+					meta.setRevisionId(revId);
 				}
 				revIdBuf.reset();
 			}
@@ -189,7 +329,7 @@ public class WikiRevisionDiffInputFormat
 							- END_ID.length);
 					long pageId = Long.parseLong(idStr);
 					key.set(pageId);
-					value.setPageId(pageId);
+					meta.setPageId(pageId);
 				}
 				keyBuf.reset();
 			}
@@ -201,14 +341,14 @@ public class WikiRevisionDiffInputFormat
 				if (ns != 0) {
 					skipped = skipNonArticles;					
 				}
-				value.setNamespace(ns);
+				meta.setNamespace(ns);
 				nsBuf.reset();
 			}
 
 			else if (flag == 4) {
 				String title = new String(pageTitle.getData(), 0, pageTitle.getLength()
 						- END_TITLE.length);
-				value.setPageTitle(title);
+				meta.setPageTitle(title);
 				pageTitle.reset();
 			}
 
@@ -219,34 +359,79 @@ public class WikiRevisionDiffInputFormat
 
 		}
 
-		public static List<String> extractParagraph(byte[] b, int offset, int len) 
-				throws UnsupportedEncodingException {
-			List<String> res = new LinkedList<>();		
-			if (b != null && b.length > 0) {
-				int start = offset;
-				int i = offset;
-				while (i < len) {
-					char c = (char) (((b[i] & 0xFF) << 8) + (b[i+1] & 0xFF));
-					if (c == '\n') {
-						String s = new String(b,start,i,"UTF-8");
-						res.add(s);
-
-						while (Character.isWhitespace(c)) {
-							i += 2;
-							c = (char) (((b[i] & 0xFF) << 8) + (b[i+1] & 0xFF));							
-						}	
-						start = i;
-					}
-					else {
-						i += 2;
-					}
-				}
-				if (start < i) {
-					String s = new String(b,start,i,"UTF-8");
-					res.add(s);
-				}
+		/** Fill the value with the edits of last into cur */
+		private void emit(RevisionHeader header, List<Edit> edits, 
+				boolean coarse, Paragraphs last, Paragraphs cur, 
+				ParagraphHasher h) throws IOException {
+			if (moves != null) {
+				edits = moves.detect(last.ids(), cur.ids(), edits, h);
+			}
+
+			// only the changed paragraphs are copied
+			value.clearDeltas();
+			value.clone(header);
+			key.set(header.getPageId());
+			for (Edit e : edits) {
+				addDelta(e, last, cur, h);
+			}
+			if (coarse) {
+				value.setCoarse(true);
+				context.getCounter(DiffCounters.COARSE_DIFFS).increment(1);
+			}
+		}
+
+		private void addDelta(Edit e, Paragraphs last, Paragraphs cur, 
+				ParagraphHasher h) throws IOException {
+			value.addDelta(CompactRevisionDiff.typeOf(e.getType()), 
+					e.getBeginA(), e.getLengthA(), e.getBeginB(), e.getLengthB());
+			if (e.getType() == Edit.Type.MOVE) {
+				return;
+			}
+			for (int i = e.getBeginA(); i < e.getEndA(); i++) {
+				addLine(last.id(i), h);
+			}
+			for (int i = e.getBeginB(); i < e.getEndB(); i++) {
+				addLine(cur.id(i), h);
+			}
+		}
+
+		private void addLine(int id, ParagraphHasher h) throws IOException {
+			value.addLine(h.bytes(), h.offset(id), h.length(id));
+		}
+
+		/**
+		 * The diff of one revision, run by a diff thread. It holds copies of
+		 * both paragraph lists and the hasher that gave their ids, so that
+		 * the reader can go on with the next revisions and pages
+		 */
+		private class DiffJob implements Callable<List<Edit>> {
+
+			private final RevisionHeader header = new RevisionHeader();
+			private final Paragraphs last = new Paragraphs();
+			private final Paragraphs cur = new Paragraphs();
+			private final ParagraphHasher hasher;
+			private final int maxId;
+			private Future<List<Edit>> result;
+
+			// set by the diff thread, read after result.get()
+			private boolean coarse;
+
+			private DiffJob() {
+				header.clone(meta);
+				last.copy(lastRevText);
+				cur.copy(curRevText);
+				hasher = DiffReader.this.hasher;
+				maxId = hasher.maxId();
+			}
+
+			@Override
+			public List<Edit> call() {
+				HistogramDiff d = differs.get();
+				List<Edit> edits = d.diff(last.ids(), last.size(), cur.ids(), 
+						cur.size(), maxId);
+				coarse = d.isCoarse();
+				return edits;
 			}
-			return res;
 		}
 
 		@Override
@@ -64,8 +64,12 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 	// Additional states:
 	// 20 - just passed the <contributor>
 	// 21 - just passed the </contributor> but outside the <comment>
-	// 23 - just passed the <comment> (optionally)
-	// 24 - just passed the </comment> but outside the <text>
+	// 22 - just passed the <comment> (optionally)
+	// 23 - just passed the </comment> but outside the <text>
+	//
+	// After the </text> (flag 17):
+	// 24 - just passed the <sha1>
+	// 25 - just passed the </sha1>, back to searching for </revision>
 	//
 	public static class RevisionReader extends WikiRevisionReader<FullRevision> {
 
@@ -120,12 +124,29 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 		private DataOutputBuffer contribBuf = new DataOutputBuffer();	
 		private DataOutputBuffer commentBuf = new DataOutputBuffer();	
 
+		private DataOutputBuffer sha1Buf = new DataOutputBuffer();
+
+		// identity revert detection within one page
+		private RevertDetector reverts;
+
+		// similarity to the previous revision, null when not wanted
+		private RevisionMetrics metrics;
+
 		@Override
 		public void initialize(InputSplit input, TaskAttemptContext tac)
 				throws IOException, InterruptedException {
 			super.initialize(input, tac);
 			value = new FullRevision(); 
 			this.context = tac;
+			reverts = new RevertDetector(tac.getConfiguration());
+			metrics = tac.getConfiguration().getBoolean(METRICS, false) 
+					? new RevisionMetrics() : null;
+		}
+
+		@Override
+		protected void resync() {
+			super.resync();
+			resetEverything();
 		}
 
 		private void resetEverything() {			
@@ -141,6 +162,11 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 
 			contribBuf.reset();
 			commentBuf.reset();
+			sha1Buf.reset();
+			reverts.newPage();
+			if (metrics != null) {
+				metrics.newPage();
+			}
 
 			skipped = false;
 			revOrPage = -1;
@@ -155,13 +181,38 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 				resetEverything();
 			} 
 			else if (flag == 18) {
-				if (!skipped)
-					return STATE.STOP_TRUE;
+				if (!skipped) {
+					byte[] text = value.getText();
+					boolean revert = reverts.check(value, text, 0, 
+							(text == null) ? 0 : value.getLength());
+					if (!revert)
+						return STATE.STOP_TRUE;
+				}
+			}
+			else if (flag == 25) {
+				if (!skipped && sha1Buf.getLength() > END_SHA1.length) {
+					value.setSha1(new String(sha1Buf.getData(), 0, 
+							sha1Buf.getLength() - END_SHA1.length, 
+							StandardCharsets.UTF_8));
+				}
+				sha1Buf.reset();
+
+				// continue searching for the </revision>
+				flag = 17;
+			}
+			else if (flag == 9) {
+				value.setSha1(null);
 			}
 			else if (flag == 17) {
 				if (!skipped) {
 					value.loadText(contentBuf.getData(), 0, contentBuf.getLength() 
 							- END_TEXT.length);
+					if (metrics != null) {
+						metrics.reset();
+						metrics.update(contentBuf.getData(), 0, contentBuf.getLength()
+								- END_TEXT.length);
+						metrics.finish(value);
+					}
 				}
 
 				// reset big chunk of data right away to save memory
@@ -256,6 +307,7 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 			if (buf == null && pos.length != 2)
 				throw new IOException("Internal buffer corrupted.");
 			int i = 0;
+			int j = 0;
 			while (true) {
 				if (pos[0] == pos[1]) {				
 					// We use a thread that pings back to the cluster every 5 minutes
@@ -539,7 +591,7 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 						}		
 					}
 
-					// Everything within <contributor></contributor> goes into commentBuf
+					// Everything within <comment></comment> goes into commentBuf
 					else if (flag == 22) {
 						if (b == END_COMMENT[i]) {
 							i++;
@@ -574,7 +626,7 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 						}
 					}
 
-					// look for the closing </revision>
+					// look for the closing </revision>, and the <sha1> on the way
 					else if (flag == 17) {
 						if (b == END_REVISION[i]) {
 							i++;
@@ -583,6 +635,25 @@ WikiRevisionInputFormat<LongWritable, FullRevision> {
 							flag = 18;
 							return true;
 						}
+						if (b == START_SHA1[j]) {
+							j++;
+						} else j = 0;
+						if (j >= START_SHA1.length) {
+							flag = 24;
+							return true;
+						}
+					}
+
+					// everything within <sha1></sha1> goes into sha1Buf
+					else if (flag == 24) {
+						if (b == END_SHA1[i]) {
+							i++;
+						} else i = 0;
+						sha1Buf.write(b);
+						if (i >= END_SHA1.length) {
+							flag = 25;
+							return true;
+						}
 					}
 
 					// Flag 16 can be the signal of a new record inside one old page
@@ -45,6 +45,7 @@ import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.log4j.Logger;
 import org.hedera.io.RevisionSplits;
+import org.hedera.io.etl.RevisionSamplers;
 import org.hedera.util.ByteMatcher;
 import org.hedera.util.SeekableInputStream;
 import org.joda.time.format.DateTimeFormatter;
@@ -75,6 +76,52 @@ extends FileInputFormat<KEYIN, VALUEIN> {
 	public static final String SKIP_NON_ARTICLES = "org.hedera.input.onlyarticle"; 
 	public static final String SKIP_REDIRECT = "org.hedera.input.noredirects"; 
 
+	// On malformed pages, log and skip to the next page instead of failing the task
+	public static final String RESYNC_ON_ERROR = "org.hedera.input.resync";
+
+	/** Counters of the pages that the readers could not parse */
+	public static enum ParseCounters {
+		MALFORMED_PAGES
+	}
+
+	// Bound the element comparisons of one diff between two revisions, 0 for
+	// no bound. Past the bound, the diff replaces the rest as a whole, and the
+	// record is marked coarse
+	public static final String DIFF_BUDGET = "org.hedera.input.diffbudget";
+
+	// Report the paragraphs that a revision only moved as moves, instead of
+	// deleting them at one place and inserting them at another (default)
+	public static final String DIFF_MOVES = "org.hedera.input.diffmoves";
+
+	// Threads that diff the revisions while the reader scans ahead, 0 to
+	// diff in the reading thread (default). The records keep their order
+	public static final String DIFF_THREADS = "org.hedera.input.diffthreads";
+
+	// Distinct paragraph bytes that a diff reader keeps for one page before
+	// it drops the paragraphs that the last revision does not have
+	public static final String DIFF_MEMORY = "org.hedera.input.diffmemory";
+
+	/** Counters of the diffs that ran out of budget */
+	public static enum DiffCounters {
+		COARSE_DIFFS
+	}
+
+	// How to handle revisions whose text already occurred earlier in the page:
+	// none, mark (set RevisionHeader.revertOf) or skip
+	public static final String REVERT_MODE = "org.hedera.input.reverts";
+
+	// Compute the SimHash fingerprint of the text (RevisionHeader.simHash)
+	// while it is read. ETL readers also compute it when a sampler needs it
+	public static final String SIMHASH = "org.hedera.input.simhash";
+
+	// Compare each revision with the previous one of the page while it is
+	// read (RevisionHeader.lengthDelta, jaccard and editRatio)
+	public static final String METRICS = "org.hedera.input.metrics";
+
+	// Incremental mode: skip the revisions up to the high-water mark of their
+	// page, as given in the RevisionWatermarks of a previous run at this path
+	public static final String WATERMARKS = "org.hedera.input.watermarks";
+
 	public static final String REVISION_BEGIN_TIME = "org.hedera.input.begintime";
 	public static final String REVISION_END_TIME = "org.hedera.input.begintime";
 	
@@ -110,9 +157,11 @@ extends FileInputFormat<KEYIN, VALUEIN> {
 			.getBytes(StandardCharsets.UTF_8);
 	public static final byte[] END_TEXT = "</text>".getBytes(StandardCharsets.UTF_8);
 
-	public static final byte[] START_PARENT_ID = "<text xml:space=\"preserve\">"
-			.getBytes(StandardCharsets.UTF_8);
-	public static final byte[] END_PARENT_ID = "</text>".getBytes(StandardCharsets.UTF_8);	
+	public static final byte[] START_PARENT_ID = "<parentid>".getBytes(StandardCharsets.UTF_8);
+	public static final byte[] END_PARENT_ID = "</parentid>".getBytes(StandardCharsets.UTF_8);	
+
+	public static final byte[] START_SHA1 = "<sha1>".getBytes(StandardCharsets.UTF_8);
+	public static final byte[] END_SHA1 = "</sha1>".getBytes(StandardCharsets.UTF_8);
 
 	public static final byte[] MINOR_TAG = "<minor/>".getBytes(StandardCharsets.UTF_8);
 
@@ -169,6 +218,10 @@ extends FileInputFormat<KEYIN, VALUEIN> {
 		// Check the index before performing the split on the physical files
 		Configuration conf = jc.getConfiguration();
 
+		// the tasks must agree on the time the age of a revision is
+		// measured from. The configuration is submitted after the splits
+		RevisionSamplers.pinReferenceTime(conf);
+
 		String mapFile = conf.get(SPLIT_MAPFILE_LOC);
 		MapFile.Reader reader = null;
 		Text key = null;
@@ -93,6 +93,12 @@ public class WikiRevisionPageInputFormat extends
 			this.context = tac;
 		}
 
+		@Override
+		protected void resync() {
+			super.resync();
+			resetEverything();
+		}
+
 		private void resetEverything() {			
 			keyBuf.reset();
 			pageTitle.reset();
@@ -20,14 +20,19 @@ import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.log4j.Logger;
+import org.hedera.io.input.WikiRevisionInputFormat.ParseCounters;
 
 import static org.hedera.io.input.WikiRevisionInputFormat.SKIP_NON_ARTICLES;
 import static org.hedera.io.input.WikiRevisionInputFormat.REVISION_BEGIN_TIME;
 import static org.hedera.io.input.WikiRevisionInputFormat.REVISION_END_TIME;
+import static org.hedera.io.input.WikiRevisionInputFormat.RESYNC_ON_ERROR;
 
 public abstract class WikiRevisionReader<VALUEIN> extends 
 RecordReader<LongWritable, VALUEIN> {
 
+	private static final Logger LOG = Logger.getLogger(WikiRevisionReader.class);
+
 	protected static long DEFAULT_MAX_BLOCK_SIZE = 134217728l;
 
 	// A state after processing one valid tag
@@ -72,6 +77,10 @@ RecordReader<LongWritable, VALUEIN> {
 
 	protected boolean skipped = false;
 
+	// skip malformed pages instead of failing
+	protected boolean resync = false;
+	private TaskAttemptContext taskContext;
+
 	@Override
 	public void initialize(InputSplit input, TaskAttemptContext tac)
 			throws IOException, InterruptedException {
@@ -120,6 +129,8 @@ RecordReader<LongWritable, VALUEIN> {
 		skipNonArticles = conf.getBoolean(SKIP_NON_ARTICLES, true);
 		minTime = conf.getLong(REVISION_BEGIN_TIME, 0);
 		maxTime = conf.getLong(REVISION_END_TIME, Long.MAX_VALUE);
+		resync = conf.getBoolean(RESYNC_ON_ERROR, false);
+		taskContext = tac;
 	}
 
 	protected static void setBlockSize(Configuration conf) {
@@ -154,9 +165,21 @@ RecordReader<LongWritable, VALUEIN> {
 
 	@Override	
 	public boolean nextKeyValue() throws IOException, InterruptedException {
-		if (fsin.getPos() < end) {
+		if (!pastEnd()) {
 			while (readUntilMatch()) {
-				STATE state = doWhenMatch();
+				STATE state;
+				try {
+					state = doWhenMatch();
+				} catch (RuntimeException e) {
+					if (!resync) {
+						throw e;
+					}
+					LOG.warn("Skipping malformed page " + key.get() + " at offset "
+							+ fsin.getPos() + ": " + e.getMessage());
+					taskContext.getCounter(ParseCounters.MALFORMED_PAGES).increment(1);
+					resync();
+					continue;
+				}
 				if (state == STATE.STOP_TRUE) 
 					return true;
 				else if (state == STATE.STOP_FALSE)
@@ -166,6 +189,26 @@ RecordReader<LongWritable, VALUEIN> {
 		return false;
 	}
 
+	/** Whether the reader has consumed the split. The stream itself is
+	 * ahead by the buffered bytes, so it only counts when compressed */
+	protected boolean pastEnd() throws IOException {
+		long p = fsin.getPos();
+		if (!compressed && pos[1] > pos[0]) {
+			p -= pos[1] - pos[0];
+		}
+		return p >= end;
+	}
+
+	/**
+	 * Drop the current page and scan forward to the next <page>. Readers that
+	 * cache page data must override this and clear their caches as well
+	 */
+	protected void resync() {
+		keyBuf.reset();
+		skipped = false;
+		flag = 1;
+	}
+
 	/** What to do when encountering one relevant tag */
 	protected abstract STATE doWhenMatch() throws IOException, InterruptedException;
 
@@ -0,0 +1,54 @@
+package org.hedera.mapreduce;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.hedera.io.FullRevision;
+import org.hedera.io.columnar.RevisionColumnOutputFormat;
+import org.hedera.io.input.WikiRevisionFullInputFormat;
+import org.hedera.io.input.WikiRevisionInputFormat;
+
+import tuan.hadoop.conf.JobConfig;
+
+/**
+ * Convert the XML revision history dumps into the columnar revision store,
+ * so that header-only jobs can later read them via RevisionColumnInputFormat.
+ * Command line arguments: [NAME] [INPUTDIR] [OUTPUTDIR]
+ * @author tuan
+ */
+public class BuildColumnStore extends JobConfig implements Tool {
+
+	@Override
+	public int run(String[] args) throws Exception {
+		String name = args[0];
+		String inputDir = args[1];
+		String outputDir = args[2];
+
+		setMapperSize("-Xmx2048m");
+
+		// skip non-article
+		getConf().setBoolean(WikiRevisionInputFormat.SKIP_NON_ARTICLES, true);
+
+		// map-only: one columnar file per split of the dump
+		Job job = setup("Hedera: " + name,
+				BuildColumnStore.class, inputDir, outputDir,
+				WikiRevisionFullInputFormat.class, RevisionColumnOutputFormat.class,
+				LongWritable.class, FullRevision.class,
+				LongWritable.class, FullRevision.class,
+				Mapper.class, Reducer.class, 0);
+
+		job.waitForCompletion(true);
+		return 0;
+	}
+
+	public static void main(String[] args) {
+		try {
+			ToolRunner.run(new BuildColumnStore(), args);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
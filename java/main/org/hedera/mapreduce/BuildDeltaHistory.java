@@ -0,0 +1,89 @@
+package org.hedera.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.hedera.io.Revision;
+import org.hedera.io.delta.DeltaRevision;
+import org.hedera.io.delta.DeltaRevisionEncoder;
+import org.hedera.io.input.WikiRevisionFullInputFormat;
+import org.hedera.io.input.WikiRevisionInputFormat;
+
+import tuan.hadoop.conf.JobConfig;
+
+/**
+ * Write the revision history as keyframes plus byte deltas. The input can be
+ * read by any input format that emits revisions with text grouped by page
+ * (WikiRevisionFullInputFormat by default). The output is read back with
+ * DeltaRevisionInputFormat.
+ * Command line arguments: [NAME] [INPUTDIR] [OUTPUTDIR] ([INPUTFORMAT])
+ * @author tuan
+ */
+public class BuildDeltaHistory extends JobConfig implements Tool {
+
+	private static final class MyMapper
+			extends Mapper<LongWritable, Revision, LongWritable, DeltaRevision> {
+
+		private DeltaRevisionEncoder encoder;
+		private final DeltaRevision valOut = new DeltaRevision();
+
+		@Override
+		protected void setup(Context context) throws IOException,
+				InterruptedException {
+			encoder = new DeltaRevisionEncoder(context.getConfiguration());
+		}
+
+		@Override
+		protected void map(LongWritable key, Revision value, Context context)
+				throws IOException, InterruptedException {
+			encoder.encode(value, valOut);
+			context.write(key, valOut);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public int run(String[] args) throws Exception {
+		String name = args[0];
+		String inputDir = args[1];
+		String outputDir = args[2];
+		Class<? extends InputFormat<?, ?>> inputFormat =
+				WikiRevisionFullInputFormat.class;
+		if (args.length > 3) {
+			inputFormat = (Class<? extends InputFormat<?, ?>>)
+					Class.forName(args[3]);
+		}
+
+		setMapperSize("-Xmx2048m");
+
+		// skip non-article
+		getConf().setBoolean(WikiRevisionInputFormat.SKIP_NON_ARTICLES, true);
+
+		// map-only, so that the revisions of one page stay in one file,
+		// in the order of the dump
+		Job job = setup("Hedera: " + name,
+				BuildDeltaHistory.class, inputDir, outputDir,
+				inputFormat, SequenceFileOutputFormat.class,
+				LongWritable.class, DeltaRevision.class,
+				LongWritable.class, DeltaRevision.class,
+				MyMapper.class, Reducer.class, 0);
+
+		job.waitForCompletion(true);
+		return 0;
+	}
+
+	public static void main(String[] args) {
+		try {
+			ToolRunner.run(new BuildDeltaHistory(), args);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package org.hedera.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MapFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.hedera.io.etl.RevisionIdsFormat;
+import org.hedera.io.input.WikiRevisionInputFormat;
+
+import edu.umd.cloud9.io.pair.PairOfLongs;
+import tuan.hadoop.conf.JobConfig;
+
+/**
+ * Write the high-water marks of a dump, i.e. the id and timestamp of the
+ * last revision of every page, for the incremental mode of the readers
+ * (see WikiRevisionInputFormat.WATERMARKS). When the watermarks of the
+ * previous run are given, only the new revisions of the dump are scanned
+ * and the result is merged with the old marks.
+ * Command line arguments: [NAME] [INPUTDIR] [OUTPUTDIR] [REDUCENO] 
+ * ([OLD WATERMARKS])
+ * @author tuan
+ */
+public class BuildRevisionWatermarks extends JobConfig implements Tool {
+
+	// keep the latest revision of the page
+	private static final class MyReducer extends 
+			Reducer<LongWritable, PairOfLongs, LongWritable, PairOfLongs> {
+
+		private PairOfLongs valOut = new PairOfLongs();
+
+		@Override
+		protected void reduce(LongWritable k, Iterable<PairOfLongs> vs,
+				Context context) throws IOException, InterruptedException {
+			valOut.set(0, 0);
+			for (PairOfLongs v : vs) {
+				if (v.getLeftElement() > valOut.getLeftElement()) {
+					valOut.set(v.getLeftElement(), v.getRightElement());
+				}
+			}
+			context.write(k, valOut);
+		}
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		String name = args[0];
+		String inputDir = args[1];
+		String outputDir = args[2];
+		int reduceNo = Integer.parseInt(args[3]);
+		String oldDir = (args.length > 4) ? args[4] : null;
+
+		// skip non-article
+		getConf().setBoolean(WikiRevisionInputFormat.SKIP_NON_ARTICLES, true);
+
+		// skip what the old marks already cover
+		if (oldDir != null) {
+			getConf().set(WikiRevisionInputFormat.WATERMARKS, oldDir);
+		}
+
+		Job job = setup("Hedera: " + name,
+				BuildRevisionWatermarks.class, inputDir, outputDir,
+				RevisionIdsFormat.class, MapFileOutputFormat.class,
+				LongWritable.class, PairOfLongs.class, 
+				LongWritable.class, PairOfLongs.class,
+				Mapper.class, MyReducer.class, reduceNo);
+		job.setCombinerClass(MyReducer.class);
+
+		if (oldDir != null) {
+			MultipleInputs.addInputPath(job, new Path(inputDir), 
+					RevisionIdsFormat.class);
+			MultipleInputs.addInputPath(job, new Path(oldDir), 
+					SequenceFileInputFormat.class);
+		}
+
+		job.waitForCompletion(true);
+		return 0;
+	}
+
+	public static void main(String[] args) {
+		try {
+			ToolRunner.run(new BuildRevisionWatermarks(), args);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
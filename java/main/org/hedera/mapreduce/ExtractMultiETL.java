@@ -0,0 +1,99 @@
+package org.hedera.mapreduce;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.output.LazyOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.hedera.io.etl.ETLRecord;
+import org.hedera.io.etl.MultiRevisionETLInputFormat;
+import org.hedera.io.etl.NamedETLExtractor;
+import org.hedera.io.input.WikiRevisionInputFormat;
+
+import tuan.hadoop.conf.JobConfig;
+
+/**
+ * Run several ETL extractors in one pass over the revision history dumps.
+ * The records of each extractor go to the named output of the same name,
+ * i.e. to OUTPUTDIR/[name]-m-xxxxx sequence files.
+ * Command line arguments: [NAME] [INPUTDIR] [OUTPUTDIR] [EXTRACTORS], where
+ * EXTRACTORS is a comma-separated list of NamedETLExtractor class names,
+ * e.g. org.hedera.io.etl.NamedLinkExtractor,org.hedera.io.etl.NamedIdExtractor
+ * @author tuan
+ */
+public class ExtractMultiETL extends JobConfig implements Tool {
+
+	private static final class MyMapper extends 
+			Mapper<Text, ETLRecord, NullWritable, NullWritable> {
+
+		private MultipleOutputs<NullWritable, NullWritable> mos;
+
+		@Override
+		protected void setup(Context context) throws IOException,
+				InterruptedException {
+			mos = new MultipleOutputs<>(context);
+		}
+
+		@Override
+		protected void map(Text name, ETLRecord record, Context context)
+				throws IOException, InterruptedException {
+			mos.write(name.toString(), record.getKey(), record.getValue());
+		}
+
+		@Override
+		protected void cleanup(Context context) throws IOException,
+				InterruptedException {
+			mos.close();
+		}
+	}
+
+	@Override
+	public int run(String[] args) throws Exception {
+		String name = args[0];
+		String inputDir = args[1];
+		String outputDir = args[2];
+		String extractors = args[3];
+
+		setMapperSize("-Xmx2048m");
+
+		// skip non-article
+		getConf().setBoolean(WikiRevisionInputFormat.SKIP_NON_ARTICLES, true);
+		getConf().set(MultiRevisionETLInputFormat.EXTRACTORS_OPT, extractors);
+
+		// map-only: everything is written via the named outputs
+		Job job = setup("Hedera: " + name,
+				ExtractMultiETL.class, inputDir, outputDir,
+				MultiRevisionETLInputFormat.class, SequenceFileOutputFormat.class,
+				NullWritable.class, NullWritable.class,
+				NullWritable.class, NullWritable.class,
+				MyMapper.class, Reducer.class, 0);
+
+		for (NamedETLExtractor<?, ?> e : 
+				MultiRevisionETLInputFormat.getExtractors(job.getConfiguration())) {
+			MultipleOutputs.addNamedOutput(job, e.getName(),
+					SequenceFileOutputFormat.class, e.getKeyClass(),
+					e.getValueClass());
+		}
+
+		// do not create the empty default part files
+		LazyOutputFormat.setOutputFormatClass(job, SequenceFileOutputFormat.class);
+
+		job.waitForCompletion(true);
+		return 0;
+	}
+
+	public static void main(String[] args) {
+		try {
+			ToolRunner.run(new ExtractMultiETL(), args);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package org.hedera.mapreduce;
 
 import java.io.IOException;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.cli.CommandLine;
@@ -19,19 +18,17 @@ import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
-import org.hedera.io.RevisionDiff;
+import org.hedera.io.CompactRevisionDiff;
+import org.hedera.io.CompactRevisionDiff.DeltaCursor;
 import org.hedera.io.input.WikiRevisionDiffInputFormat;
 import org.hedera.io.input.WikiRevisionInputFormat;
 import org.mortbay.log.Log;
 
 import com.google.common.collect.Lists;
 
-import difflib.Chunk;
-import difflib.Delta;
 import edu.umd.cloud9.io.pair.PairOfLongs;
 import tuan.hadoop.conf.JobConfig;
 import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
-import static org.hedera.io.RevisionDiff.opt2byte; 
 
 /**
  * This jobs extract temporal anchor text from Wikipedia revisions. Command line arguments:
@@ -52,7 +49,7 @@ public class ExtractTemporalAnchorText extends JobConfig implements Tool {
 	
 	// Algorithm:
 	// emit (id, rev diff) --> ((rev id, timestamp), text)
-	private static final class MyMapper extends Mapper<LongWritable, RevisionDiff, 
+	private static final class MyMapper extends Mapper<LongWritable, CompactRevisionDiff, 
 	PairOfLongs, Text> {
 
 		private PairOfLongs keyOut = new PairOfLongs();
@@ -69,7 +66,7 @@ public class ExtractTemporalAnchorText extends JobConfig implements Tool {
 		}
 
 		@Override
-		protected void map(LongWritable key, RevisionDiff value,
+		protected void map(LongWritable key, CompactRevisionDiff value,
 				Context context) throws IOException, InterruptedException {
 
 			// skip non-article pages
@@ -83,17 +80,16 @@ public class ExtractTemporalAnchorText extends JobConfig implements Tool {
 			long revId = value.getRevisionId();
 			long parId = value.getParentId();
 			String title = value.getPageTitle();
-			LinkedList<Delta> diffs = value.getDiffs();
+			DeltaCursor diff = value.deltas();
 
 			keyOut.set(revId, timestamp);
 
-			if (diffs != null) {
-				for (Delta diff : diffs) {
-					Chunk revi = diff.getRevised();
-					List<?> texts = revi.getLines();
-					for (Object obj : texts) {
-						String text = (String)obj;
-						List<Link> links = extractLinks(text);
+			while (diff.next()) {
+				while (diff.nextLine()) {
+
+					// only the new lines have anchors to emit
+					if (!diff.isOldLine()) {
+						List<Link> links = extractLinks(diff.getLine());
 						for (Link link : links) {							
 							StringBuilder sb = new StringBuilder();
 							
@@ -108,7 +104,7 @@ public class ExtractTemporalAnchorText extends JobConfig implements Tool {
 							sb.append("\t");
 							sb.append(parId);
 							sb.append("\t");
-							sb.append(opt2byte(diff.getType()));
+							sb.append(diff.getType());
 							sb.append("\t");
 							sb.append(title);
 							sb.append("\t");
@@ -74,10 +74,14 @@ public class WikiRevisionLoader extends LoadFunc implements LoadMetadata {
 				String comment = content.getComment();
 				int ns = content.getNamespace();
 				String text = new String(content.getText(), StandardCharsets.UTF_8);
+				int lengthDelta = content.getLengthDelta();
+				float jaccard = content.getJaccard();
+				float editRatio = content.getEditRatio();
 
 				return tuples.newTupleNoCopy(Arrays.asList(
 						pageId, title, ns, revId, parentId, 
-						ts, user, userId, comment, text));	
+						ts, user, userId, comment, text,
+						lengthDelta, jaccard, editRatio));	
 			}
 		} catch (InterruptedException e) {
 			throw new IOException(e);
@@ -88,6 +92,11 @@ public class WikiRevisionLoader extends LoadFunc implements LoadMetadata {
 	@Override
 	public void setLocation(String loc, Job job) throws IOException {
 		setInputPaths(job, loc);
+
+		// the similarity fields are on unless the script turns them off
+		if (job.getConfiguration().get(WikiRevisionInputFormat.METRICS) == null) {
+			job.getConfiguration().setBoolean(WikiRevisionInputFormat.METRICS, true);
+		}
 	}
 
 	@Override
@@ -134,6 +143,11 @@ public class WikiRevisionLoader extends LoadFunc implements LoadMetadata {
 		schema.add(new FieldSchema("comment", DataType.CHARARRAY));
 		schema.add(new FieldSchema("text", DataType.CHARARRAY));
 
+		// similarity to the previous revision of the page
+		schema.add(new FieldSchema("length_delta", DataType.INTEGER));
+		schema.add(new FieldSchema("jaccard", DataType.FLOAT));
+		schema.add(new FieldSchema("edit_ratio", DataType.FLOAT));
+
 		this.schema = new ResourceSchema(schema);
 	}
 }
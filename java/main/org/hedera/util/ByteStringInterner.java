@@ -0,0 +1,174 @@
+package org.hedera.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps byte strings (e.g. user names read from the dump) to dense int ids,
+ * starting from 1. A string seen before is looked up from its bytes
+ * directly, so repeated names cost neither a String nor a map entry.
+ * @author tuan
+ */
+public class ByteStringInterner {
+
+	private static final int INITIAL_ARENA = 1 << 16;
+	private static final int INITIAL_IDS = 1024;
+	private static final int INITIAL_TABLE = 2048;
+
+	// clear() gives back the memory of arrays that are this many times
+	// bigger than what the strings since the last clear() needed
+	private static final int SHRINK = 8;
+
+	// the bytes of all strings, one after the other
+	private byte[] arena = new byte[INITIAL_ARENA];
+	private int arenaLen;
+
+	// per id: offset in the arena, length, hash, and the decoded String
+	private int[] offsets = new int[INITIAL_IDS];
+	private int[] lengths = new int[INITIAL_IDS];
+	private int[] hashes = new int[INITIAL_IDS];
+	private String[] strings = new String[INITIAL_IDS];
+	private int size;
+
+	// open addressing table of ids, 0 is empty
+	private int[] table = new int[INITIAL_TABLE];
+
+	private static int hash(byte[] b, int offset, int len) {
+		return (int) TextHash.hash(b, offset, len);
+	}
+
+	/** The id of the string, interned if it is new */
+	public int intern(byte[] b, int offset, int len) {
+		int h = hash(b, offset, len);
+		int mask = table.length - 1;
+		int slot = h & mask;
+		while (table[slot] != 0) {
+			int id = table[slot];
+			if (hashes[id] == h && lengths[id] == len && equals(id, b, offset)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int id = ++size;
+		if (id >= offsets.length) {
+			int n = offsets.length * 2;
+			offsets = Arrays.copyOf(offsets, n);
+			lengths = Arrays.copyOf(lengths, n);
+			hashes = Arrays.copyOf(hashes, n);
+			strings = Arrays.copyOf(strings, n);
+		}
+		if (arenaLen + len > arena.length) {
+			arena = Arrays.copyOf(arena, Math.max(arena.length * 2, 
+					arenaLen + len));
+		}
+		System.arraycopy(b, offset, arena, arenaLen, len);
+		offsets[id] = arenaLen;
+		lengths[id] = len;
+		hashes[id] = h;
+		arenaLen += len;
+		table[slot] = id;
+
+		// keep the table at most half full
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/** The id of a string of another interner */
+	public int intern(ByteStringInterner other, int id) {
+		return intern(other.arena, other.offsets[id], other.lengths[id]);
+	}
+
+	public int intern(String s) {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		return intern(b, 0, b.length);
+	}
+
+	private boolean equals(int id, byte[] b, int offset) {
+		int o = offsets[id];
+		for (int k = 0; k < lengths[id]; k++) {
+			if (arena[o + k] != b[offset + k]) return false;
+		}
+		return true;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+		for (int id = 1; id <= size; id++) {
+			int slot = hashes[id] & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id;
+		}
+	}
+
+	/** The string of an id, decoded once and shared afterwards */
+	public String get(int id) {
+		if (id <= 0 || id > size) {
+			return null;
+		}
+		if (strings[id] == null) {
+			strings[id] = new String(arena, offsets[id], lengths[id],
+					StandardCharsets.UTF_8);
+		}
+		return strings[id];
+	}
+
+	/** The bytes of the strings: the one of an id is at offset(id) */
+	public byte[] bytes() {
+		return arena;
+	}
+
+	public int offset(int id) {
+		return offsets[id];
+	}
+
+	public int length(int id) {
+		return lengths[id];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** The bytes kept for all strings */
+	public long memory() {
+		return arenaLen;
+	}
+
+	/**
+	 * Forget all strings. This costs the strings that were interned, not
+	 * the largest size ever reached: the arrays are kept, unless they grew
+	 * far beyond what these strings needed (e.g. for one huge page)
+	 */
+	public void clear() {
+		if (table.length > SHRINK * Math.max(INITIAL_TABLE, 2 * size)) {
+			table = new int[INITIAL_TABLE];
+		} else {
+			int mask = table.length - 1;
+			for (int id = 1; id <= size; id++) {
+				int slot = hashes[id] & mask;
+				while (table[slot] != id) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = 0;
+			}
+		}
+		if (offsets.length > SHRINK * Math.max(INITIAL_IDS, size + 1)) {
+			offsets = new int[INITIAL_IDS];
+			lengths = new int[INITIAL_IDS];
+			hashes = new int[INITIAL_IDS];
+			strings = new String[INITIAL_IDS];
+		} else {
+			Arrays.fill(strings, 1, size + 1, null);
+		}
+		if (arena.length > SHRINK * Math.max(INITIAL_ARENA, arenaLen)) {
+			arena = new byte[INITIAL_ARENA];
+		}
+		size = 0;
+		arenaLen = 0;
+	}
+}
@@ -0,0 +1,104 @@
+package org.hedera.util;
+
+/**
+ * An incremental 64-bit SimHash over the words of a text, fed byte by byte
+ * while the text streams through a reader. Words are runs of ASCII letters
+ * and digits (lower-cased) and of non-ASCII bytes, so whitespace and
+ * punctuation changes do not move the fingerprint. Texts that share most
+ * of their words have fingerprints within a small Hamming distance.
+ * @author tuan
+ */
+public class SimHash {
+
+	private final int[] weights = new int[64];
+
+	// hash of the word being read, and of the last finished word which is
+	// only added when the next word starts (see finish())
+	private long word = TextHash.OFFSET;
+	private boolean inWord;
+	private long last;
+	private boolean hasLast;
+
+	public void reset() {
+		for (int k = 0; k < 64; k++) {
+			weights[k] = 0;
+		}
+		word = TextHash.OFFSET;
+		inWord = false;
+		hasLast = false;
+	}
+
+	public void update(byte b) {
+		int c = b & 0xff;
+		if (c >= 'A' && c <= 'Z') {
+			c += 'a' - 'A';
+		}
+		if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c >= 0x80) {
+			if (!inWord) {
+				if (hasLast) {
+					add(last);
+					hasLast = false;
+				}
+				inWord = true;
+				word = TextHash.OFFSET;
+			}
+			word = TextHash.update(word, (byte) c);
+		}
+		else if (inWord) {
+			inWord = false;
+			last = word;
+			hasLast = true;
+		}
+	}
+
+	public void update(byte[] b, int offset, int len) {
+		for (int i = offset; i < offset + len; i++) {
+			update(b[i]);
+		}
+	}
+
+	private void add(long h) {
+		for (int k = 0; k < 64; k++) {
+			weights[k] += ((h >>> k) & 1) == 0 ? -1 : 1;
+		}
+	}
+
+	/**
+	 * The fingerprint of the text so far. With dropLast, the last word is
+	 * not counted: readers feed the closing </text> tag too, whose name is
+	 * then the last word
+	 */
+	public long finish(boolean dropLast) {
+		if (inWord) {
+			inWord = false;
+			last = word;
+			hasLast = true;
+		}
+		if (hasLast && !dropLast) {
+			add(last);
+		}
+		hasLast = false;
+		long res = 0;
+		for (int k = 0; k < 64; k++) {
+			if (weights[k] > 0) {
+				res |= 1l << k;
+			}
+		}
+		return res;
+	}
+
+	public static long hash(byte[] b, int offset, int len) {
+		SimHash sh = new SimHash();
+		sh.update(b, offset, len);
+		return sh.finish(false);
+	}
+
+	public static int distance(long a, long b) {
+		return Long.bitCount(a ^ b);
+	}
+
+	/** 1 for identical fingerprints, 0 for complementary ones */
+	public static float similarity(long a, long b) {
+		return 1f - distance(a, b) / 64f;
+	}
+}
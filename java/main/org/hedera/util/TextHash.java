@@ -0,0 +1,32 @@
+package org.hedera.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fast 64-bit FNV-1a hash over raw bytes, used to identify revision
+ * texts without keeping them in memory
+ * @author tuan
+ */
+public class TextHash {
+
+	public static final long OFFSET = 0xcbf29ce484222325L;
+	public static final long PRIME = 0x100000001b3L;
+
+	/** Feed one more byte into the hash, starting from {@link #OFFSET} */
+	public static long update(long h, byte b) {
+		return (h ^ (b & 0xff)) * PRIME;
+	}
+
+	public static long hash(byte[] b, int offset, int len) {
+		long h = OFFSET;
+		for (int i = offset; i < offset + len; i++) {
+			h = (h ^ (b[i] & 0xff)) * PRIME;
+		}
+		return h;
+	}
+
+	public static long hash(String s) {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		return hash(b, 0, b.length);
+	}
+}
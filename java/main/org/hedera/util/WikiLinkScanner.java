@@ -0,0 +1,148 @@
+package org.hedera.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Finds the wiki links [[target#section|anchor]] in the UTF-8 bytes of a
+ * revision text, without copying or decoding anything. After
+ * {@link #scan(byte[], int, int)}, link i is given by four ints in
+ * {@link #links()}: the offset and length of its target, then of its
+ * anchor text, all into the scanned array. Strings are decoded only by
+ * {@link #target(int)} and {@link #anchor(int)}.
+ * <p>
+ * The target stops at the first '#' (the section is dropped), and the
+ * anchor is the text after the first '|' that is not inside a template,
+ * or the target if there is none. Links whose target has a ':' (namespace
+ * and interwiki prefixes, categories, files) are skipped, as are empty
+ * targets such as [[#section|here]]. Links nested in another link, such as
+ * those in the caption of [[File:x.jpg|thumb|a [[caption]] link]], are
+ * found as well; links are reported in the order they close.
+ * @author tuan
+ */
+public class WikiLinkScanner {
+
+	// deeper nesting drops the outermost open links
+	private static final int MAX_OPEN = 16;
+
+	// per open link: start of its text, its '|' (or -1), and the template
+	// depth at its start
+	private final int[] open = new int[3 * MAX_OPEN];
+	private int openCount;
+
+	private int[] links = new int[4 * 64];
+	private int count;
+	private byte[] text;
+
+	/** Find the links of b[offset, offset + len), and return their number */
+	public int scan(byte[] b, int offset, int len) {
+		text = b;
+		count = 0;
+		openCount = 0;
+		int templates = 0;
+		int end = offset + len - 1;
+		for (int i = offset; i < end; i++) {
+			byte c = b[i];
+			byte d = b[i + 1];
+			if (c == '[' && d == '[') {
+				push(i + 2, templates);
+				i++;
+			} else if (c == ']' && d == ']' && openCount > 0) {
+				openCount--;
+				int k = 3 * openCount;
+				add(open[k], i, open[k + 1]);
+				i++;
+			} else if (c == '{' && d == '{') {
+				templates++;
+				i++;
+			} else if (c == '}' && d == '}' && templates > 0) {
+				templates--;
+				i++;
+			} else if (c == '|' && openCount > 0) {
+				int k = 3 * (openCount - 1);
+				if (open[k + 1] < 0 && open[k + 2] == templates) {
+					open[k + 1] = i;
+				}
+			}
+		}
+		return count;
+	}
+
+	private void push(int start, int templates) {
+		if (openCount == MAX_OPEN) {
+			System.arraycopy(open, 3, open, 0, 3 * (MAX_OPEN - 1));
+			openCount--;
+		}
+		int k = 3 * openCount++;
+		open[k] = start;
+		open[k + 1] = -1;
+		open[k + 2] = templates;
+	}
+
+	// the link text is text[start, end), with its first '|' at pipe
+	private void add(int start, int end, int pipe) {
+		int targetEnd = (pipe >= 0) ? pipe : end;
+		for (int i = start; i < targetEnd; i++) {
+			if (text[i] == '#') {
+				targetEnd = i;
+				break;
+			}
+			if (text[i] == ':') {
+				return;
+			}
+		}
+		if (targetEnd == start) {
+			return;
+		}
+		if (links.length < 4 * (count + 1)) {
+			links = Arrays.copyOf(links, links.length * 2);
+		}
+		int k = 4 * count++;
+		links[k] = start;
+		links[k + 1] = targetEnd - start;
+		if (pipe >= 0) {
+			links[k + 2] = pipe + 1;
+			links[k + 3] = end - pipe - 1;
+		} else {
+			links[k + 2] = start;
+			links[k + 3] = targetEnd - start;
+		}
+	}
+
+	/** The number of links of the last scan */
+	public int count() {
+		return count;
+	}
+
+	/** For every link: target offset, target length, anchor offset and
+	 * anchor length. Only the first 4 * count() are valid */
+	public int[] links() {
+		return links;
+	}
+
+	public int targetOffset(int i) {
+		return links[4 * i];
+	}
+
+	public int targetLength(int i) {
+		return links[4 * i + 1];
+	}
+
+	public int anchorOffset(int i) {
+		return links[4 * i + 2];
+	}
+
+	public int anchorLength(int i) {
+		return links[4 * i + 3];
+	}
+
+	public String target(int i) {
+		return new String(text, targetOffset(i), targetLength(i),
+				StandardCharsets.UTF_8);
+	}
+
+	public String anchor(int i) {
+		return new String(text, anchorOffset(i), anchorLength(i),
+				StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,52 @@
+package org.hedera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.delta.ByteDelta;
+import org.junit.Test;
+
+public class TestByteDelta {
+
+	private static byte[] roundTrip(byte[] prev, byte[] cur) throws IOException {
+		DataOutputBuffer delta = new DataOutputBuffer();
+		new ByteDelta().encode(prev, prev.length, cur, cur.length, delta);
+		DataOutputBuffer out = new DataOutputBuffer();
+		ByteDelta.apply(prev, prev.length, delta.getData(), 0, delta.getLength(),
+				new DataInputBuffer(), out);
+		return Arrays.copyOf(out.getData(), out.getLength());
+	}
+
+	@Test
+	public void testScatteredEdits() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("Paragraph ").append(i).append(" of the article text.\n");
+		}
+		String prev = sb.toString();
+		String cur = prev.replace("Paragraph 17 ", "Section seventeen ")
+				.replace("Paragraph 150 ", "") + "[[Category:Test]]\n";
+		byte[] p = prev.getBytes(StandardCharsets.UTF_8);
+		byte[] c = cur.getBytes(StandardCharsets.UTF_8);
+
+		DataOutputBuffer delta = new DataOutputBuffer();
+		new ByteDelta().encode(p, p.length, c, c.length, delta);
+		assertTrue(delta.getLength() * 10 < c.length);
+		assertArrayEquals(c, roundTrip(p, c));
+	}
+
+	@Test
+	public void testEdgeCases() throws IOException {
+		byte[] empty = new byte[0];
+		byte[] text = "Hello, Wikipedia".getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(text, roundTrip(empty, text));
+		assertArrayEquals(empty, roundTrip(text, empty));
+		assertArrayEquals(text, roundTrip(text, text));
+	}
+}
@@ -0,0 +1,64 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.hedera.util.ByteStringInterner;
+import org.junit.Test;
+
+public class TestByteStringInterner {
+
+	// interns n strings of the given prefix, and checks their ids
+	private static void fill(ByteStringInterner in, String prefix, int n) {
+		for (int i = 0; i < n; i++) {
+			assertEquals(i + 1, in.intern(prefix + i));
+		}
+		for (int i = 0; i < n; i++) {
+			assertEquals(i + 1, in.intern(prefix + i));
+			assertEquals(prefix + i, in.get(i + 1));
+		}
+		assertEquals(n, in.size());
+	}
+
+	@Test
+	public void testClear() {
+		ByteStringInterner in = new ByteStringInterner();
+		fill(in, "a", 100);
+		in.clear();
+		assertEquals(0, in.size());
+		assertEquals(0, in.memory());
+		assertNull(in.get(1));
+
+		// the slots of the old strings are free, the new ones get the
+		// same ids
+		fill(in, "b", 100);
+		in.clear();
+		fill(in, "a", 100);
+	}
+
+	@Test
+	public void testHugePage() {
+		ByteStringInterner in = new ByteStringInterner();
+
+		// grows the table, the ids and the arena far beyond their
+		// initial sizes
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("paragraph ");
+		}
+		String big = sb.toString();
+		fill(in, big, 5000);
+		in.clear();
+
+		// small pages after it, with the arrays given back in between
+		for (int page = 0; page < 3; page++) {
+			fill(in, "p" + page + "-", 10);
+			in.clear();
+		}
+		fill(in, big, 5000);
+		in.clear();
+		fill(in, "c", 3000);
+		in.clear();
+		fill(in, "d", 10);
+	}
+}
@@ -0,0 +1,209 @@
+package org.hedera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.hedera.io.etl.RevisionIdsFormat;
+import org.hedera.io.input.WikiRevisionCombineInputFormat;
+import org.hedera.io.input.WikiRevisionDiffInputFormat;
+import org.hedera.io.input.WikiRevisionInputFormat;
+import org.junit.Test;
+
+public class TestCombineSplits {
+
+	private static final String INPUT = "files/testwiki.txt";
+
+	/**
+	 * Three small dumps made of the sample: one per page, and the sample
+	 * itself. The page dumps keep the header and the footer of the sample
+	 */
+	private static Path parts() throws IOException {
+		List<String> lines = Files.readAllLines(new File(INPUT).toPath(),
+				StandardCharsets.UTF_8);
+		List<Integer> starts = new ArrayList<Integer>();
+		List<Integer> ends = new ArrayList<Integer>();
+		for (int i = 0; i < lines.size(); i++) {
+			if (lines.get(i).trim().equals("<page>")) starts.add(i);
+			else if (lines.get(i).trim().equals("</page>")) ends.add(i + 1);
+		}
+		assertEquals(2, starts.size());
+		List<String> header = lines.subList(0, starts.get(0));
+		List<String> footer = lines.subList(ends.get(1), lines.size());
+
+		File dir = new File(System.getProperty("java.io.tmpdir"),
+				"hedera-combine-" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+		for (int p = 0; p < 2; p++) {
+			List<String> dump = new ArrayList<String>(header);
+			dump.addAll(lines.subList(starts.get(p), ends.get(p)));
+			dump.addAll(footer);
+			Files.write(new File(dir, "page-" + p + ".xml").toPath(), dump,
+					StandardCharsets.UTF_8);
+		}
+		Files.write(new File(dir, "all.xml").toPath(), lines,
+				StandardCharsets.UTF_8);
+		return new Path(dir.toURI());
+	}
+
+	private static List<InputSplit> splits(Configuration conf, Path dir)
+			throws IOException, InterruptedException {
+		Job job = Job.getInstance(conf);
+		FileInputFormat.addInputPath(job, dir);
+		return new WikiRevisionCombineInputFormat<LongWritable, Writable>()
+				.getSplits(job);
+	}
+
+	private static TaskAttemptContext attempt(Configuration conf) {
+		return new TaskAttemptContextImpl(conf, new TaskAttemptID());
+	}
+
+	private static int drain(RecordReader<LongWritable, ? extends Writable>
+			reader, DataOutputBuffer out) throws IOException,
+			InterruptedException {
+		int records = 0;
+		while (reader.nextKeyValue()) {
+			reader.getCurrentKey().write(out);
+			reader.getCurrentValue().write(out);
+			records++;
+		}
+		return records;
+	}
+
+	private static byte[] bytes(DataOutputBuffer out) {
+		return Arrays.copyOf(out.getData(), out.getLength());
+	}
+
+	/**
+	 * Read the combined split through one CombineRevisionReader, and each of
+	 * its files through a reader of its own, and compare the records
+	 * @return the number of records
+	 */
+	private static int compare(Configuration conf, CombineFileSplit split)
+			throws IOException, InterruptedException {
+		TaskAttemptContext tac = attempt(conf);
+		DataOutputBuffer combined = new DataOutputBuffer();
+		int records;
+		try (RecordReader<LongWritable, Writable> reader =
+				new WikiRevisionCombineInputFormat<LongWritable, Writable>()
+				.createRecordReader(split, tac)) {
+			reader.initialize(split, tac);
+			records = drain(reader, combined);
+		}
+
+		@SuppressWarnings("unchecked")
+		WikiRevisionInputFormat<LongWritable, Writable> delegate =
+				(WikiRevisionInputFormat<LongWritable, Writable>)
+				ReflectionUtils.newInstance(conf.getClass(
+						WikiRevisionCombineInputFormat.DELEGATE_OPT, null), conf);
+		DataOutputBuffer single = new DataOutputBuffer();
+		int n = 0;
+		FileSystem fs = FileSystem.getLocal(conf);
+		Path last = null;
+		for (Path p : split.getPaths()) {
+			// the parts of one file are read as a whole
+			if (p.equals(last)) continue;
+			last = p;
+			FileSplit whole = new FileSplit(p, 0, fs.getFileStatus(p).getLen(),
+					null);
+			TaskAttemptContext own = attempt(conf);
+			try (RecordReader<LongWritable, Writable> reader =
+					delegate.createRecordReader(whole, own)) {
+				reader.initialize(whole, own);
+				n += drain(reader, single);
+			}
+		}
+		assertEquals(n, records);
+		assertArrayEquals(bytes(single), bytes(combined));
+		return records;
+	}
+
+	@Test
+	public void testPacking() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		WikiRevisionCombineInputFormat.setDelegate(conf,
+				WikiRevisionDiffInputFormat.class);
+		Path dir = parts();
+		FileSystem fs = FileSystem.getLocal(conf);
+		try {
+			// all files fit into one split
+			List<InputSplit> splits = splits(conf, dir);
+			assertEquals(1, splits.size());
+			assertEquals(3, ((CombineFileSplit) splits.get(0)).getNumPaths());
+
+			// the sample costs as much as a split, the page dumps together
+			// cost a bit more
+			long target = fs.getFileStatus(new Path(dir, "all.xml")).getLen();
+			conf.setLong(WikiRevisionCombineInputFormat.SPLIT_COST_OPT, target);
+			splits = splits(conf, dir);
+			assertEquals(2, splits.size());
+			List<Integer> sizes = new ArrayList<Integer>();
+			for (InputSplit s : splits) {
+				sizes.add(((CombineFileSplit) s).getNumPaths());
+			}
+			Collections.sort(sizes);
+			assertEquals(Arrays.asList(1, 2), sizes);
+		} finally {
+			fs.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void testEtlDelegate() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		WikiRevisionCombineInputFormat.setDelegate(conf, RevisionIdsFormat.class);
+		Path dir = parts();
+		try {
+			List<InputSplit> splits = splits(conf, dir);
+			assertEquals(1, splits.size());
+			assertTrue(compare(conf, (CombineFileSplit) splits.get(0)) > 0);
+		} finally {
+			FileSystem.getLocal(conf).delete(dir, true);
+		}
+	}
+
+	@Test
+	public void testDiffDelegate() throws IOException, InterruptedException {
+		Path dir = parts();
+		try {
+			for (int threads : new int[] {0, 4}) {
+				Configuration conf = new Configuration();
+				conf.setInt(WikiRevisionInputFormat.DIFF_THREADS, threads);
+				WikiRevisionCombineInputFormat.setDelegate(conf,
+						WikiRevisionDiffInputFormat.class);
+				List<InputSplit> splits = splits(conf, dir);
+				assertEquals(1, splits.size());
+
+				// the ten revisions of the sample, twice
+				assertEquals(20, compare(conf, (CombineFileSplit) splits.get(0)));
+			}
+		} finally {
+			FileSystem.getLocal(new Configuration()).delete(dir, true);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.CompactRevisionDiff;
+import org.hedera.io.CompactRevisionDiff.DeltaCursor;
+import org.junit.Test;
+
+public class TestCompactRevisionDiff {
+
+	private static CompactRevisionDiff sample() throws IOException {
+		CompactRevisionDiff d = new CompactRevisionDiff();
+		d.setPageId(12);
+		d.setRevisionId(345);
+		d.setPageTitle("Berlin");
+		d.setCoarse(true);
+
+		d.addDelta(CompactRevisionDiff.INSERT, 0, 0, 0, 2);
+		d.addLine("first");
+		d.addLine("");
+		d.addDelta(CompactRevisionDiff.DELETE, 3, 1, 5, 0);
+		d.addLine("gone");
+		d.addDelta(CompactRevisionDiff.CHANGE, 7, 1, 8, 2);
+		d.addLine("Strasse");
+		d.addLine("Stra\u00dfe");
+		d.addLine("\u4e2d\u6587");
+		d.addDelta(CompactRevisionDiff.MOVE, 10, 2, 1, 2);
+		return d;
+	}
+
+	private static CompactRevisionDiff roundTrip(CompactRevisionDiff d,
+			CompactRevisionDiff into) throws IOException {
+		DataOutputBuffer out = new DataOutputBuffer();
+		d.write(out);
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		into.readFields(in);
+		assertEquals(out.getLength(), in.getPosition());
+		return into;
+	}
+
+	private static void checkDelta(DeltaCursor c, byte type, int posA,
+			int lenA, int posB, int lenB) throws IOException {
+		assertTrue(c.next());
+		assertEquals(type, c.getType());
+		assertEquals(posA, c.getPositionA());
+		assertEquals(lenA, c.getLengthA());
+		assertEquals(posB, c.getPositionB());
+		assertEquals(lenB, c.getLengthB());
+	}
+
+	private static void checkLine(DeltaCursor c, boolean old, String line)
+			throws IOException {
+		assertTrue(c.nextLine());
+		assertEquals(old, c.isOldLine());
+		assertEquals(line, c.getLine());
+	}
+
+	private static void checkAll(CompactRevisionDiff d) throws IOException {
+		assertEquals(12, d.getPageId());
+		assertEquals(345, d.getRevisionId());
+		assertEquals("Berlin", d.getPageTitle());
+		assertTrue(d.isCoarse());
+		assertEquals(4, d.getDeltaCount());
+
+		DeltaCursor c = d.deltas();
+		checkDelta(c, CompactRevisionDiff.INSERT, 0, 0, 0, 2);
+		checkLine(c, false, "first");
+		checkLine(c, false, "");
+		assertFalse(c.nextLine());
+		checkDelta(c, CompactRevisionDiff.DELETE, 3, 1, 5, 0);
+		checkLine(c, true, "gone");
+		checkDelta(c, CompactRevisionDiff.CHANGE, 7, 1, 8, 2);
+		checkLine(c, true, "Strasse");
+		checkLine(c, false, "Stra\u00dfe");
+		checkLine(c, false, "\u4e2d\u6587");
+		checkDelta(c, CompactRevisionDiff.MOVE, 10, 2, 1, 2);
+		assertFalse(c.nextLine());
+		assertFalse(c.next());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		CompactRevisionDiff d = sample();
+		checkAll(d);
+		checkAll(roundTrip(d, new CompactRevisionDiff()));
+
+		// reading into a used object replaces its deltas
+		CompactRevisionDiff used = sample();
+		used.addDelta(CompactRevisionDiff.INSERT, 20, 0, 20, 1);
+		used.addLine("stale");
+		checkAll(roundTrip(d, used));
+	}
+
+	@Test
+	public void testSkippedLines() throws IOException {
+		CompactRevisionDiff d = roundTrip(sample(), new CompactRevisionDiff());
+
+		// lines not visited are skipped, and the cursor can start over
+		DeltaCursor c = d.deltas();
+		checkDelta(c, CompactRevisionDiff.INSERT, 0, 0, 0, 2);
+		checkDelta(c, CompactRevisionDiff.DELETE, 3, 1, 5, 0);
+		checkDelta(c, CompactRevisionDiff.CHANGE, 7, 1, 8, 2);
+		checkLine(c, true, "Strasse");
+		checkDelta(c, CompactRevisionDiff.MOVE, 10, 2, 1, 2);
+		assertFalse(c.next());
+		checkAll(d);
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		CompactRevisionDiff d = sample();
+		d.clearDeltas();
+		assertEquals(12, d.getPageId());
+		CompactRevisionDiff r = roundTrip(d, sample());
+		assertEquals(0, r.getDeltaCount());
+		assertFalse(r.isCoarse());
+		assertFalse(r.deltas().next());
+	}
+}
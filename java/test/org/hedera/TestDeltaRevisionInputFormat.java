@@ -0,0 +1,130 @@
+package org.hedera;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.hedera.io.FullRevision;
+import org.hedera.io.delta.DeltaRevision;
+import org.hedera.io.delta.DeltaRevisionEncoder;
+import org.hedera.io.delta.DeltaRevisionInputFormat;
+import org.hedera.io.delta.DeltaRevisionInputFormat.DeltaRevisionReader;
+import org.junit.Test;
+
+public class TestDeltaRevisionInputFormat {
+
+	private static final long T0 = TIME_FORMAT.parseMillis("2014-06-06T00:00:00Z");
+	private static final long HOUR = 1000l * 60 * 60;
+
+	private static final String BASE = "Berlin is the capital of Germany and "
+			+ "one of its 16 states. With a population of 3.5 million people, "
+			+ "it is the second most populous city proper and the seventh most "
+			+ "populous urban area in the European Union. ";
+
+	private static String text(long revId) {
+		return BASE + "Edit number " + revId + ".";
+	}
+
+	// page 1: revisions 101 to 107, one per hour. Page 2: 201 and 202, ten
+	// hours later. Revisions with an even id are minor
+	private static Path write(Configuration conf, FileSystem fs)
+			throws IOException {
+		Path file = new Path(new File(System.getProperty("java.io.tmpdir"),
+				"hedera-deltas-" + System.nanoTime()).toURI());
+		DeltaRevisionEncoder encoder = new DeltaRevisionEncoder(3);
+		DeltaRevision delta = new DeltaRevision();
+		int keyframes = 0;
+		try (SequenceFile.Writer out = SequenceFile.createWriter(conf,
+				SequenceFile.Writer.file(file),
+				SequenceFile.Writer.keyClass(LongWritable.class),
+				SequenceFile.Writer.valueClass(DeltaRevision.class))) {
+			for (long id : new long[] {101, 102, 103, 104, 105, 106, 107,
+					201, 202}) {
+				FullRevision rev = new FullRevision();
+				rev.setPageId(id / 100);
+				rev.setPageTitle("Page " + (id / 100));
+				rev.setRevisionId(id);
+				rev.setTimestamp(T0 + ((id / 100 - 1) * 10 + id % 100 - 1) * HOUR);
+				rev.setMinor(id % 2 == 0);
+				byte[] b = text(id).getBytes(StandardCharsets.UTF_8);
+				rev.loadText(b, 0, b.length);
+				encoder.encode(rev, delta);
+				if (delta.isKeyframe()) {
+					keyframes++;
+				}
+				out.append(new LongWritable(id / 100), delta);
+			}
+		}
+
+		// keyframes at 101, 104, 107 and 201
+		assertEquals(4, keyframes);
+		return file;
+	}
+
+	private static List<String> read(Configuration conf, FileSystem fs,
+			Path file) throws IOException, InterruptedException {
+		List<String> res = new ArrayList<String>();
+		try (DeltaRevisionReader reader = new DeltaRevisionReader()) {
+			reader.initialize(new FileSplit(file, 0, fs.getFileStatus(file)
+					.getLen(), null), new TaskAttemptContextImpl(conf,
+							new TaskAttemptID()));
+			while (reader.nextKeyValue()) {
+				FullRevision rev = reader.getCurrentValue();
+				long id = rev.getRevisionId();
+				assertEquals(id / 100, reader.getCurrentKey().get());
+				assertEquals(text(id), new String(rev.getText(),
+						StandardCharsets.UTF_8));
+				assertEquals(id % 2 == 0, rev.isMinor());
+				res.add(String.valueOf(id));
+			}
+		}
+		return res;
+	}
+
+	@Test
+	public void testSelection() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		Path file = write(conf, fs);
+		try {
+			// every revision, rebuilt along the chains
+			assertEquals(Arrays.asList("101", "102", "103", "104", "105",
+					"106", "107", "201", "202"), read(conf, fs, file));
+
+			// a revision after a skipped keyframe is rebuilt from that one
+			conf.set(DeltaRevisionInputFormat.REVISIONS_OPT, "106, 102,202");
+			assertEquals(Arrays.asList("102", "106", "202"),
+					read(conf, fs, file));
+
+			// as of 04:30, page 2 has no revision yet
+			conf.set(DeltaRevisionInputFormat.AS_OF_OPT,
+					TIME_FORMAT.print(T0 + 4 * HOUR + HOUR / 2));
+			assertEquals(Arrays.asList("105"), read(conf, fs, file));
+
+			// the last revision of a page is current until the end
+			conf.set(DeltaRevisionInputFormat.AS_OF_OPT,
+					TIME_FORMAT.print(T0 + 100 * HOUR));
+			assertEquals(Arrays.asList("107", "202"), read(conf, fs, file));
+
+			conf.set(DeltaRevisionInputFormat.AS_OF_OPT,
+					TIME_FORMAT.print(T0 - HOUR));
+			assertEquals(0, read(conf, fs, file).size());
+		} finally {
+			fs.delete(file, false);
+		}
+	}
+}
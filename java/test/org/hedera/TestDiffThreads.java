@@ -0,0 +1,93 @@
+package org.hedera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.hedera.io.input.WikiRevisionDiffInputFormat.DiffReader;
+import org.hedera.io.input.WikiRevisionInputFormat;
+import org.junit.Test;
+
+/**
+ * The diff reader must give the same records, in the same order, whether
+ * it diffs in the reading thread or in a pool
+ */
+public class TestDiffThreads {
+
+	private static final String INPUT = "files/testwiki.txt";
+
+	private static Configuration conf(int threads, long memory) {
+		Configuration conf = new Configuration();
+		conf.setInt(WikiRevisionInputFormat.DIFF_THREADS, threads);
+		if (memory > 0) {
+			conf.setLong(WikiRevisionInputFormat.DIFF_MEMORY, memory);
+		}
+		return conf;
+	}
+
+	// all records of the sample, serialized one after the other
+	private static byte[] read(DiffReader reader, Configuration conf)
+			throws IOException, InterruptedException {
+		File f = new File(INPUT);
+		DataOutputBuffer out = new DataOutputBuffer();
+		int records = 0;
+		reader.initialize(new FileSplit(new Path(f.toURI()), 0, f.length(),
+				null), new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+		while (reader.nextKeyValue()) {
+			out.writeLong(reader.getCurrentKey().get());
+			reader.getCurrentValue().write(out);
+			records++;
+		}
+
+		// one record per revision, over both pages of the sample
+		assertEquals(10, records);
+		return Arrays.copyOf(out.getData(), out.getLength());
+	}
+
+	private static byte[] read(int threads, long memory) throws IOException,
+			InterruptedException {
+		try (DiffReader reader = new DiffReader()) {
+			return read(reader, conf(threads, memory));
+		}
+	}
+
+	@Test
+	public void testSameOutput() throws IOException, InterruptedException {
+		byte[] expected = read(0, 0);
+
+		// one thread fills the queue at once, more threads have diffs of
+		// both pages in flight when the page changes
+		assertArrayEquals(expected, read(1, 0));
+		assertArrayEquals(expected, read(4, 0));
+
+		// compacting the paragraphs at every revision changes the ids, but
+		// not the diffs, also while older diffs are queued
+		assertArrayEquals(expected, read(0, 1));
+		assertArrayEquals(expected, read(1, 1));
+		assertArrayEquals(expected, read(4, 1));
+	}
+
+	@Test
+	public void testReinitialize() throws IOException, InterruptedException {
+		byte[] expected = read(0, 0);
+
+		// one reader moved from split to split, as the combine format does
+		for (int threads : new int[] {0, 4}) {
+			Configuration conf = conf(threads, 0);
+			try (DiffReader reader = new DiffReader()) {
+				assertArrayEquals(expected, read(reader, conf));
+				reader.close();
+				assertArrayEquals(expected, read(reader, conf));
+			}
+		}
+	}
+}
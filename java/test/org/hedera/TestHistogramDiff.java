@@ -0,0 +1,173 @@
+package org.hedera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.hedera.diff.Edit;
+import org.hedera.diff.HistogramDiff;
+import org.hedera.diff.MoveDetector;
+import org.hedera.diff.ParagraphHasher;
+import org.hedera.diff.Paragraphs;
+import org.hedera.diff.TermDiff;
+import org.junit.Test;
+
+public class TestHistogramDiff {
+
+	// apply the edits to a and check that this gives b
+	private static void check(int[] a, int[] b, List<Edit> edits) {
+		int[] res = new int[b.length];
+		int n = 0;
+		int ai = 0;
+		for (Edit e : edits) {
+			assertTrue(e.getBeginA() >= ai);
+			while (ai < e.getBeginA()) res[n++] = a[ai++];
+			assertEquals(n, e.getBeginB());
+			for (int k = e.getBeginB(); k < e.getEndB(); k++) res[n++] = b[k];
+			ai = e.getEndA();
+		}
+		while (ai < a.length) res[n++] = a[ai++];
+		assertEquals(b.length, n);
+		assertArrayEquals(toBytes(b), toBytes(res));
+	}
+
+	private static byte[] toBytes(int[] x) {
+		byte[] r = new byte[x.length];
+		for (int i = 0; i < x.length; i++) r[i] = (byte) x[i];
+		return r;
+	}
+
+	@Test
+	public void testRandomEdits() {
+		Random r = new Random(42);
+		HistogramDiff d = new HistogramDiff();
+		for (int t = 0; t < 500; t++) {
+			int[] a = new int[r.nextInt(60)];
+			for (int i = 0; i < a.length; i++) a[i] = r.nextInt(20);
+			int[] b = Arrays.copyOf(a, a.length);
+			for (int k = r.nextInt(5); k > 0 && b.length > 0; k--) {
+				b[r.nextInt(b.length)] = r.nextInt(20);
+			}
+			if (r.nextBoolean()) {
+				b = Arrays.copyOf(b, b.length + 3);
+			}
+			check(a, b, d.diff(a, a.length, b, b.length, 20));
+		}
+	}
+
+	@Test
+	public void testBudget() {
+		Random r = new Random(7);
+		int[] a = new int[2000];
+		for (int i = 0; i < a.length; i++) a[i] = r.nextInt(50);
+		int[] b = Arrays.copyOf(a, a.length);
+		for (int k = 0; k < 300; k++) b[r.nextInt(b.length)] = r.nextInt(50);
+
+		HistogramDiff d = new HistogramDiff();
+		List<Edit> exact = d.diff(a, a.length, b, b.length, 50);
+		assertFalse(d.isCoarse());
+		check(a, b, exact);
+
+		// coarse, but still a valid diff
+		d.setBudget(1000);
+		List<Edit> coarse = d.diff(a, a.length, b, b.length, 50);
+		assertTrue(d.isCoarse());
+		assertTrue(coarse.size() < exact.size());
+		check(a, b, coarse);
+	}
+
+	@Test
+	public void testParagraphs() {
+		String v1 = "intro\n\nfirst\nsecond\n  third\n";
+		String v2 = "intro\nfirst\nnew one\nthird";
+		ParagraphHasher h = new ParagraphHasher();
+		Paragraphs p1 = new Paragraphs();
+		Paragraphs p2 = new Paragraphs();
+		byte[] b1 = v1.getBytes(StandardCharsets.UTF_8);
+		byte[] b2 = v2.getBytes(StandardCharsets.UTF_8);
+		h.split(b1, 0, b1.length, p1);
+		h.split(b2, 0, b2.length, p2);
+		assertEquals(4, p1.size());
+		assertEquals(p1.id(3), p2.id(3));
+
+		List<Edit> edits = new HistogramDiff().diff(p1.ids(), p1.size(), 
+				p2.ids(), p2.size(), h.maxId());
+		assertEquals(1, edits.size());
+		assertEquals(Edit.Type.CHANGE, edits.get(0).getType());
+		assertEquals("second", h.paragraph(p1.id(edits.get(0).getBeginA())));
+		assertEquals("new one", h.paragraph(p2.id(edits.get(0).getBeginB())));
+
+		// a compacted copy leaves the ids of the old hasher valid
+		Paragraphs kept = new Paragraphs();
+		kept.copy(p2);
+		ParagraphHasher h2 = h.compacted(kept);
+		assertEquals(4, h2.maxId());
+		assertEquals("new one", h2.paragraph(kept.id(2)));
+		assertEquals("second", h.paragraph(p1.id(2)));
+
+		h.compact(p2);
+		assertEquals(4, h.maxId());
+		assertEquals("new one", h.paragraph(p2.id(2)));
+	}
+
+	@Test
+	public void testTermDiff() {
+		byte[] v1 = "a b c\nd e f\ng h".getBytes(StandardCharsets.UTF_8);
+		byte[] v2 = "a b c\nd x f y\ng h".getBytes(StandardCharsets.UTF_8);
+		TermDiff d = new TermDiff();
+		d.next(v1, 0, v1.length);
+		assertEquals(8, d.getAddedCount());
+		assertEquals(0, d.getRemovedCount());
+
+		d.next(v2, 0, v2.length);
+		assertEquals(2, d.getAddedCount());
+		assertEquals("x", d.term(d.getAdded()[0]));
+		assertEquals("y", d.term(d.getAdded()[1]));
+		assertEquals(1, d.getRemovedCount());
+		assertEquals("e", d.term(d.getRemoved()[0]));
+		assertFalse(d.isCoarse());
+
+		d.newPage();
+		d.next(v2, 0, v2.length);
+		assertEquals(9, d.getAddedCount());
+	}
+
+	@Test
+	public void testMoves() {
+		String sec1 = "== History ==\nThe town was founded in 1200 by [[Someone]].\n";
+		String sec2 = "== Geography ==\nIt lies on the [[River]], north of the hills.\n";
+		String v1 = "intro\n" + sec1 + sec2 + "end\n";
+		String v2 = "intro\n" + sec2 + "new line\n" + sec1 + "end\n";
+		ParagraphHasher h = new ParagraphHasher();
+		Paragraphs p1 = new Paragraphs();
+		Paragraphs p2 = new Paragraphs();
+		byte[] b1 = v1.getBytes(StandardCharsets.UTF_8);
+		byte[] b2 = v2.getBytes(StandardCharsets.UTF_8);
+		h.split(b1, 0, b1.length, p1);
+		h.split(b2, 0, b2.length, p2);
+
+		List<Edit> edits = new HistogramDiff().diff(p1.ids(), p1.size(),
+				p2.ids(), p2.size(), h.maxId());
+		edits = new MoveDetector().detect(p1.ids(), p2.ids(), edits, h);
+		int moves = 0, inserted = 0;
+		for (Edit e : edits) {
+			if (e.getType() == Edit.Type.MOVE) {
+				moves++;
+				for (int i = 0; i < e.getLengthA(); i++) {
+					assertEquals(p1.id(e.getBeginA() + i), p2.id(e.getBeginB() + i));
+				}
+			} else {
+				assertEquals(0, e.getLengthA());
+				inserted += e.getLengthB();
+			}
+		}
+		assertEquals(1, moves);
+		assertEquals(1, inserted);
+	}
+}
@@ -0,0 +1,158 @@
+package org.hedera;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.input.JsonRevisionParser;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class TestJsonRevisionParser {
+
+	private static final String[] TEXTS = {
+		"",
+		"plain",
+		"quote \" backslash \\ slash / tab \t newline \n return \r",
+		"controls \b \f \u0001 \u001f",
+		"<html> & 'apostrophes' = \u2028 \u2029",
+		"Stra\u00dfe \u20ac \u4e2d\u6587",
+		"astral \ud83d\ude00 \ud834\udd1e",
+		"{\"not\": [\"a field\"]}, \"text\": 1",
+		"</text>"
+	};
+
+	private static JsonRevisionParser parse(String line) {
+		byte[] b = line.getBytes(StandardCharsets.UTF_8);
+		JsonRevisionParser p = new JsonRevisionParser();
+		assertTrue(p.parse(b, 0, b.length));
+		return p;
+	}
+
+	@Test
+	public void testAgainstGson() throws IOException {
+		Gson gson = new Gson();
+		JsonParser reference = new JsonParser();
+		for (String text : TEXTS) {
+			JsonObject o = new JsonObject();
+			o.addProperty("page_id", 12);
+			o.addProperty("page_namespace", 0);
+			o.addProperty("page_title", "Title " + text);
+
+			// unknown keys and nested values before the known ones
+			JsonObject nested = new JsonObject();
+			nested.addProperty("text", "not the text }");
+			JsonArray arr = new JsonArray();
+			arr.add(nested);
+			o.add("meta", arr);
+			o.addProperty("rev_id", 345);
+			o.addProperty("parent_id", -1);
+			o.addProperty("timestamp", "2014-06-06T12:00:00Z");
+			o.addProperty("comment", text);
+			o.addProperty("text", text);
+			String line = gson.toJson(o);
+
+			JsonObject expected = reference.parse(line).getAsJsonObject();
+			JsonRevisionParser p = parse(line);
+			assertEquals(12, p.getLong(JsonRevisionParser.PAGE_ID));
+			assertEquals(0, p.getLong(JsonRevisionParser.PAGE_NAMESPACE));
+			assertEquals(345, p.getLong(JsonRevisionParser.REV_ID));
+			assertEquals(-1, p.getLong(JsonRevisionParser.PARENT_ID));
+			assertEquals(expected.get("page_title").getAsString(),
+					p.getString(JsonRevisionParser.PAGE_TITLE));
+			assertEquals(expected.get("timestamp").getAsString(),
+					p.getString(JsonRevisionParser.TIMESTAMP));
+			assertEquals(expected.get("comment").getAsString(),
+					p.getString(JsonRevisionParser.COMMENT));
+
+			DataOutputBuffer out = new DataOutputBuffer();
+			p.unescape(JsonRevisionParser.TEXT, out);
+			assertArrayEquals(expected.get("text").getAsString()
+					.getBytes(StandardCharsets.UTF_8), Arrays.copyOf(
+							out.getData(), out.getLength()));
+			assertFalse(p.has(JsonRevisionParser.USER));
+		}
+	}
+
+	@Test
+	public void testEscapedByHand() throws IOException {
+		String line = "{ \"comment\" : \"\\u00e9\\/\\\"\\\\\\ud83d\\ude00\\n\" ,"
+				+ "\"text\":\"a\\tb\"}";
+		JsonElement expected = new JsonParser().parse(line);
+		JsonRevisionParser p = parse(line);
+		assertEquals(expected.getAsJsonObject().get("comment").getAsString(),
+				p.getString(JsonRevisionParser.COMMENT));
+		assertEquals("a\tb", p.getString(JsonRevisionParser.TEXT));
+	}
+
+	@Test
+	public void testNulls() throws IOException {
+		JsonRevisionParser p = parse("{\"user\":null,\"user_id\":null,"
+				+ "\"comment\":\"null\",\"rev_id\":7}");
+		assertFalse(p.has(JsonRevisionParser.USER));
+		assertNull(p.getString(JsonRevisionParser.USER));
+		assertFalse(p.has(JsonRevisionParser.USER_ID));
+		assertEquals("null", p.getString(JsonRevisionParser.COMMENT));
+		assertEquals(7, p.getLong(JsonRevisionParser.REV_ID));
+		assertFalse(p.has(JsonRevisionParser.TEXT));
+		try {
+			p.getLong(JsonRevisionParser.USER_ID);
+			fail("user_id is null");
+		} catch (NumberFormatException e) {
+		}
+	}
+
+	@Test
+	public void testLoneSurrogates() throws IOException {
+		JsonRevisionParser p = parse("{\"text\":\"a\\ud800b\\udc00c"
+				+ "\\ud800\\u0041\\ud83d\"}");
+		DataOutputBuffer out = new DataOutputBuffer();
+		p.unescape(JsonRevisionParser.TEXT, out);
+
+		// a replacement character per lone surrogate, never the 3-byte
+		// encoding of the surrogate itself
+		byte[] fffd = { (byte) 0xef, (byte) 0xbf, (byte) 0xbd };
+		DataOutputBuffer expected = new DataOutputBuffer();
+		expected.write('a');
+		expected.write(fffd);
+		expected.write('b');
+		expected.write(fffd);
+		expected.write('c');
+		expected.write(fffd);
+		expected.write('A');
+		expected.write(fffd);
+		assertArrayEquals(Arrays.copyOf(expected.getData(),
+				expected.getLength()), Arrays.copyOf(out.getData(),
+						out.getLength()));
+		assertEquals("a\ufffdb\ufffdc\ufffdA\ufffd",
+				p.getString(JsonRevisionParser.TEXT));
+	}
+
+	@Test
+	public void testMalformed() {
+		String[] lines = {
+			"", "  ", "[1]", "{", "{\"text\":}", "{\"text\":\"abc",
+			"{\"text\" \"abc\"}", "{\"text\":\"abc\"", "{\"a\":{\"b\":1}",
+			"{\"a\":1 \"b\":2}", "{\"a\\\":1}"
+		};
+		JsonRevisionParser p = new JsonRevisionParser();
+		for (String line : lines) {
+			byte[] b = line.getBytes(StandardCharsets.UTF_8);
+			assertFalse(line, p.parse(b, 0, b.length));
+		}
+		assertTrue(p.parse(new byte[] { '{', '}' }, 0, 2));
+	}
+}
@@ -0,0 +1,67 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.LongWritable;
+import org.hedera.io.LinkInterval;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.etl.RevisionLinkIntervalInputFormat.LinkIntervalExtractor;
+import org.hedera.io.etl.RevisionWindow;
+import org.junit.Test;
+
+public class TestLinkIntervals {
+
+	private final LinkIntervalExtractor extractor = new LinkIntervalExtractor();
+	private final RevisionWindow window = new RevisionWindow(1);
+	private final RevisionHeader meta = new RevisionHeader();
+
+	// the intervals emitted after the revision, as target:added-removed
+	private List<String> revision(long revId, String text) {
+		meta.setPageId(7);
+		meta.setPageTitle("Page");
+		meta.setRevisionId(revId);
+		meta.setTimestamp(revId * 1000);
+		byte[] b = text.getBytes(StandardCharsets.UTF_8);
+		window.add(meta, b, 0, b.length);
+		extractor.update(window);
+		return drain();
+	}
+
+	private List<String> drain() {
+		List<String> res = new ArrayList<>();
+		LongWritable key = new LongWritable();
+		LinkInterval value = new LinkInterval();
+		while (extractor.next(key, value)) {
+			assertEquals(7, key.get());
+			res.add(value.getTarget() + "|" + value.getAnchorText() + ":"
+					+ value.getAddedIn() + "-" + value.getRemovedIn());
+			value.clear();
+		}
+		return res;
+	}
+
+	@Test
+	public void testIntervals() {
+		extractor.newPage();
+		assertEquals(0, revision(1, "[[A]] and [[B|b]]").size());
+		assertEquals(0, revision(2, "[[A]], [[A]] and [[B|b]] again").size());
+
+		// a new anchor is a new link
+		assertEquals("[B|b:1-3]", revision(3, "[[A]] and [[B|bee]]").toString());
+		assertEquals("[A|A:1-4, B|bee:3-4]", revision(4, "blanked").toString());
+		assertEquals(0, revision(5, "[[A]]").size());
+
+		extractor.endPage(window);
+		assertEquals("[A|A:5--1]", drain().toString());
+
+		// nothing is carried over to the next page
+		extractor.newPage();
+		assertEquals(0, revision(1, "[[A]]").size());
+		extractor.endPage(window);
+		assertEquals("[A|A:1--1]", drain().toString());
+	}
+}
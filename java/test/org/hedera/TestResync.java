@@ -0,0 +1,138 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.hedera.io.etl.RevisionIdsFormat;
+import org.hedera.io.etl.RevisionSamplers;
+import org.hedera.io.input.WikiRevisionInputFormat;
+import org.hedera.io.input.WikiRevisionInputFormat.ParseCounters;
+import org.junit.Test;
+
+import edu.umd.cloud9.io.pair.PairOfLongs;
+
+public class TestResync {
+
+	private static class Reporter extends StatusReporter {
+
+		private final Counters counters = new Counters();
+
+		@Override
+		public Counter getCounter(Enum<?> name) {
+			return counters.findCounter(name);
+		}
+
+		@Override
+		public Counter getCounter(String group, String name) {
+			return counters.findCounter(group, name);
+		}
+
+		@Override
+		public void progress() {
+		}
+
+		@Override
+		public float getProgress() {
+			return 0;
+		}
+
+		@Override
+		public void setStatus(String status) {
+		}
+	}
+
+	private static String revision(long id) {
+		return "    <revision>\n      <id>" + id + "</id>\n"
+				+ "      <timestamp>2014-06-06T12:00:00Z</timestamp>\n"
+				+ "      <text xml:space=\"preserve\">Text of " + id
+				+ "</text>\n    </revision>\n";
+	}
+
+	private static String pageHeader(long id) {
+		return "  <page>\n    <title>Page " + id + "</title>\n    <ns>0</ns>\n"
+				+ "    <id>" + id + "</id>\n";
+	}
+
+	private static String page(long id, long... revisions) {
+		StringBuilder sb = new StringBuilder(pageHeader(id));
+		for (long r : revisions) {
+			sb.append(revision(r));
+		}
+		return sb.append("  </page>\n").toString();
+	}
+
+	// page id and revision id of every record
+	private static List<String> read(String dump, Reporter reporter)
+			throws IOException, InterruptedException {
+		File f = File.createTempFile("hedera-resync", ".xml");
+		List<String> res = new ArrayList<String>();
+		try {
+			Files.write(f.toPath(), ("<mediawiki>\n" + dump + "</mediawiki>\n")
+					.getBytes(StandardCharsets.UTF_8));
+			Configuration conf = new Configuration();
+			conf.setBoolean(WikiRevisionInputFormat.RESYNC_ON_ERROR, true);
+			conf.set(RevisionSamplers.SAMPLER_OPT, "all");
+			TaskAttemptContext tac = new TaskAttemptContextImpl(conf,
+					new TaskAttemptID(), reporter);
+			FileSplit split = new FileSplit(new Path(f.toURI()), 0, f.length(),
+					null);
+			try (RecordReader<LongWritable, PairOfLongs> reader =
+					new RevisionIdsFormat().createRecordReader(split, tac)) {
+				reader.initialize(split, tac);
+				while (reader.nextKeyValue()) {
+					res.add(reader.getCurrentKey().get() + ":"
+							+ reader.getCurrentValue().getLeftElement());
+				}
+			}
+		} finally {
+			f.delete();
+		}
+		return res;
+	}
+
+	@Test
+	public void testTruncatedRevision() throws IOException,
+			InterruptedException {
+		Reporter reporter = new Reporter();
+
+		// page 2 ends in the middle of its revision, right before page 3
+		String dump = page(1, 11) + pageHeader(2) + revision(21)
+				+ "    <revision>\n      <id>22</id>\n      <text>cut"
+				+ page(3, 31, 32);
+		assertEquals(Arrays.asList("1:11", "3:31", "3:32"),
+				read(dump, reporter));
+		assertEquals(1, reporter.getCounter(ParseCounters.MALFORMED_PAGES)
+				.getValue());
+	}
+
+	@Test
+	public void testTruncatedHeader() throws IOException,
+			InterruptedException {
+		Reporter reporter = new Reporter();
+
+		// page 2 ends before its first revision
+		String dump = page(1, 11) + "  <page>\n    <title>Page 2</title>\n"
+				+ page(3, 31);
+		assertEquals(Arrays.asList("1:11", "3:31"), read(dump, reporter));
+		assertEquals(1, reporter.getCounter(ParseCounters.MALFORMED_PAGES)
+				.getValue());
+	}
+}
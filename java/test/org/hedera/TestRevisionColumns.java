@@ -0,0 +1,281 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.hedera.io.FullRevision;
+import org.hedera.io.columnar.RevisionColumn;
+import org.hedera.io.columnar.RevisionColumnInputFormat;
+import org.hedera.io.columnar.RevisionColumnInputFormat.RevisionColumnReader;
+import org.hedera.io.columnar.RevisionColumnOutputFormat;
+import org.hedera.io.columnar.RevisionColumnOutputFormat.RevisionColumnWriter;
+import org.hedera.io.input.WikiRevisionInputFormat;
+import org.junit.Test;
+
+public class TestRevisionColumns {
+
+	private static final long T0 = WikiRevisionInputFormat.TIME_FORMAT
+			.parseMillis("2014-06-06T00:00:00Z");
+	private static final long HOUR = 1000l * 60 * 60;
+
+	// three row groups of three revisions, one page per row group
+	private static final int ROWS = 3;
+	private static final int PAGES = 3;
+
+	private static Path tmpFile(String name) {
+		return new Path(new File(System.getProperty("java.io.tmpdir"),
+				"hedera-" + name + "-" + System.nanoTime()).toURI());
+	}
+
+	private static String text(long revId) {
+		return "Text of revision " + revId + ", "
+				+ "with some more bytes than the header has.";
+	}
+
+	private static FullRevision revision(long pageId, int k) {
+		FullRevision rev = new FullRevision();
+		long id = pageId * 100 + k;
+		rev.setPageId(pageId);
+		rev.setPageTitle("Page " + pageId);
+		rev.setRevisionId(id);
+		rev.setParentId(k == 0 ? 0 : id - 1);
+		rev.setTimestamp(T0 + ((pageId - 1) * ROWS + k) * HOUR);
+		rev.setMinor(k % 2 == 1);
+		rev.setUser(k == 2 ? "127.0.0.1" : "User " + k);
+		rev.setUserId(k == 2 ? -1 : k);
+		rev.setComment(k == 0 ? null : "Edit " + k);
+		byte[] b = text(id).getBytes(StandardCharsets.UTF_8);
+		rev.loadText(b, 0, b.length);
+		return rev;
+	}
+
+	private static void write(FileSystem fs, Path file, boolean compressed)
+			throws IOException, InterruptedException {
+		DefaultCodec codec = null;
+		if (compressed) {
+			codec = new DefaultCodec();
+			codec.setConf(fs.getConf());
+		}
+		RevisionColumnWriter w = new RevisionColumnWriter(fs.create(file, false),
+				codec, ROWS, Long.MAX_VALUE);
+		for (long p = 1; p <= PAGES; p++) {
+			for (int k = 0; k < ROWS; k++) {
+				w.write(null, revision(p, k));
+			}
+		}
+		w.close(null);
+	}
+
+	private static List<FullRevision> read(Configuration conf, FileSystem fs,
+			Path file) throws IOException, InterruptedException {
+		List<FullRevision> res = new ArrayList<FullRevision>();
+		TaskAttemptContext tac = new TaskAttemptContextImpl(conf,
+				new TaskAttemptID());
+		FileSplit split = new FileSplit(file, 0, fs.getFileStatus(file)
+				.getLen(), null);
+		try (RevisionColumnReader reader = (RevisionColumnReader)
+				new RevisionColumnInputFormat().createRecordReader(split, tac)) {
+			reader.initialize(split, tac);
+			while (reader.nextKeyValue()) {
+				FullRevision rev = new FullRevision();
+				rev.clone(reader.getCurrentValue());
+				byte[] text = reader.getCurrentValue().getText();
+				if (text != null) {
+					rev.loadText(text, 0, text.length);
+				}
+				assertEquals(rev.getPageId(), reader.getCurrentKey().get());
+				res.add(rev);
+			}
+		}
+		return res;
+	}
+
+	private static void checkHeader(FullRevision expected, FullRevision rev) {
+		assertEquals(expected.getPageId(), rev.getPageId());
+		assertEquals(expected.getRevisionId(), rev.getRevisionId());
+		assertEquals(expected.getParentId(), rev.getParentId());
+		assertEquals(expected.getTimestamp(), rev.getTimestamp());
+		assertEquals(expected.getLength(), rev.getLength());
+		assertEquals(expected.isMinor(), rev.isMinor());
+		assertEquals(expected.getPageTitle(), rev.getPageTitle());
+	}
+
+	private static void checkAll(FullRevision expected, FullRevision rev) {
+		checkHeader(expected, rev);
+		assertEquals(expected.getUser(), rev.getUser());
+		assertEquals(expected.getUserId(), rev.getUserId());
+		assertEquals(expected.getComment(), rev.getComment());
+		assertEquals(new String(expected.getText(), StandardCharsets.UTF_8),
+				new String(rev.getText(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Overwrite the page ids of the first row group with those of the
+	 * second one, but not its statistics. If the row group were decoded
+	 * despite its statistics, its rows would show up as rows of page 2
+	 */
+	private static void forgePageIds(FileSystem fs, Path file)
+			throws IOException {
+		byte[] b;
+		try (FSDataInputStream in = fs.open(file)) {
+			b = new byte[(int) fs.getFileStatus(file).getLen()];
+			in.readFully(b);
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+		in.skipBytes(RevisionColumnOutputFormat.MAGIC.length + 1);
+		in.readUTF();
+		assertEquals(ROWS, WritableUtils.readVInt(in));
+		int n = WritableUtils.readVInt(in);
+		int offset = 0;
+		int pageChunk = -1;
+		for (int i = 0; i < n; i++) {
+			int id = in.readByte();
+			WritableUtils.readVLong(in);
+			WritableUtils.readVLong(in);
+			WritableUtils.readVInt(in);
+			int stored = WritableUtils.readVInt(in);
+			if (id == RevisionColumn.PAGE_ID.ordinal()) {
+				pageChunk = offset;
+			}
+			offset += stored;
+		}
+
+		// page ids 1, 1, 1 are stored as the deltas 1, 0, 0
+		int p = b.length - in.available() + pageChunk;
+		assertEquals(1, b[p]);
+		b[p] = 2;
+		try (FSDataOutputStream out = fs.create(file, true)) {
+			out.write(b);
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		Path file = tmpFile("columns");
+		try {
+			write(fs, file, false);
+
+			// every column
+			List<FullRevision> all = read(conf, fs, file);
+			assertEquals(PAGES * ROWS, all.size());
+			int i = 0;
+			for (long p = 1; p <= PAGES; p++) {
+				for (int k = 0; k < ROWS; k++) {
+					checkAll(revision(p, k), all.get(i++));
+				}
+			}
+
+			// the headers only: the text chunks are skipped, the length
+			// comes from its own column
+			RevisionColumn.setColumns(conf, RevisionColumn.HEADER);
+			List<FullRevision> headers = read(conf, fs, file);
+			assertEquals(PAGES * ROWS, headers.size());
+			i = 0;
+			for (long p = 1; p <= PAGES; p++) {
+				for (int k = 0; k < ROWS; k++) {
+					FullRevision rev = headers.get(i++);
+					checkHeader(revision(p, k), rev);
+					assertNull(rev.getText());
+					assertNull(rev.getUser());
+					assertEquals(-1, rev.getUserId());
+					assertNull(rev.getComment());
+				}
+			}
+		} finally {
+			fs.delete(file, false);
+		}
+	}
+
+	@Test
+	public void testCompressed() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		Path file = tmpFile("columns");
+		try {
+			write(fs, file, true);
+			RevisionColumn.setColumns(conf, EnumSet.of(RevisionColumn.REVISION_ID,
+					RevisionColumn.TEXT));
+			List<FullRevision> revs = read(conf, fs, file);
+			assertEquals(PAGES * ROWS, revs.size());
+			int i = 0;
+			for (long p = 1; p <= PAGES; p++) {
+				for (int k = 0; k < ROWS; k++) {
+					FullRevision rev = revs.get(i++);
+					FullRevision expected = revision(p, k);
+					assertEquals(expected.getRevisionId(), rev.getRevisionId());
+					assertEquals(text(expected.getRevisionId()),
+							new String(rev.getText(), StandardCharsets.UTF_8));
+					assertEquals(0, rev.getTimestamp());
+				}
+			}
+		} finally {
+			fs.delete(file, false);
+		}
+	}
+
+	@Test
+	public void testPruning() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		Path file = tmpFile("columns");
+		try {
+			write(fs, file, false);
+			forgePageIds(fs, file);
+			RevisionColumn.setColumns(conf, EnumSet.of(RevisionColumn.REVISION_ID));
+
+			// the first row group is ruled out by its page statistics
+			conf.setLong(RevisionColumnInputFormat.MIN_PAGE_OPT, 2);
+			conf.setLong(RevisionColumnInputFormat.MAX_PAGE_OPT, 2);
+			List<FullRevision> revs = read(conf, fs, file);
+			assertEquals(ROWS, revs.size());
+			for (int k = 0; k < ROWS; k++) {
+				assertEquals(200 + k, revs.get(k).getRevisionId());
+			}
+
+			// the first row group is out of the time range as well, the
+			// third one overlaps with it and its rows are filtered one by one
+			conf.unset(RevisionColumnInputFormat.MIN_PAGE_OPT);
+			conf.unset(RevisionColumnInputFormat.MAX_PAGE_OPT);
+			conf.setLong(RevisionColumnInputFormat.MIN_TIME_OPT, T0 + ROWS * HOUR);
+			conf.setLong(RevisionColumnInputFormat.MAX_TIME_OPT,
+					T0 + (2 * ROWS) * HOUR);
+			revs = read(conf, fs, file);
+			assertEquals(ROWS + 1, revs.size());
+			for (int k = 0; k < ROWS; k++) {
+				assertEquals(200 + k, revs.get(k).getRevisionId());
+			}
+			assertEquals(300, revs.get(ROWS).getRevisionId());
+
+			// without a filter, the forged row group is read as it is
+			conf.unset(RevisionColumnInputFormat.MIN_TIME_OPT);
+			conf.unset(RevisionColumnInputFormat.MAX_TIME_OPT);
+			revs = read(conf, fs, file);
+			assertEquals(PAGES * ROWS, revs.size());
+			assertEquals(2, revs.get(0).getPageId());
+		} finally {
+			fs.delete(file, false);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.RevisionHeader;
+import org.junit.Test;
+
+public class TestRevisionHeader {
+
+	private static RevisionHeader roundTrip(RevisionHeader h,
+			RevisionHeader into) throws IOException {
+		DataOutputBuffer out = new DataOutputBuffer();
+		h.write(out);
+		DataInputBuffer in = new DataInputBuffer();
+		in.reset(out.getData(), out.getLength());
+		into.readFields(in);
+		assertEquals(out.getLength(), in.getPosition());
+		return into;
+	}
+
+	private static RevisionHeader full() {
+		RevisionHeader h = new RevisionHeader();
+		h.setPageId(12);
+		h.setRevisionId(345);
+		h.setParentId(344);
+		h.setTimestamp(1400000000000l);
+		h.setNamespace(1);
+		h.setLength(678);
+		h.setPageTitle("Berlin");
+		h.setSha1("phoiac9h4m842xq45sp7s6u21eteeq1");
+		h.setTextHash(-7);
+		h.setRevertOf(300);
+		h.setSimHash(0x0123456789abcdefl);
+		h.setUser("127.0.0.1");
+		h.setUserId(-1);
+		h.setComment("revert");
+		h.setLengthDelta(-12);
+		h.setJaccard(0.5f);
+		h.setEditRatio(0.25f);
+		h.setMinor(true);
+		return h;
+	}
+
+	@Test
+	public void testAllFields() throws IOException {
+		RevisionHeader h = roundTrip(full(), new RevisionHeader());
+		assertEquals(12, h.getPageId());
+		assertEquals(345, h.getRevisionId());
+		assertEquals(344, h.getParentId());
+		assertEquals(1400000000000l, h.getTimestamp());
+		assertEquals(1, h.getNamespace());
+		assertEquals(678, h.getLength());
+		assertEquals("Berlin", h.getPageTitle());
+		assertEquals("phoiac9h4m842xq45sp7s6u21eteeq1", h.getSha1());
+		assertEquals(-7, h.getTextHash());
+		assertEquals(300, h.getRevertOf());
+		assertEquals(0x0123456789abcdefl, h.getSimHash());
+		assertEquals("127.0.0.1", h.getUser());
+		assertEquals(-1, h.getUserId());
+		assertEquals("revert", h.getComment());
+		assertEquals(-12, h.getLengthDelta());
+		assertEquals(0.5f, h.getJaccard(), 0f);
+		assertEquals(0.25f, h.getEditRatio(), 0f);
+		assertTrue(h.isMinor());
+
+		RevisionHeader copy = new RevisionHeader();
+		copy.clone(h);
+		assertTrue(copy.isMinor());
+		copy.clear();
+		assertFalse(copy.isMinor());
+	}
+
+	@Test
+	public void testAbsentFields() throws IOException {
+		RevisionHeader h = new RevisionHeader();
+		h.setPageId(12);
+		h.setRevisionId(345);
+		h.setPageTitle("Berlin");
+		h.setUserId(42);
+
+		// the fields of the previous record do not survive
+		RevisionHeader r = roundTrip(h, full());
+		assertEquals(345, r.getRevisionId());
+		assertNull(r.getSha1());
+		assertEquals(0, r.getTextHash());
+		assertEquals(0, r.getRevertOf());
+		assertEquals(0, r.getSimHash());
+		assertNull(r.getUser());
+		assertEquals(42, r.getUserId());
+		assertNull(r.getComment());
+		assertEquals(0, r.getLengthDelta());
+		assertEquals(-1f, r.getJaccard(), 0f);
+		assertEquals(-1f, r.getEditRatio(), 0f);
+		assertFalse(r.isMinor());
+
+		// the core fields, the title and one byte of flags, the user id
+		DataOutputBuffer out = new DataOutputBuffer();
+		h.write(out);
+		assertEquals(4 * 8 + 2 * 4 + 2 + 6 + 1 + 8, out.getLength());
+	}
+}
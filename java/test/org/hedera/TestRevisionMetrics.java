@@ -0,0 +1,47 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.input.RevisionMetrics;
+import org.junit.Test;
+
+public class TestRevisionMetrics {
+
+	private static void read(RevisionMetrics m, String text, RevisionHeader h) {
+		byte[] b = text.getBytes(StandardCharsets.UTF_8);
+		m.reset();
+		// in two chunks, as the readers stream it
+		m.update(b, 0, b.length / 2);
+		m.update(b, b.length / 2, b.length - b.length / 2);
+		m.finish(h);
+	}
+
+	@Test
+	public void testMetrics() {
+		RevisionMetrics m = new RevisionMetrics();
+		RevisionHeader h = new RevisionHeader();
+
+		read(m, "a para\nsecond one\nthird\n", h);
+		assertEquals(24, h.getLengthDelta());
+		assertEquals(0f, h.getJaccard(), 0f);
+		assertEquals(1f, h.getEditRatio(), 0f);
+
+		// 2 of 4 distinct paragraphs shared, 18 of 50 paragraph bytes changed
+		read(m, "a para\n\n  second one\nthird changed\n", h);
+		assertEquals(0.5f, h.getJaccard(), 1e-6f);
+		assertEquals(0.36f, h.getEditRatio(), 1e-6f);
+
+		read(m, "a para\nsecond one\nthird changed", h);
+		assertEquals(-4, h.getLengthDelta());
+		assertEquals(1f, h.getJaccard(), 0f);
+		assertEquals(0f, h.getEditRatio(), 0f);
+
+		m.newPage();
+		read(m, "a para\n", h);
+		assertEquals(7, h.getLengthDelta());
+		assertEquals(1f, h.getEditRatio(), 0f);
+	}
+}
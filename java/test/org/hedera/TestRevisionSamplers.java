@@ -0,0 +1,265 @@
+package org.hedera;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.etl.ETLExtractor;
+import org.hedera.io.etl.RevisionSampler;
+import org.hedera.io.etl.RevisionSamplers;
+import org.hedera.io.etl.TimeBucket;
+import org.hedera.io.input.RevertDetector;
+import org.hedera.io.input.WikiRevisionInputFormat;
+import org.junit.Test;
+
+public class TestRevisionSamplers {
+
+	private static final long T0 = TIME_FORMAT.parseMillis("2014-06-06T00:00:00Z");
+	private static final long MINUTE = 1000l * 60;
+	private static final long HOUR = MINUTE * 60;
+	private static final long DAY = HOUR * 24;
+
+	private static RevisionHeader rev(long id, long ts, int length,
+			long simHash) {
+		RevisionHeader h = new RevisionHeader();
+		h.setPageId(1);
+		h.setRevisionId(id);
+		h.setTimestamp(ts);
+		h.setLength(length);
+		h.setSimHash(simHash);
+		return h;
+	}
+
+	private static List<RevisionHeader> page(long[] ts, int[] lengths,
+			long[] simHashes) {
+		List<RevisionHeader> page = new ArrayList<RevisionHeader>();
+		for (int i = 0; i < ts.length; i++) {
+			page.add(rev(i + 1, ts[i], lengths == null ? 100 : lengths[i],
+					simHashes == null ? 0 : simHashes[i]));
+		}
+		return page;
+	}
+
+	private static List<RevisionHeader> hourly(int n) {
+		long[] ts = new long[n];
+		for (int i = 0; i < n; i++) ts[i] = T0 + i * HOUR;
+		return page(ts, null, null);
+	}
+
+	/**
+	 * The ids of the revisions a lane extracts, as in ExtractorLane. The
+	 * dropped revisions pass the header, but are skipped before offer(),
+	 * as reverts are. The page is read twice, to check newPage()
+	 */
+	private static List<Long> sample(RevisionSampler<RevisionHeader> sampler,
+			List<RevisionHeader> page, Long... dropped) {
+		Set<Long> drop = new HashSet<Long>(Arrays.asList(dropped));
+		List<Long> first = null;
+		for (int run = 0; run < 2; run++) {
+			sampler.newPage();
+			List<Long> res = new ArrayList<Long>();
+			RevisionHeader pending = null;
+			for (RevisionHeader h : page) {
+				if (!sampler.acceptHeader(h) || drop.contains(h.getRevisionId())) {
+					continue;
+				}
+				switch (sampler.offer(h, pending)) {
+				case EMIT:
+					if (pending != null) res.add(pending.getRevisionId());
+					pending = h;
+					break;
+				case REPLACE:
+					pending = h;
+					break;
+				default:
+					break;
+				}
+			}
+			if (pending != null) res.add(pending.getRevisionId());
+			if (first != null) assertEquals(first, res);
+			first = res;
+		}
+		return first;
+	}
+
+	private static List<Long> ids(long... ids) {
+		List<Long> res = new ArrayList<Long>();
+		for (long id : ids) res.add(id);
+		return res;
+	}
+
+	@Test
+	public void testCheck() {
+		ETLExtractor<Object, Object, RevisionHeader> extractor =
+				new ETLExtractor<Object, Object, RevisionHeader>() {
+			@Override
+			public float check(RevisionHeader now, RevisionHeader before) {
+				return Math.abs(now.getLength() - before.getLength()) / 100f;
+			}
+
+			@Override
+			public boolean extract(DataOutputBuffer content,
+					RevisionHeader meta, Object key, Object value) {
+				return true;
+			}
+		};
+
+		// 2 replaces 1, 3 is in between the thresholds, 4 is different
+		assertEquals(ids(2, 4), sample(new RevisionSamplers.Check<RevisionHeader>(
+				extractor, 0.01f, 0.1f), page(new long[] {T0, T0, T0, T0},
+						new int[] {100, 100, 105, 150}, null)));
+	}
+
+	@Test
+	public void testAll() {
+		assertEquals(ids(1, 2, 3, 4, 5),
+				sample(new RevisionSamplers.All(), hourly(5)));
+	}
+
+	@Test
+	public void testBuckets() {
+		List<RevisionHeader> page = page(new long[] {T0 + 10 * MINUTE,
+				T0 + 20 * MINUTE, T0 + HOUR + 5 * MINUTE, T0 + 3 * HOUR,
+				T0 + 3 * HOUR + 30 * MINUTE}, null, null);
+		assertEquals(ids(1, 3, 4), sample(new RevisionSamplers.FirstInBucket(
+				TimeBucket.HOUR), page));
+		assertEquals(ids(2, 3, 5), sample(new RevisionSamplers.LastInBucket(
+				TimeBucket.HOUR), page));
+
+		// a dropped revision does not take the place of the first one
+		assertEquals(ids(2, 3, 4), sample(new RevisionSamplers.FirstInBucket(
+				TimeBucket.HOUR), page, 1l));
+		assertEquals(ids(1, 3, 4), sample(new RevisionSamplers.LastInBucket(
+				TimeBucket.HOUR), page, 2l, 5l));
+	}
+
+	@Test
+	public void testLength() {
+		assertEquals(ids(1, 3, 5), sample(new RevisionSamplers.LengthChange(0.1f),
+				page(new long[] {T0, T0, T0, T0, T0},
+						new int[] {100, 105, 150, 152, 100}, null)));
+	}
+
+	@Test
+	public void testEveryKth() {
+		assertEquals(ids(1, 3, 5), sample(new RevisionSamplers.EveryKth(2),
+				hourly(5)));
+		assertEquals(ids(1, 4, 7), sample(new RevisionSamplers.EveryKth(3),
+				hourly(8)));
+
+		// only the revisions left after the reverts are counted
+		assertEquals(ids(1, 5, 7), sample(new RevisionSamplers.EveryKth(2),
+				hourly(7), 2l, 3l));
+	}
+
+	@Test
+	public void testDecay() {
+		// the gap is one hour at the reference time, and doubles every day
+		// back from it
+		long ref = T0 + 2 * DAY;
+		List<RevisionHeader> page = page(new long[] {T0, T0 + HOUR,
+				T0 + 5 * HOUR, ref - HOUR, ref - 30 * MINUTE, ref}, null, null);
+		assertEquals(ids(1, 3, 4, 6), sample(new RevisionSamplers.TimeDecay(
+				HOUR, DAY, ref), page));
+
+		// a dropped revision does not move the last sampled time
+		assertEquals(ids(1, 3, 5), sample(new RevisionSamplers.TimeDecay(
+				HOUR, DAY, ref), page, 4l, 6l));
+	}
+
+	@Test
+	public void testNearDuplicate() {
+		assertEquals(ids(2, 3, 5), sample(new RevisionSamplers.NearDuplicate(3),
+				page(new long[] {T0, T0, T0, T0, T0}, null,
+						new long[] {0x0, 0x1, 0xff, 0xf0f, 0xf0e})));
+	}
+
+	@Test
+	public void testCreate() {
+		Configuration conf = new Configuration();
+		assertTrue(RevisionSamplers.create(conf, null, null)
+				instanceof RevisionSamplers.Check);
+
+		conf.set(RevisionSamplers.SAMPLER_OPT, "kth");
+		conf.setInt(RevisionSamplers.K_OPT, 2);
+		assertEquals(ids(1, 3, 5), sample(RevisionSamplers.create(conf, null,
+				null), hourly(5)));
+
+		// per-extractor override
+		conf.set(RevisionSamplers.SAMPLER_FOR_OPT + "ids", "all");
+		assertTrue(RevisionSamplers.create(conf, null, "ids")
+				instanceof RevisionSamplers.All);
+
+		conf.set(RevisionSamplers.SAMPLER_OPT, "decay");
+		try {
+			RevisionSamplers.create(conf, null, null);
+			fail("No reference time");
+		} catch (IllegalArgumentException e) {
+		}
+		RevisionSamplers.pinReferenceTime(conf);
+		assertTrue(RevisionSamplers.create(conf, null, null)
+				instanceof RevisionSamplers.TimeDecay);
+
+		conf.set(RevisionSamplers.SAMPLER_OPT, "random");
+		try {
+			RevisionSamplers.create(conf, null, null);
+			fail("Unknown policy");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private static boolean check(RevertDetector d, RevisionHeader h,
+			String text) {
+		byte[] b = text.getBytes(StandardCharsets.UTF_8);
+		return d.check(h, b, 0, b.length);
+	}
+
+	@Test
+	public void testReverts() {
+		Configuration conf = new Configuration();
+		String[] texts = {"A", "B", "A", "C", "B"};
+		for (String mode : new String[] {"none", "mark", "skip"}) {
+			conf.set(WikiRevisionInputFormat.REVERT_MODE, mode);
+			RevertDetector d = new RevertDetector(conf);
+			List<RevisionHeader> page = hourly(texts.length);
+			List<Long> skipped = new ArrayList<Long>();
+			for (int i = 0; i < texts.length; i++) {
+				if (check(d, page.get(i), texts[i])) {
+					skipped.add(page.get(i).getRevisionId());
+				}
+			}
+			boolean mark = !mode.equals("none");
+			assertEquals(mark ? 1 : 0, page.get(2).getRevertOf());
+			assertEquals(mark ? 2 : 0, page.get(4).getRevertOf());
+			assertEquals(0, page.get(3).getRevertOf());
+			assertEquals(mode.equals("skip") ? ids(3, 5) : ids(), skipped);
+
+			// the history is per page
+			d.newPage();
+			RevisionHeader h = rev(10, T0, 1, 0);
+			assertFalse(check(d, h, "A"));
+			assertEquals(0, h.getRevertOf());
+
+			// the sha1 of the dump is preferred over the text
+			h = rev(11, T0, 1, 0);
+			h.setSha1("same");
+			assertFalse(check(d, h, "X"));
+			h = rev(12, T0, 1, 0);
+			h.setSha1("same");
+			assertEquals(mode.equals("skip"), check(d, h, "Y"));
+			assertEquals(mark ? 11 : 0, h.getRevertOf());
+		}
+	}
+}
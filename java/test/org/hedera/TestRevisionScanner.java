@@ -0,0 +1,167 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.etl.RevisionETLReader.Ack;
+import org.hedera.io.etl.RevisionScanner;
+import org.hedera.io.etl.RevisionScanner.Field;
+import org.junit.Test;
+
+public class TestRevisionScanner {
+
+	private static final String PAGE = "<page>\n"
+			+ "    <title>Foo</title>\n"
+			+ "    <ns>0</ns>\n"
+			+ "    <id>12</id>\n"
+			+ "    <revision>\n"
+			+ "      <id>100</id>\n"
+			+ "      <parentid>99</parentid>\n"
+			+ "      <timestamp>2001-01-15T13:15:00Z</timestamp>\n"
+			+ "      <contributor>\n"
+			+ "        <username>Bar</username>\n"
+			+ "        <id>7</id>\n"
+			+ "      </contributor>\n"
+			+ "      <minor />\n"
+			+ "      <text xml:space=\"preserve\" bytes=\"11\">hello world</text>\n"
+			+ "      <sha1>abc</sha1>\n"
+			+ "    </revision>\n"
+			+ "  </page>";
+
+	private static class Recorder implements RevisionScanner.Listener {
+		EnumSet<Field> seen = EnumSet.noneOf(Field.class);
+		boolean keepText = true;
+
+		@Override
+		public Ack onField(Field f, RevisionHeader meta) {
+			seen.add(f);
+			return Ack.PASSED_TO_NEXT_TAG;
+		}
+
+		@Override
+		public boolean acceptText(RevisionHeader meta) {
+			return keepText;
+		}
+
+		@Override
+		public void onText(byte[] b, int offset, int len) {
+		}
+	}
+
+	// feed the page in small chunks, to cross the tags
+	private static Ack scan(RevisionScanner s, byte[] b, int[] p) 
+			throws IOException {
+		while (!s.isDone() && p[0] < b.length) {
+			p[0] = s.scan(b, p[0], Math.min(b.length, p[0] + 3));
+		}
+		return s.getResult();
+	}
+
+	@Test
+	public void testAllFields() throws IOException {
+		byte[] b = PAGE.getBytes(StandardCharsets.UTF_8);
+		Recorder r = new Recorder();
+		RevisionScanner s = new RevisionScanner(RevisionScanner.ALL_FIELDS, r);
+		RevisionHeader meta = new RevisionHeader();
+		DataOutputBuffer text = new DataOutputBuffer();
+		int[] p = new int[] { "<page>".length() };
+
+		s.startPage(meta);
+		assertEquals(Ack.PASSED_TO_NEXT_TAG, scan(s, b, p));
+		assertEquals("Foo", meta.getPageTitle());
+		assertEquals(12, meta.getPageId());
+
+		s.startRevision(text, meta);
+		assertEquals(Ack.PASSED_TO_NEXT_TAG, scan(s, b, p));
+		assertEquals(100, meta.getRevisionId());
+		assertEquals(99, meta.getParentId());
+		assertTrue(meta.isMinor());
+		assertEquals("abc", meta.getSha1());
+		assertEquals("hello world</text>", new String(text.getData(), 0, 
+				text.getLength(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testSkippedFields() throws IOException {
+		byte[] b = PAGE.getBytes(StandardCharsets.UTF_8);
+		Recorder r = new Recorder();
+		RevisionScanner s = new RevisionScanner(
+				EnumSet.of(Field.ID, Field.TIMESTAMP), r);
+		RevisionHeader meta = new RevisionHeader();
+		DataOutputBuffer text = new DataOutputBuffer();
+		int[] p = new int[] { "<page>".length() };
+
+		s.startPage(meta);
+		scan(s, b, p);
+		s.startRevision(text, meta);
+		assertEquals(Ack.PASSED_TO_NEXT_TAG, scan(s, b, p));
+		assertEquals(100, meta.getRevisionId());
+		assertEquals(0, meta.getParentId());
+		assertEquals(0, text.getLength());
+		assertFalse(r.seen.contains(Field.TEXT));
+	}
+
+	@Test
+	public void testRejectedText() throws IOException {
+		byte[] b = PAGE.getBytes(StandardCharsets.UTF_8);
+		Recorder r = new Recorder();
+		r.keepText = false;
+		RevisionScanner s = new RevisionScanner(RevisionScanner.ALL_FIELDS, r);
+		RevisionHeader meta = new RevisionHeader();
+		DataOutputBuffer text = new DataOutputBuffer();
+		int[] p = new int[] { "<page>".length() };
+
+		s.startPage(meta);
+		scan(s, b, p);
+		s.startRevision(text, meta);
+		assertEquals(Ack.SKIPPED, scan(s, b, p));
+		assertEquals(0, text.getLength());
+	}
+
+	@Test
+	public void testContributors() throws IOException {
+		String page = PAGE.replace("</page>", "<revision><id>101</id>"
+				+ "<contributor><ip>10.0.0.1</ip></contributor>"
+				+ "<comment>fix &amp; typo</comment><text /></revision>"
+				+ "<revision><id>102</id>"
+				+ "<contributor><username>Bar</username><id>7</id></contributor>"
+				+ "<comment deleted=\"deleted\" /><text /></revision></page>");
+		byte[] b = page.getBytes(StandardCharsets.UTF_8);
+		Recorder r = new Recorder();
+		RevisionScanner s = new RevisionScanner(RevisionScanner.ALL_FIELDS, r);
+		RevisionHeader meta = new RevisionHeader();
+		DataOutputBuffer text = new DataOutputBuffer();
+		int[] p = new int[] { "<page>".length() };
+
+		s.startPage(meta);
+		scan(s, b, p);
+		s.startRevision(text, meta);
+		scan(s, b, p);
+		assertEquals("Bar", meta.getUser());
+		assertEquals(7, meta.getUserId());
+		assertFalse(meta.isAnonymous());
+		int bar = meta.getUserKey();
+
+		s.startRevision(text, meta);
+		scan(s, b, p);
+		assertEquals(101, meta.getRevisionId());
+		assertEquals("10.0.0.1", meta.getUser());
+		assertTrue(meta.isAnonymous());
+		assertEquals("fix &amp; typo", meta.getComment());
+
+		s.startRevision(text, meta);
+		scan(s, b, p);
+		assertEquals(102, meta.getRevisionId());
+		assertEquals(bar, meta.getUserKey());
+		assertTrue(meta.getUser() == s.getUsers().get(bar));
+		assertEquals(null, meta.getComment());
+		assertEquals(2, s.getUsers().size());
+	}
+}
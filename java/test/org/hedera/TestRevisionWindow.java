@@ -0,0 +1,137 @@
+package org.hedera;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.END_TEXT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.hedera.io.RevisionHeader;
+import org.hedera.io.etl.PageExtractor;
+import org.hedera.io.etl.PageExtractorLane;
+import org.hedera.io.etl.RevisionWindow;
+import org.junit.Test;
+
+public class TestRevisionWindow {
+
+	private static void add(RevisionWindow w, long revId, String text) {
+		RevisionHeader h = new RevisionHeader();
+		h.setRevisionId(revId);
+		byte[] b = ("xx" + text).getBytes(StandardCharsets.UTF_8);
+		w.add(h, b, 2, b.length - 2);
+	}
+
+	private static String text(RevisionWindow w, int age) {
+		return new String(w.text(age), 0, w.textLength(age),
+				StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testRing() {
+		RevisionWindow w = new RevisionWindow(3);
+		add(w, 1, "a");
+		assertEquals(1, w.size());
+		assertEquals(1, w.header(0).getRevisionId());
+
+		add(w, 2, "bb");
+		add(w, 3, "ccc");
+		add(w, 4, "dddd");
+		assertEquals(3, w.size());
+		assertEquals(4, w.total());
+		assertEquals(4, w.header(0).getRevisionId());
+		assertEquals(2, w.header(2).getRevisionId());
+		assertEquals("dddd", text(w, 0));
+		assertEquals("ccc", text(w, 1));
+		assertEquals("bb", text(w, 2));
+		try {
+			w.header(3);
+			fail("Only 3 revisions in the window");
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		w.clear();
+		assertEquals(0, w.size());
+		assertEquals(0, w.total());
+		add(w, 5, "e");
+		assertEquals(1, w.size());
+		assertEquals("e", text(w, 0));
+	}
+
+	@Test
+	public void testArenas() {
+		RevisionWindow w = new RevisionWindow(1);
+		add(w, 1, "0123456789");
+		byte[] arena = w.text(0);
+
+		// a shorter text reuses the arena, a longer one grows it
+		add(w, 2, "abc");
+		assertSame(arena, w.text(0));
+		assertEquals("abc", text(w, 0));
+		add(w, 3, "0123456789abcdef");
+		assertTrue(w.text(0).length >= 16);
+		assertEquals("0123456789abcdef", text(w, 0));
+
+		// the header is copied, not referenced
+		RevisionHeader h = new RevisionHeader();
+		h.setRevisionId(4);
+		w.add(h, new byte[0], 0, 0);
+		h.setRevisionId(5);
+		assertEquals(4, w.header(0).getRevisionId());
+		assertEquals(0, w.textLength(0));
+	}
+
+	@Test
+	public void testLaneDropsEndTag() throws IOException {
+		final StringBuilder seen = new StringBuilder();
+		PageExtractor<Object, Object> e = new PageExtractor<Object, Object>() {
+			@Override
+			public boolean acceptHeader(RevisionHeader meta) {
+				return true;
+			}
+
+			@Override
+			public void update(RevisionWindow window) {
+				seen.append(text(window, 0)).append(';');
+			}
+
+			@Override
+			public void endPage(RevisionWindow window) {
+			}
+
+			@Override
+			public boolean next(Object key, Object value) {
+				return false;
+			}
+
+			@Override
+			public void newPage() {
+			}
+		};
+		PageExtractorLane<Object, Object> lane =
+				new PageExtractorLane<Object, Object>(e, 2, null, null) {
+			@Override
+			protected void free() {
+			}
+		};
+		DataOutputBuffer content = new DataOutputBuffer();
+		content.write("[[Berlin]]".getBytes(StandardCharsets.UTF_8));
+		content.write(END_TEXT);
+		assertFalse(lane.offer(new RevisionHeader(), content));
+
+		// self-closing text tag
+		content.reset();
+		content.write(END_TEXT);
+		assertFalse(lane.offer(new RevisionHeader(), content));
+		assertEquals("[[Berlin]];;", seen.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCapacity() {
+		new RevisionWindow(0);
+	}
+}
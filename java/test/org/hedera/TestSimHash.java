@@ -0,0 +1,52 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.hedera.util.SimHash;
+import org.junit.Test;
+
+public class TestSimHash {
+
+	private static long hash(String s) {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		return SimHash.hash(b, 0, b.length);
+	}
+
+	private static String article(int skip) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			if (i != skip) {
+				sb.append("Sentence number ").append(i)
+						.append(" talks about topic ").append(i * 7).append(". ");
+			}
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testWhitespaceAndCase() {
+		assertEquals(hash("The quick brown fox, jumps."),
+				hash("the   quick\nbrown fox jumps"));
+	}
+
+	@Test
+	public void testSmallEdits() {
+		long a = hash(article(-1));
+		long b = hash(article(150));
+		long c = hash("A completely different text about something else "
+				+ "with other words in it, e.g. [[Berlin]] and {{Infobox}}");
+		assertTrue(SimHash.distance(a, b) <= 3);
+		assertTrue(SimHash.distance(a, c) > 10);
+	}
+
+	@Test
+	public void testTrailingTag() {
+		byte[] b = (article(-1) + "</text>").getBytes(StandardCharsets.UTF_8);
+		SimHash sh = new SimHash();
+		sh.update(b, 0, b.length);
+		assertEquals(hash(article(-1)), sh.finish(true));
+	}
+}
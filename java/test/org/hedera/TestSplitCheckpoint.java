@@ -0,0 +1,162 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.InvalidJobConfException;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.hedera.io.checkpoint.CheckpointOutputFormat;
+import org.hedera.io.checkpoint.SplitCheckpoint;
+import org.junit.Test;
+
+public class TestSplitCheckpoint {
+
+	private static Path tmpDir(String name) {
+		return new Path(new File(System.getProperty("java.io.tmpdir"),
+				"hedera-" + name + "-" + System.nanoTime()).toURI());
+	}
+
+	private static TaskAttemptContext attempt(Configuration conf, int i) {
+		return new TaskAttemptContextImpl(conf,
+				new TaskAttemptID("hedera", 1, TaskType.MAP, 0, i));
+	}
+
+	private static long count(FileSystem fs, Path file, Configuration conf)
+			throws IOException {
+		long n = 0;
+		try (SequenceFile.Reader in = new SequenceFile.Reader(conf,
+				SequenceFile.Reader.file(fs.makeQualified(file)))) {
+			LongWritable k = new LongWritable();
+			Text v = new Text();
+			while (in.next(k, v)) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	@Test
+	public void testSaveLoad() throws IOException {
+		FileSystem fs = FileSystem.getLocal(new Configuration());
+		Path dir = tmpDir("checkpoint");
+		try {
+			assertNull(SplitCheckpoint.load(fs, dir));
+
+			new SplitCheckpoint(1234, 56, 0).save(fs, dir);
+			SplitCheckpoint cp = SplitCheckpoint.load(fs, dir);
+			assertEquals(1234, cp.getOffset());
+			assertEquals(56, cp.getRecords());
+			assertEquals(0, cp.getSegments());
+
+			// a newer checkpoint replaces the old one, but is only valid
+			// once its segments exist
+			new SplitCheckpoint(5678, 90, 2).save(fs, dir);
+			assertNull(SplitCheckpoint.load(fs, dir));
+			fs.create(SplitCheckpoint.segment(dir, 0)).close();
+			fs.create(SplitCheckpoint.segment(dir, 1)).close();
+			assertEquals(5678, SplitCheckpoint.load(fs, dir).getOffset());
+
+			// the attempt died between writing and renaming the checkpoint
+			fs.rename(new Path(dir, "checkpoint"), new Path(dir, "checkpoint.tmp"));
+			assertEquals(90, SplitCheckpoint.load(fs, dir).getRecords());
+
+			// a truncated checkpoint is ignored
+			try (FSDataOutputStream out = fs.create(new Path(dir, "checkpoint"))) {
+				out.writeLong(5678);
+			}
+			assertNull(SplitCheckpoint.load(fs, dir));
+		} finally {
+			fs.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void testRollAndResume() throws IOException, InterruptedException {
+		Configuration conf = new Configuration();
+		FileSystem fs = FileSystem.getLocal(conf);
+		Path out = tmpDir("output");
+		Path side = tmpDir("side");
+		conf.set(FileOutputFormat.OUTDIR, out.toString());
+		conf.set(SplitCheckpoint.CHECKPOINT_DIR_OPT, side.toString());
+		conf.setClass(MRJobConfig.OUTPUT_KEY_CLASS, LongWritable.class, Object.class);
+		conf.setClass(MRJobConfig.OUTPUT_VALUE_CLASS, Text.class, Object.class);
+		try {
+			CheckpointOutputFormat<LongWritable, Text> format =
+					new CheckpointOutputFormat<LongWritable, Text>();
+
+			// the first attempt takes one checkpoint after two records, then
+			// dies after the third one
+			TaskAttemptContext first = attempt(conf, 0);
+			Path dir = SplitCheckpoint.taskDir(first);
+			RecordWriter<LongWritable, Text> w = format.getRecordWriter(first);
+			w.write(new LongWritable(1), new Text("a"));
+			w.write(new LongWritable(2), new Text("b"));
+			int segments = CheckpointOutputFormat.getWriter(
+					first.getTaskAttemptID()).roll();
+			assertEquals(1, segments);
+			new SplitCheckpoint(100, 2, segments).save(fs, dir);
+			w.write(new LongWritable(3), new Text("c"));
+			assertTrue(fs.exists(SplitCheckpoint.segment(dir, 0)));
+
+			// the second attempt resumes after the checkpoint, and commits
+			// the segment of the first one with its own output
+			TaskAttemptContext second = attempt(conf, 1);
+			assertEquals(dir, SplitCheckpoint.taskDir(second));
+			w = format.getRecordWriter(second);
+			w.write(new LongWritable(3), new Text("c"));
+			w.close(second);
+
+			assertFalse(fs.exists(dir));
+			assertNull(CheckpointOutputFormat.getWriter(
+					second.getTaskAttemptID()));
+			assertEquals(2, count(fs, format.getDefaultWorkFile(second, "-0"),
+					conf));
+			assertEquals(1, count(fs, format.getDefaultWorkFile(second, "-1"),
+					conf));
+		} finally {
+			fs.delete(out, true);
+			fs.delete(side, true);
+		}
+	}
+
+	@Test
+	public void testNoSpeculation() throws IOException {
+		Configuration conf = new Configuration();
+		Path out = tmpDir("output");
+		conf.set(FileOutputFormat.OUTDIR, out.toString());
+		CheckpointOutputFormat<LongWritable, Text> format =
+				new CheckpointOutputFormat<LongWritable, Text>();
+
+		// no checkpoints, no restriction
+		format.checkOutputSpecs(Job.getInstance(conf));
+
+		conf.set(SplitCheckpoint.CHECKPOINT_DIR_OPT, tmpDir("side").toString());
+		try {
+			format.checkOutputSpecs(Job.getInstance(conf));
+			fail("Speculative attempts would share the side directory");
+		} catch (InvalidJobConfException e) {
+		}
+		conf.setBoolean(MRJobConfig.MAP_SPECULATIVE, false);
+		format.checkOutputSpecs(Job.getInstance(conf));
+	}
+}
@@ -0,0 +1,39 @@
+package org.hedera;
+
+import static org.hedera.io.input.WikiRevisionInputFormat.TIME_FORMAT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.hedera.io.etl.TimeBucket;
+import org.junit.Test;
+
+public class TestTimeBucket {
+
+	private static long ts(String s) {
+		return TIME_FORMAT.parseMillis(s);
+	}
+
+	@Test
+	public void testMonths() {
+		// 31 days in January, 28 in February 2014
+		assertEquals(TimeBucket.MONTH.of(ts("2014-01-01T00:00:00Z")),
+				TimeBucket.MONTH.of(ts("2014-01-31T23:59:59Z")));
+		assertEquals(TimeBucket.MONTH.of(ts("2014-01-31T23:59:59Z")) + 1,
+				TimeBucket.MONTH.of(ts("2014-02-01T00:00:00Z")));
+		assertEquals(TimeBucket.MONTH.of(ts("2014-02-28T12:00:00Z")) + 1,
+				TimeBucket.MONTH.of(ts("2014-03-01T00:00:00Z")));
+		assertEquals(TimeBucket.MONTH.of(ts("2013-12-31T23:59:59Z")) + 1,
+				TimeBucket.MONTH.of(ts("2014-01-01T00:00:00Z")));
+	}
+
+	@Test
+	public void testWeeks() {
+		// 2014-03-03 is a Monday
+		long monday = TimeBucket.WEEK.of(ts("2014-03-03T00:00:00Z"));
+		assertEquals(monday, TimeBucket.WEEK.of(ts("2014-03-09T23:59:59Z")));
+		assertEquals(monday - 1, TimeBucket.WEEK.of(ts("2014-03-02T23:59:59Z")));
+		assertTrue(TimeBucket.DAY.of(ts("2014-03-03T00:00:00Z"))
+				> TimeBucket.DAY.of(ts("2014-03-02T23:59:59Z")));
+		assertEquals(TimeBucket.WEEK, TimeBucket.parse("week"));
+	}
+}
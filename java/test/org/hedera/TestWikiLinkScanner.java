@@ -0,0 +1,47 @@
+package org.hedera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.hedera.util.WikiLinkScanner;
+import org.junit.Test;
+
+public class TestWikiLinkScanner {
+
+	private static String links(String text) {
+		byte[] b = text.getBytes(StandardCharsets.UTF_8);
+		WikiLinkScanner s = new WikiLinkScanner();
+		int n = s.scan(b, 0, b.length);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; i++) {
+			sb.append(s.target(i)).append('=').append(s.anchor(i)).append(';');
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testPlainAndPiped() {
+		assertEquals("Berlin=Berlin;Germany=the country;",
+				links("[[Berlin]] is in [[Germany|the country]]."));
+		assertEquals("Stra\u00dfe=Stra\u00dfe;", links("a [[Stra\u00dfe]]"));
+		assertEquals("Foo=;", links("[[Foo|]]"));
+	}
+
+	@Test
+	public void testSectionsAndNamespaces() {
+		assertEquals("Berlin=Berlin;Berlin=history;",
+				links("[[Berlin#Geography]] [[Berlin#History|history]]"));
+		assertEquals("", links("[[#Section|here]] [[Category:Cities]] [[de:Berlin]]"));
+		assertEquals("", links("[[]] [[ unclosed"));
+	}
+
+	@Test
+	public void testNesting() {
+		assertEquals("caption=caption;",
+				links("[[File:x.jpg|thumb|a [[caption]] link]]"));
+		assertEquals("Foo={{lang|de|Bar}};",
+				links("[[Foo|{{lang|de|Bar}}]]"));
+		assertEquals("Bar=Bar;", links("{{cite|title=[[Bar]]}}"));
+	}
+}